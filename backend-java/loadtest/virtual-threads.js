@@ -0,0 +1,107 @@
+// k6 load test comparing the platform-thread and virtual-thread request modes at 5,000 concurrent clients.
+//
+// 1. Start the backend in one mode against PostgreSQL (the prod profile; set SPRING_DATASOURCE_URL etc.),
+//    since H2 in memory serializes too much to compare the modes. Both get the same 40 connections:
+//      platform: mvn -Pjava21 spring-boot:run -Dspring-boot.run.profiles=prod \
+//                  -Dspring-boot.run.arguments=--spring.datasource.hikari.maximum-pool-size=40
+//      virtual:  mvn -Pjava21 spring-boot:run -Dspring-boot.run.profiles=prod,virtual-threads
+// 2. Run the test against it, naming the mode; the summary goes to loadtest/results/<mode>.json:
+//      k6 run -e MODE=platform loadtest/virtual-threads.js
+//      k6 run -e MODE=virtual loadtest/virtual-threads.js
+// 3. Compare http_reqs (throughput), http_req_duration p(99), and "busy" (503s from the bulkheads or the
+//    password pool) between the two files. Restart the backend between runs so both start cold.
+//
+// Options (-e NAME=value): BASE_URL (http://localhost:8080), CLIENTS (5000), HOLD (3m), USERS (200).
+// Client machines need a raised open-file limit (ulimit -n 65536) for 5,000 connections.
+import http from 'k6/http';
+import { check, sleep } from 'k6';
+import { Counter } from 'k6/metrics';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const CLIENTS = parseInt(__ENV.CLIENTS || '5000', 10);
+const USERS = parseInt(__ENV.USERS || '200', 10);
+const DEVICES_PER_USER = 5;
+const MODE = __ENV.MODE || 'unnamed';
+
+const busy = new Counter('busy');
+
+export const options = {
+  setupTimeout: '10m',
+  scenarios: {
+    clients: {
+      executor: 'ramping-vus',
+      startVUs: 0,
+      stages: [
+        { duration: '1m', target: CLIENTS },
+        { duration: __ENV.HOLD || '3m', target: CLIENTS },
+        { duration: '30s', target: 0 },
+      ],
+      gracefulRampDown: '10s',
+    },
+  },
+  summaryTrendStats: ['avg', 'med', 'p(90)', 'p(95)', 'p(99)', 'max'],
+};
+
+function json(body) {
+  return { headers: { 'Content-Type': 'application/json' }, body: JSON.stringify(body) };
+}
+
+function authorized(token) {
+  return { headers: { 'Content-Type': 'application/json', Authorization: `Bearer ${token}` } };
+}
+
+// Registers the users the clients act as, each with a few devices; registration is not part of the measurement
+export function setup() {
+  const run = Date.now().toString(36);
+  const users = [];
+  for (let i = 0; i < USERS; i++) {
+    const { headers, body } = json({ email: `load-${run}-${i}@example.com`, password: 'load-test-password', firstName: 'Load' });
+    const res = http.post(`${BASE_URL}/api/auth/register`, body, { headers });
+    if (res.status !== 201) throw new Error(`register failed with ${res.status}: ${res.body}`);
+    const token = res.json('data.token');
+    const devices = [];
+    for (let d = 0; d < DEVICES_PER_USER; d++) {
+      const created = http.post(`${BASE_URL}/api/devices`, JSON.stringify({ name: `Rover ${d}`, type: 'rover', location: 'Lab' }),
+        authorized(token));
+      devices.push(created.json('data.device.id'));
+    }
+    users.push({ token, devices });
+  }
+  return { users };
+}
+
+export default function (data) {
+  const user = data.users[__VU % data.users.length];
+  const params = authorized(user.token);
+  const roll = Math.random();
+  let res;
+  if (roll < 0.35) {
+    res = http.get(`${BASE_URL}/api/products?page=${Math.floor(Math.random() * 3)}&size=20`, { tags: { name: 'products' } });
+  } else if (roll < 0.6) {
+    res = http.get(`${BASE_URL}/api/devices?size=20`, Object.assign({ tags: { name: 'devices' } }, params));
+  } else if (roll < 0.7) {
+    res = http.get(`${BASE_URL}/api/devices/summary`, Object.assign({ tags: { name: 'summary' } }, params));
+  } else if (roll < 0.85) {
+    const deviceId = user.devices[Math.floor(Math.random() * user.devices.length)];
+    res = http.put(`${BASE_URL}/api/devices/${deviceId}/battery`, JSON.stringify({ battery: Math.floor(Math.random() * 101) }),
+      Object.assign({ tags: { name: 'battery' } }, params));
+  } else {
+    res = http.get(`${BASE_URL}/api/cart`, Object.assign({ tags: { name: 'cart' } }, params));
+  }
+  if (res.status === 503) busy.add(1);
+  check(res, { 'status is 2xx': (r) => r.status >= 200 && r.status < 300 });
+  // Think time, so CLIENTS models concurrent users rather than a closed loop of requests
+  sleep(0.5 + Math.random());
+}
+
+export function handleSummary(data) {
+  const duration = data.metrics.http_req_duration.values;
+  const line = `${MODE}: ${data.metrics.http_reqs.values.rate.toFixed(1)} req/s, ` +
+    `p50 ${duration.med.toFixed(1)} ms, p99 ${duration['p(99)'].toFixed(1)} ms, ` +
+    `busy ${data.metrics.busy ? data.metrics.busy.values.count : 0}, ` +
+    `failed ${(data.metrics.http_req_failed.values.rate * 100).toFixed(2)}%\n`;
+  return {
+    stdout: line,
+    [`loadtest/results/${MODE}.json`]: JSON.stringify(data, null, 2),
+  };
+}
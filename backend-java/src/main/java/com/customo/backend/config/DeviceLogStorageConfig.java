@@ -0,0 +1,15 @@
+package com.customo.backend.config;
+
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class DeviceLogStorageConfig {
+
+    // The partitioned device_logs parent must exist before Hibernate's schema update creates a plain table
+    @Bean
+    public static EntityManagerFactoryDependsOnPostProcessor deviceLogPartitionsBeforeJpa() {
+        return new EntityManagerFactoryDependsOnPostProcessor("deviceLogPartitionManager");
+    }
+}
@@ -0,0 +1,152 @@
+package com.customo.backend.config;
+
+import com.customo.backend.dto.ApiResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps concurrent requests per controller group (/api/devices, /api/products,
+ * /api/cart, ...) so one busy group cannot take every pooled connection from
+ * the others. Needed once requests run on virtual threads, where Tomcat no
+ * longer limits concurrency with its worker pool. A request that cannot get a
+ * permit within bulkheads.max-wait-ms gets 503.
+ *
+ * Groups listed under bulkheads.limits get their own limit; all other groups
+ * share one of bulkheads.default-limit. A request holds at most one
+ * connection, so startup fails unless every limit, and their sum, fit in the
+ * connection pool: that sum is what keeps each group its share.
+ */
+@Component
+public class RequestBulkheads implements AsyncHandlerInterceptor {
+
+    private static final String PERMIT = RequestBulkheads.class.getName() + ".permit";
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${bulkheads.enabled:false}")
+    private boolean enabled;
+
+    @Value("${bulkheads.default-limit:50}")
+    private int defaultLimit;
+
+    @Value("${bulkheads.max-wait-ms:100}")
+    private long maxWaitMs;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int poolSize;
+
+    // Groups with their own limit; fixed after startup
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+    private Bulkhead shared;
+
+    @PostConstruct
+    public void init() {
+        Map<String, Integer> limits = Binder.get(environment)
+                .bind("bulkheads.limits", Bindable.mapOf(String.class, Integer.class))
+                .orElse(Map.of());
+        limits.forEach((group, limit) -> bulkheads.put(group, new Bulkhead(limit)));
+        shared = new Bulkhead(defaultLimit);
+        if (!enabled) return;
+
+        int total = defaultLimit;
+        for (Map.Entry<String, Integer> limit : limits.entrySet()) {
+            if (limit.getValue() >= poolSize) {
+                throw new IllegalStateException("bulkheads.limits." + limit.getKey() + "=" + limit.getValue()
+                        + " leaves no connection to other groups (pool size " + poolSize + ")");
+            }
+            total += limit.getValue();
+        }
+        if (total > poolSize) {
+            throw new IllegalStateException("Bulkhead limits add up to " + total + ", more than the "
+                    + poolSize + " pooled connections they share");
+        }
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        // The permit of an async request is returned when its handler returns
+        if (!enabled || request.getDispatcherType() == DispatcherType.ASYNC) return true;
+        Bulkhead bulkhead = bulkheads.getOrDefault(group(request.getRequestURI()), shared);
+        if (!bulkhead.semaphore.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS)) {
+            bulkhead.rejected.incrementAndGet();
+            response.setStatus(503);
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(), ApiResponse.error("Service busy, please retry"));
+            return false;
+        }
+        request.setAttribute(PERMIT, bulkhead);
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        release(request);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        release(request);
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        bulkheads.forEach((group, bulkhead) -> metrics.put(group, bulkhead.getMetrics()));
+        metrics.put("default", shared.getMetrics());
+        return metrics;
+    }
+
+    private void release(HttpServletRequest request) {
+        Object bulkhead = request.getAttribute(PERMIT);
+        if (bulkhead != null) {
+            request.removeAttribute(PERMIT);
+            ((Bulkhead) bulkhead).semaphore.release();
+        }
+    }
+
+    // /api/devices/123 -> devices
+    private static String group(String uri) {
+        int start = uri.startsWith("/api/") ? 5 : 1;
+        int end = uri.indexOf('/', start);
+        return end < 0 ? uri.substring(Math.min(start, uri.length())) : uri.substring(start, end);
+    }
+
+    private static final class Bulkhead {
+        private final int limit;
+        private final Semaphore semaphore;
+        private final AtomicLong rejected = new AtomicLong();
+
+        Bulkhead(int limit) {
+            this.limit = limit;
+            this.semaphore = new Semaphore(limit);
+        }
+
+        Map<String, Object> getMetrics() {
+            return Map.of("limit", limit, "inUse", limit - semaphore.availablePermits(), "rejected", rejected.get());
+        }
+    }
+}
@@ -2,13 +2,18 @@ package com.customo.backend.controller;
 
 import com.customo.backend.dto.*;
 import com.customo.backend.entity.User;
+import com.customo.backend.security.AuthenticatedUser;
+import com.customo.backend.security.LoginThrottle;
 import com.customo.backend.service.AuthService;
 import com.customo.backend.util.JwtUtil;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
-import java.util.HashMap;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/auth")
@@ -16,84 +21,114 @@ import java.util.HashMap;
 public class AuthController {
     private final AuthService authService;
     private final JwtUtil jwtUtil;
+    private final LoginThrottle loginThrottle;
 
-    public AuthController(AuthService authService, JwtUtil jwtUtil) {
+    public AuthController(AuthService authService, JwtUtil jwtUtil, LoginThrottle loginThrottle) {
         this.authService = authService;
         this.jwtUtil = jwtUtil;
+        this.loginThrottle = loginThrottle;
     }
 
     @GetMapping("/health")
-    public ResponseEntity<Map<String, Object>> health() {
-        Map<String, Object> response = new HashMap<>();
-        response.put("success", true);
-        response.put("message", "Auth service is healthy");
-        response.put("timestamp", System.currentTimeMillis());
-        return ResponseEntity.ok(response);
+    public ResponseEntity<ApiResponse<Map<String, Long>>> health() {
+        return ResponseEntity.ok(ApiResponse.ok("Auth service is healthy", Map.of("timestamp", System.currentTimeMillis())));
     }
 
     @PostMapping("/register")
-    public ResponseEntity<?> register(@RequestBody RegisterRequest req) {
+    public ResponseEntity<ApiResponse<AuthResponse>> register(@RequestBody RegisterRequest req) {
         try {
             AuthResponse resp = authService.register(req);
-            return ResponseEntity.status(201).body(Map.of("success", true, "data", Map.of("user", resp.user, "token", resp.token)));
+            return ResponseEntity.status(201).body(ApiResponse.ok(resp));
         } catch (IllegalArgumentException e) {
-            return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            return busy();
         }
     }
 
+    /**
+     * Throttled per client address and per email (LoginThrottle) with 429 and
+     * Retry-After, before the password is checked.
+     */
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody AuthRequest req) {
+    public ResponseEntity<ApiResponse<AuthResponse>> login(@RequestBody AuthRequest req, HttpServletRequest request) {
+        long waitMs = loginThrottle.tryAcquire(req.email, request.getRemoteAddr());
+        if (waitMs > 0) {
+            return ResponseEntity.status(429)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf((waitMs + 999) / 1000))
+                    .body(ApiResponse.error("Too many login attempts"));
+        }
         try {
             AuthResponse resp = authService.login(req);
-            return ResponseEntity.ok(Map.of("success", true, "data", Map.of("user", resp.user, "token", resp.token)));
+            loginThrottle.recordSuccess(req.email);
+            return ResponseEntity.ok(ApiResponse.ok(resp));
         } catch (IllegalArgumentException e) {
-            return ResponseEntity.status(401).body(Map.of("success", false, "message", e.getMessage()));
+            loginThrottle.recordFailure(req.email);
+            return ResponseEntity.status(401).body(ApiResponse.error(e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            return busy();
         }
     }
 
     @GetMapping("/me")
-    public ResponseEntity<?> me(@RequestHeader(value = "Authorization", required = false) String auth) {
+    public ResponseEntity<ApiResponse<Map<String, AuthResponse.UserDTO>>> me(@AuthenticationPrincipal AuthenticatedUser principal) {
         try {
-            if (auth == null || !auth.startsWith("Bearer ")) return ResponseEntity.status(401).body(Map.of("success", false, "message", "No token provided"));
-            String token = auth.replace("Bearer ", "");
-            String userId = jwtUtil.getUserIdFromToken(token);
+            String userId = principal.getId();
             User u = authService.findById(userId);
-            if (u == null) return ResponseEntity.status(401).body(Map.of("success", false, "message", "User not found or inactive"));
-            return ResponseEntity.ok(Map.of("success", true, "data", Map.of("user", Map.of(
-                "id", u.getId(), "email", u.getEmail(), "firstName", u.getFirstName(), "lastName", u.getLastName(), "phone", u.getPhone(), "company", u.getCompany(), "role", u.getRole(), "createdAt", u.getCreatedAt()
-            ))));
+            if (u == null) return ResponseEntity.status(401).body(ApiResponse.error("User not found or inactive"));
+            return ResponseEntity.ok(ApiResponse.ok(Map.of("user", authService.toUserDto(u))));
         } catch (Exception e) {
-            return ResponseEntity.status(401).body(Map.of("success", false, "message", "Invalid token"));
+            return ResponseEntity.status(500).body(ApiResponse.error("Internal server error"));
         }
     }
 
-    @PutMapping("/profile")
-    public ResponseEntity<?> updateProfile(@RequestHeader(value = "Authorization", required = false) String auth, @RequestBody ProfileUpdateRequest req) {
+    /**
+     * Revokes the token the request carries; it is refused from then on.
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<ApiResponse<Void>> logout(@RequestHeader(value = "Authorization", required = false) String auth) {
         try {
-            if (auth == null || !auth.startsWith("Bearer ")) return ResponseEntity.status(401).body(Map.of("success", false, "message", "No token provided"));
+            if (auth == null || !auth.startsWith("Bearer ")) return ResponseEntity.status(401).body(ApiResponse.error("No token provided"));
             String token = auth.replace("Bearer ", "");
-            String userId = jwtUtil.getUserIdFromToken(token);
+            jwtUtil.revoke(token);
+            return ResponseEntity.ok(ApiResponse.message("Logged out successfully"));
+        } catch (Exception e) {
+            return ResponseEntity.status(401).body(ApiResponse.error("Invalid token"));
+        }
+    }
+
+    @PutMapping("/profile")
+    public ResponseEntity<ApiResponse<Map<String, AuthResponse.UserDTO>>> updateProfile(@AuthenticationPrincipal AuthenticatedUser principal, @RequestBody ProfileUpdateRequest req) {
+        try {
+            String userId = principal.getId();
             User u = authService.updateProfile(userId, req);
-            return ResponseEntity.ok(Map.of("success", true, "message", "Profile updated successfully", "data", Map.of("user", Map.of("id", u.getId(), "email", u.getEmail(), "firstName", u.getFirstName(), "lastName", u.getLastName(), "phone", u.getPhone(), "company", u.getCompany(), "role", u.getRole(), "updatedAt", u.getUpdatedAt()))));
+            return ResponseEntity.ok(ApiResponse.ok("Profile updated successfully", Map.of("user", authService.toUserDto(u))));
         } catch (IllegalArgumentException e) {
-            return ResponseEntity.status(400).body(Map.of("success", false, "message", e.getMessage()));
+            return ResponseEntity.status(400).body(ApiResponse.error(e.getMessage()));
         } catch (Exception e) {
-            return ResponseEntity.status(500).body(Map.of("success", false, "message", "Internal server error"));
+            return ResponseEntity.status(500).body(ApiResponse.error("Internal server error"));
         }
     }
 
     @PutMapping("/change-password")
-    public ResponseEntity<?> changePassword(@RequestHeader(value = "Authorization", required = false) String auth, @RequestBody ChangePasswordRequest req) {
+    public ResponseEntity<ApiResponse<Void>> changePassword(@AuthenticationPrincipal AuthenticatedUser principal, @RequestBody ChangePasswordRequest req) {
         try {
-            if (auth == null || !auth.startsWith("Bearer ")) return ResponseEntity.status(401).body(Map.of("success", false, "message", "No token provided"));
-            String token = auth.replace("Bearer ", "");
-            String userId = jwtUtil.getUserIdFromToken(token);
+            String userId = principal.getId();
             authService.changePassword(userId, req);
-            return ResponseEntity.ok(Map.of("success", true, "message", "Password changed successfully"));
+            return ResponseEntity.ok(ApiResponse.message("Password changed successfully"));
         } catch (IllegalArgumentException e) {
-            return ResponseEntity.status(400).body(Map.of("success", false, "message", e.getMessage()));
+            return ResponseEntity.status(400).body(ApiResponse.error(e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            return busy();
         } catch (Exception e) {
-            return ResponseEntity.status(500).body(Map.of("success", false, "message", "Internal server error"));
+            return ResponseEntity.status(500).body(ApiResponse.error("Internal server error"));
         }
     }
+
+    // Password hashing is saturated (PasswordHasher); fail fast rather than queue the request
+    private <T> ResponseEntity<ApiResponse<T>> busy() {
+        return ResponseEntity.status(503)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(ApiResponse.error("Service busy, please retry"));
+    }
 }
@@ -1,19 +1,14 @@
 package com.customo.backend.controller;
 
-import com.customo.backend.entity.CartItem;
-import com.customo.backend.entity.Product;
-import com.customo.backend.entity.User;
-import com.customo.backend.repository.CartItemRepository;
-import com.customo.backend.repository.ProductRepository;
-import com.customo.backend.repository.UserRepository;
-import com.customo.backend.util.JwtUtil;
+import com.customo.backend.dto.ApiResponse;
+import com.customo.backend.dto.CartView;
+import com.customo.backend.security.AuthenticatedUser;
+import com.customo.backend.service.CartStore;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
-import java.math.BigDecimal;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -23,249 +18,117 @@ import java.util.Optional;
 public class CartController {
 
     @Autowired
-    private CartItemRepository cartItemRepository;
-
-    @Autowired
-    private ProductRepository productRepository;
-
-    @Autowired
-    private UserRepository userRepository;
-
-    @Autowired
-    private JwtUtil jwtUtil;
+    private CartStore cartStore;
 
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getCartItems(@RequestHeader(value = "Authorization", required = false) String auth) {
-        Map<String, Object> response = new HashMap<>();
-        
+    public ResponseEntity<ApiResponse<CartView>> getCartItems(@AuthenticationPrincipal AuthenticatedUser principal) {
         try {
-            if (auth == null || !auth.startsWith("Bearer ")) {
-                response.put("success", false);
-                response.put("message", "No token provided");
-                return ResponseEntity.status(401).body(response);
-            }
+            String userId = principal.getId();
 
-            String token = auth.replace("Bearer ", "");
-            String userId = jwtUtil.getUserIdFromToken(token);
-            User user = userRepository.findById(userId).orElse(null);
-            
-            if (user == null) {
-                response.put("success", false);
-                response.put("message", "User not found");
-                return ResponseEntity.status(404).body(response);
-            }
+            return ResponseEntity.ok(ApiResponse.ok(cartStore.getCart(userId)));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(ApiResponse.error("Error fetching cart items: " + e.getMessage()));
+        }
+    }
 
-            List<CartItem> cartItems = cartItemRepository.findByUserOrderByCreatedAtDesc(user);
-            
-            response.put("success", true);
-            response.put("data", Map.of("cartItems", cartItems));
-            return ResponseEntity.ok(response);
+    // Totals only, for the cart badge
+    @GetMapping("/summary")
+    public ResponseEntity<ApiResponse<CartView>> getCartSummary(@AuthenticationPrincipal AuthenticatedUser principal) {
+        try {
+            String userId = principal.getId();
+
+            return ResponseEntity.ok(ApiResponse.ok(cartStore.getSummary(userId)));
         } catch (Exception e) {
-            response.put("success", false);
-            response.put("message", "Error fetching cart items: " + e.getMessage());
-            return ResponseEntity.status(500).body(response);
+            return ResponseEntity.status(500).body(ApiResponse.error("Error fetching cart summary: " + e.getMessage()));
         }
     }
 
     @PostMapping
-    public ResponseEntity<Map<String, Object>> addToCart(
-            @RequestHeader(value = "Authorization", required = false) String auth,
+    public ResponseEntity<ApiResponse<Map<String, CartView.Line>>> addToCart(
+            @AuthenticationPrincipal AuthenticatedUser principal,
             @RequestBody Map<String, Object> requestBody) {
-        Map<String, Object> response = new HashMap<>();
-        
         try {
-            if (auth == null || !auth.startsWith("Bearer ")) {
-                response.put("success", false);
-                response.put("message", "No token provided");
-                return ResponseEntity.status(401).body(response);
-            }
-
-            String token = auth.replace("Bearer ", "");
-            String userId = jwtUtil.getUserIdFromToken(token);
-            User user = userRepository.findById(userId).orElse(null);
-            
-            if (user == null) {
-                response.put("success", false);
-                response.put("message", "User not found");
-                return ResponseEntity.status(404).body(response);
-            }
+            String userId = principal.getId();
 
             String productId = (String) requestBody.get("productId");
             Integer quantity = (Integer) requestBody.getOrDefault("quantity", 1);
 
             if (productId == null) {
-                response.put("success", false);
-                response.put("message", "Product ID is required");
-                return ResponseEntity.status(400).body(response);
-            }
-
-            Product product = productRepository.findById(productId).orElse(null);
-            if (product == null || !product.isActive()) {
-                response.put("success", false);
-                response.put("message", "Product not found or inactive");
-                return ResponseEntity.status(404).body(response);
+                return ResponseEntity.status(400).body(ApiResponse.error("Product ID is required"));
             }
 
-            if (product.getStockQuantity() < quantity) {
-                response.put("success", false);
-                response.put("message", "Insufficient stock");
-                return ResponseEntity.status(400).body(response);
+            if (quantity == null || quantity < 1) {
+                return ResponseEntity.status(400).body(ApiResponse.error("Valid quantity is required"));
             }
 
-            // Check if item already exists in cart
-            Optional<CartItem> existingItem = cartItemRepository.findByUserAndProduct(user, product);
-            
-            CartItem cartItem;
-            if (existingItem.isPresent()) {
-                cartItem = existingItem.get();
-                cartItem.setQuantity(cartItem.getQuantity() + quantity);
-            } else {
-                cartItem = new CartItem(user, product, quantity, product.getPrice());
+            Optional<CartView.Line> cartItem = cartStore.addItem(userId, productId, quantity);
+            if (cartItem.isEmpty()) {
+                return ResponseEntity.status(404).body(ApiResponse.error("Product not found or inactive"));
             }
 
-            CartItem savedItem = cartItemRepository.save(cartItem);
-            
-            response.put("success", true);
-            response.put("data", Map.of("cartItem", savedItem));
-            response.put("message", "Item added to cart successfully");
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(ApiResponse.ok("Item added to cart successfully", Map.of("cartItem", cartItem.get())));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(404).body(ApiResponse.error(e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(400).body(ApiResponse.error("Insufficient stock"));
         } catch (Exception e) {
-            response.put("success", false);
-            response.put("message", "Error adding item to cart: " + e.getMessage());
-            return ResponseEntity.status(500).body(response);
+            return ResponseEntity.status(500).body(ApiResponse.error("Error adding item to cart: " + e.getMessage()));
         }
     }
 
     @PutMapping("/{cartItemId}")
-    public ResponseEntity<Map<String, Object>> updateCartItem(
-            @RequestHeader(value = "Authorization", required = false) String auth,
+    public ResponseEntity<ApiResponse<Map<String, CartView.Line>>> updateCartItem(
+            @AuthenticationPrincipal AuthenticatedUser principal,
             @PathVariable String cartItemId,
             @RequestBody Map<String, Object> requestBody) {
-        Map<String, Object> response = new HashMap<>();
-        
         try {
-            if (auth == null || !auth.startsWith("Bearer ")) {
-                response.put("success", false);
-                response.put("message", "No token provided");
-                return ResponseEntity.status(401).body(response);
-            }
-
-            String token = auth.replace("Bearer ", "");
-            String userId = jwtUtil.getUserIdFromToken(token);
-            User user = userRepository.findById(userId).orElse(null);
-            
-            if (user == null) {
-                response.put("success", false);
-                response.put("message", "User not found");
-                return ResponseEntity.status(404).body(response);
-            }
+            String userId = principal.getId();
 
             Integer quantity = (Integer) requestBody.get("quantity");
             if (quantity == null || quantity < 1) {
-                response.put("success", false);
-                response.put("message", "Valid quantity is required");
-                return ResponseEntity.status(400).body(response);
+                return ResponseEntity.status(400).body(ApiResponse.error("Valid quantity is required"));
             }
 
-            CartItem cartItem = cartItemRepository.findById(cartItemId).orElse(null);
-            if (cartItem == null || !cartItem.getUser().getId().equals(userId)) {
-                response.put("success", false);
-                response.put("message", "Cart item not found");
-                return ResponseEntity.status(404).body(response);
+            Optional<CartView.Line> cartItem = cartStore.updateItem(userId, cartItemId, quantity);
+            if (cartItem.isEmpty()) {
+                return ResponseEntity.status(404).body(ApiResponse.error("Cart item not found"));
             }
 
-            if (cartItem.getProduct().getStockQuantity() < quantity) {
-                response.put("success", false);
-                response.put("message", "Insufficient stock");
-                return ResponseEntity.status(400).body(response);
-            }
-
-            cartItem.setQuantity(quantity);
-            CartItem savedItem = cartItemRepository.save(cartItem);
-            
-            response.put("success", true);
-            response.put("data", Map.of("cartItem", savedItem));
-            response.put("message", "Cart item updated successfully");
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(ApiResponse.ok("Cart item updated successfully", Map.of("cartItem", cartItem.get())));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(400).body(ApiResponse.error("Insufficient stock"));
         } catch (Exception e) {
-            response.put("success", false);
-            response.put("message", "Error updating cart item: " + e.getMessage());
-            return ResponseEntity.status(500).body(response);
+            return ResponseEntity.status(500).body(ApiResponse.error("Error updating cart item: " + e.getMessage()));
         }
     }
 
     @DeleteMapping("/{cartItemId}")
-    public ResponseEntity<Map<String, Object>> removeFromCart(
-            @RequestHeader(value = "Authorization", required = false) String auth,
+    public ResponseEntity<ApiResponse<Void>> removeFromCart(
+            @AuthenticationPrincipal AuthenticatedUser principal,
             @PathVariable String cartItemId) {
-        Map<String, Object> response = new HashMap<>();
-        
         try {
-            if (auth == null || !auth.startsWith("Bearer ")) {
-                response.put("success", false);
-                response.put("message", "No token provided");
-                return ResponseEntity.status(401).body(response);
-            }
+            String userId = principal.getId();
 
-            String token = auth.replace("Bearer ", "");
-            String userId = jwtUtil.getUserIdFromToken(token);
-            User user = userRepository.findById(userId).orElse(null);
-            
-            if (user == null) {
-                response.put("success", false);
-                response.put("message", "User not found");
-                return ResponseEntity.status(404).body(response);
+            if (!cartStore.removeItem(userId, cartItemId)) {
+                return ResponseEntity.status(404).body(ApiResponse.error("Cart item not found"));
             }
 
-            CartItem cartItem = cartItemRepository.findById(cartItemId).orElse(null);
-            if (cartItem == null || !cartItem.getUser().getId().equals(userId)) {
-                response.put("success", false);
-                response.put("message", "Cart item not found");
-                return ResponseEntity.status(404).body(response);
-            }
-
-            cartItemRepository.delete(cartItem);
-            
-            response.put("success", true);
-            response.put("message", "Item removed from cart successfully");
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(ApiResponse.message("Item removed from cart successfully"));
         } catch (Exception e) {
-            response.put("success", false);
-            response.put("message", "Error removing item from cart: " + e.getMessage());
-            return ResponseEntity.status(500).body(response);
+            return ResponseEntity.status(500).body(ApiResponse.error("Error removing item from cart: " + e.getMessage()));
         }
     }
 
     @DeleteMapping
-    public ResponseEntity<Map<String, Object>> clearCart(@RequestHeader(value = "Authorization", required = false) String auth) {
-        Map<String, Object> response = new HashMap<>();
-        
+    public ResponseEntity<ApiResponse<Void>> clearCart(@AuthenticationPrincipal AuthenticatedUser principal) {
         try {
-            if (auth == null || !auth.startsWith("Bearer ")) {
-                response.put("success", false);
-                response.put("message", "No token provided");
-                return ResponseEntity.status(401).body(response);
-            }
+            String userId = principal.getId();
 
-            String token = auth.replace("Bearer ", "");
-            String userId = jwtUtil.getUserIdFromToken(token);
-            User user = userRepository.findById(userId).orElse(null);
-            
-            if (user == null) {
-                response.put("success", false);
-                response.put("message", "User not found");
-                return ResponseEntity.status(404).body(response);
-            }
+            cartStore.clear(userId);
 
-            cartItemRepository.deleteByUser(user);
-            
-            response.put("success", true);
-            response.put("message", "Cart cleared successfully");
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(ApiResponse.message("Cart cleared successfully"));
         } catch (Exception e) {
-            response.put("success", false);
-            response.put("message", "Error clearing cart: " + e.getMessage());
-            return ResponseEntity.status(500).body(response);
+            return ResponseEntity.status(500).body(ApiResponse.error("Error clearing cart: " + e.getMessage()));
         }
     }
 }
@@ -1,337 +1,377 @@
 package com.customo.backend.controller;
 
+import com.customo.backend.dto.ApiResponse;
+import com.customo.backend.dto.CursorPage;
 import com.customo.backend.dto.DeviceDto;
+import com.customo.backend.dto.FleetSummaryDto;
+import com.customo.backend.dto.PageResponse;
+import com.customo.backend.dto.TelemetryBatchRequest;
+import com.customo.backend.dto.TelemetryBatchResult;
 import com.customo.backend.entity.Device;
+import com.customo.backend.security.AuthenticatedUser;
+import com.customo.backend.service.DeviceEventBus;
+import com.customo.backend.service.DeviceFleetSummary;
 import com.customo.backend.service.DeviceService;
-import com.customo.backend.util.JwtUtil;
+import com.customo.backend.service.ResourceVersions;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.HashMap;
+import java.time.Instant;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/devices")
 @CrossOrigin(origins = {"http://localhost:5173", "http://localhost:3000", "http://localhost:8080"})
 public class DeviceController {
 
+    // Per-user data that changes often: cache privately, revalidate every time
+    private static final CacheControl DEVICE_CACHE = CacheControl.noCache().cachePrivate();
+
     @Autowired
     private DeviceService deviceService;
 
     @Autowired
-    private JwtUtil jwtUtil;
+    private ResourceVersions resourceVersions;
+
+    @Autowired
+    private DeviceEventBus deviceEventBus;
+
+    @Autowired
+    private DeviceFleetSummary deviceFleetSummary;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${devices.telemetry.max-batch-size:5000}")
+    private int maxTelemetryBatchSize;
+
+    @Value("${devices.page.max-size:200}")
+    private int maxPageSize;
+
+    @Value("${devices.logs.list-max-limit:50}")
+    private int maxListLogLimit;
 
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getUserDevices(
-            @RequestHeader(value = "Authorization", required = false) String auth,
+    public ResponseEntity<ApiResponse<PageResponse<DeviceDto>>> getUserDevices(
+            @AuthenticationPrincipal AuthenticatedUser principal,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
             @RequestParam(required = false) String search,
-            @RequestParam(required = false) String status) {
-        
-        Map<String, Object> response = new HashMap<>();
-        
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String include,
+            @RequestParam(defaultValue = "5") int logLimit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean count,
+            WebRequest webRequest) {
         try {
-            if (auth == null || !auth.startsWith("Bearer ")) {
-                response.put("success", false);
-                response.put("message", "No token provided");
-                return ResponseEntity.status(401).body(response);
+            String userId = principal.getId();
+            if (webRequest.checkNotModified(resourceVersions.deviceTag(userId))) {
+                return ResponseEntity.status(304).cacheControl(DEVICE_CACHE).build();
+            }
+            // List views carry no logs unless asked for with include=logs
+            int logs = include != null && Arrays.asList(include.split(",")).contains("logs")
+                    ? Math.max(0, Math.min(logLimit, maxListLogLimit)) : 0;
+            
+            // Passing a cursor (empty for the first page) switches to keyset pagination
+            if (cursor != null) {
+                try {
+                    Device.DeviceStatus deviceStatus = status != null && !status.trim().isEmpty()
+                            ? Device.DeviceStatus.valueOf(status.toUpperCase()) : null;
+                    String searchTerm = search != null && !search.trim().isEmpty() ? search : null;
+                    CursorPage<DeviceDto> devices = deviceService.getUserDevicesPage(
+                            userId, deviceStatus, searchTerm, cursor, clampPageSize(size), count, logs);
+                    return ResponseEntity.ok().cacheControl(DEVICE_CACHE).body(ApiResponse.ok(PageResponse.of("devices", devices)));
+                } catch (IllegalArgumentException e) {
+                    return ResponseEntity.status(400).body(ApiResponse.error("Invalid status or cursor"));
+                }
             }
-
-            String token = auth.replace("Bearer ", "");
-            String userId = jwtUtil.getUserIdFromToken(token);
             
             if (search != null && !search.trim().isEmpty()) {
-                List<DeviceDto> devices = deviceService.searchUserDevices(userId, search);
-                response.put("success", true);
-                response.put("data", Map.of(
-                    "devices", devices,
-                    "totalElements", devices.size(),
-                    "totalPages", 1,
-                    "currentPage", 0,
-                    "size", devices.size()
-                ));
-                return ResponseEntity.ok(response);
+                Page<DeviceDto> devices = deviceService.searchUserDevices(userId, search, PageRequest.of(page, size), logs);
+                return ResponseEntity.ok().cacheControl(DEVICE_CACHE).body(ApiResponse.ok(PageResponse.of("devices", devices)));
             } else if (status != null && !status.trim().isEmpty()) {
                 try {
                     Device.DeviceStatus deviceStatus = Device.DeviceStatus.valueOf(status.toUpperCase());
-                    List<DeviceDto> devices = deviceService.getUserDevicesByStatus(userId, deviceStatus);
-                    response.put("success", true);
-                    response.put("data", Map.of(
-                        "devices", devices,
-                        "totalElements", devices.size(),
-                        "totalPages", 1,
-                        "currentPage", 0,
-                        "size", devices.size()
-                    ));
-                    return ResponseEntity.ok(response);
+                    List<DeviceDto> devices = deviceService.getUserDevicesByStatus(userId, deviceStatus, logs);
+                    return ResponseEntity.ok().cacheControl(DEVICE_CACHE).body(ApiResponse.ok(PageResponse.of("devices", devices)));
                 } catch (IllegalArgumentException e) {
-                    response.put("success", false);
-                    response.put("message", "Invalid status value");
-                    return ResponseEntity.status(400).body(response);
+                    return ResponseEntity.status(400).body(ApiResponse.error("Invalid status value"));
                 }
             } else {
                 Pageable pageable = PageRequest.of(page, size);
-                Page<DeviceDto> devices = deviceService.getUserDevices(userId, pageable);
-                
-                response.put("success", true);
-                response.put("data", Map.of(
-                    "devices", devices.getContent(),
-                    "totalElements", devices.getTotalElements(),
-                    "totalPages", devices.getTotalPages(),
-                    "currentPage", devices.getNumber(),
-                    "size", devices.getSize()
-                ));
-                
-                return ResponseEntity.ok(response);
+                Page<DeviceDto> devices = deviceService.getUserDevices(userId, pageable, logs);
+                return ResponseEntity.ok().cacheControl(DEVICE_CACHE).body(ApiResponse.ok(PageResponse.of("devices", devices)));
             }
         } catch (Exception e) {
-            response.put("success", false);
-            response.put("message", "Error fetching devices: " + e.getMessage());
-            return ResponseEntity.status(500).body(response);
+            return ResponseEntity.status(500).body(ApiResponse.error("Error fetching devices: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Server-sent events for the user's device changes. EventSource cannot set
+     * headers, so JwtAuthenticationFilter also takes the token from the
+     * access_token parameter here. EventSource ignores error bodies, so
+     * failures are reported by status only.
+     */
+    @GetMapping("/stream")
+    public ResponseEntity<SseEmitter> streamDeviceEvents(@AuthenticationPrincipal AuthenticatedUser principal) {
+        try {
+            return ResponseEntity.ok(deviceEventBus.subscribe(principal.getId()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(429).build();
         }
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Map<String, Object>> getUserDevice(
-            @RequestHeader(value = "Authorization", required = false) String auth,
-            @PathVariable String id) {
-        Map<String, Object> response = new HashMap<>();
-        
+    public ResponseEntity<ApiResponse<Map<String, DeviceDto>>> getUserDevice(
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            @PathVariable String id,
+            WebRequest webRequest) {
         try {
-            if (auth == null || !auth.startsWith("Bearer ")) {
-                response.put("success", false);
-                response.put("message", "No token provided");
-                return ResponseEntity.status(401).body(response);
+            String userId = principal.getId();
+            if (webRequest.checkNotModified(resourceVersions.deviceTag(userId))) {
+                return ResponseEntity.status(304).cacheControl(DEVICE_CACHE).build();
             }
-
-            String token = auth.replace("Bearer ", "");
-            String userId = jwtUtil.getUserIdFromToken(token);
             
-            return deviceService.getUserDevice(userId, id)
-                    .map(device -> {
-                        response.put("success", true);
-                        response.put("data", Map.of("device", device));
-                        return ResponseEntity.ok(response);
-                    })
-                    .orElseGet(() -> {
-                        response.put("success", false);
-                        response.put("message", "Device not found");
-                        return ResponseEntity.status(404).body(response);
-                    });
+            Optional<DeviceDto> device = deviceService.getUserDevice(userId, id);
+            if (device.isEmpty()) {
+                return ResponseEntity.status(404).body(ApiResponse.error("Device not found"));
+            }
+            return ResponseEntity.ok().cacheControl(DEVICE_CACHE).body(ApiResponse.ok(Map.of("device", device.get())));
         } catch (Exception e) {
-            response.put("success", false);
-            response.put("message", "Error fetching device: " + e.getMessage());
-            return ResponseEntity.status(500).body(response);
+            return ResponseEntity.status(500).body(ApiResponse.error("Error fetching device: " + e.getMessage()));
         }
     }
 
     @PostMapping
-    public ResponseEntity<Map<String, Object>> createDevice(
-            @RequestHeader(value = "Authorization", required = false) String auth,
+    public ResponseEntity<ApiResponse<Map<String, DeviceDto>>> createDevice(
+            @AuthenticationPrincipal AuthenticatedUser principal,
             @Valid @RequestBody DeviceDto deviceDto) {
-        Map<String, Object> response = new HashMap<>();
-        
         try {
-            if (auth == null || !auth.startsWith("Bearer ")) {
-                response.put("success", false);
-                response.put("message", "No token provided");
-                return ResponseEntity.status(401).body(response);
-            }
-
-            String token = auth.replace("Bearer ", "");
-            String userId = jwtUtil.getUserIdFromToken(token);
+            String userId = principal.getId();
             
             DeviceDto createdDevice = deviceService.createDevice(userId, deviceDto);
-            response.put("success", true);
-            response.put("data", Map.of("device", createdDevice));
-            response.put("message", "Device created successfully");
-            return ResponseEntity.status(201).body(response);
+            return ResponseEntity.status(201).body(ApiResponse.ok("Device created successfully", Map.of("device", createdDevice)));
         } catch (Exception e) {
-            response.put("success", false);
-            response.put("message", "Error creating device: " + e.getMessage());
-            return ResponseEntity.status(400).body(response);
+            return ResponseEntity.status(400).body(ApiResponse.error("Error creating device: " + e.getMessage()));
         }
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<Map<String, Object>> updateDevice(
-            @RequestHeader(value = "Authorization", required = false) String auth,
+    public ResponseEntity<ApiResponse<Map<String, DeviceDto>>> updateDevice(
+            @AuthenticationPrincipal AuthenticatedUser principal,
             @PathVariable String id,
             @Valid @RequestBody DeviceDto deviceDto) {
-        Map<String, Object> response = new HashMap<>();
-        
         try {
-            if (auth == null || !auth.startsWith("Bearer ")) {
-                response.put("success", false);
-                response.put("message", "No token provided");
-                return ResponseEntity.status(401).body(response);
-            }
-
-            String token = auth.replace("Bearer ", "");
-            String userId = jwtUtil.getUserIdFromToken(token);
+            String userId = principal.getId();
             
-            return deviceService.updateDevice(userId, id, deviceDto)
-                    .map(device -> {
-                        response.put("success", true);
-                        response.put("data", Map.of("device", device));
-                        response.put("message", "Device updated successfully");
-                        return ResponseEntity.ok(response);
-                    })
-                    .orElseGet(() -> {
-                        response.put("success", false);
-                        response.put("message", "Device not found");
-                        return ResponseEntity.status(404).body(response);
-                    });
+            Optional<DeviceDto> device = deviceService.updateDevice(userId, id, deviceDto);
+            if (device.isEmpty()) {
+                return ResponseEntity.status(404).body(ApiResponse.error("Device not found"));
+            }
+            return ResponseEntity.ok(ApiResponse.ok("Device updated successfully", Map.of("device", device.get())));
         } catch (Exception e) {
-            response.put("success", false);
-            response.put("message", "Error updating device: " + e.getMessage());
-            return ResponseEntity.status(400).body(response);
+            return ResponseEntity.status(400).body(ApiResponse.error("Error updating device: " + e.getMessage()));
         }
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<Map<String, Object>> deleteDevice(
-            @RequestHeader(value = "Authorization", required = false) String auth,
+    public ResponseEntity<ApiResponse<Void>> deleteDevice(
+            @AuthenticationPrincipal AuthenticatedUser principal,
             @PathVariable String id) {
-        Map<String, Object> response = new HashMap<>();
-        
         try {
-            if (auth == null || !auth.startsWith("Bearer ")) {
-                response.put("success", false);
-                response.put("message", "No token provided");
-                return ResponseEntity.status(401).body(response);
-            }
-
-            String token = auth.replace("Bearer ", "");
-            String userId = jwtUtil.getUserIdFromToken(token);
+            String userId = principal.getId();
             
             boolean deleted = deviceService.deleteDevice(userId, id);
             if (deleted) {
-                response.put("success", true);
-                response.put("message", "Device deleted successfully");
-                return ResponseEntity.ok(response);
+                return ResponseEntity.ok(ApiResponse.message("Device deleted successfully"));
             } else {
-                response.put("success", false);
-                response.put("message", "Device not found");
-                return ResponseEntity.status(404).body(response);
+                return ResponseEntity.status(404).body(ApiResponse.error("Device not found"));
             }
         } catch (Exception e) {
-            response.put("success", false);
-            response.put("message", "Error deleting device: " + e.getMessage());
-            return ResponseEntity.status(500).body(response);
+            return ResponseEntity.status(500).body(ApiResponse.error("Error deleting device: " + e.getMessage()));
         }
     }
 
     @PutMapping("/{id}/status")
-    public ResponseEntity<Map<String, Object>> updateDeviceStatus(
-            @RequestHeader(value = "Authorization", required = false) String auth,
+    public ResponseEntity<ApiResponse<Map<String, DeviceDto>>> updateDeviceStatus(
+            @AuthenticationPrincipal AuthenticatedUser principal,
             @PathVariable String id,
             @RequestBody Map<String, String> requestBody) {
-        Map<String, Object> response = new HashMap<>();
-        
         try {
-            if (auth == null || !auth.startsWith("Bearer ")) {
-                response.put("success", false);
-                response.put("message", "No token provided");
-                return ResponseEntity.status(401).body(response);
-            }
-
-            String token = auth.replace("Bearer ", "");
-            String userId = jwtUtil.getUserIdFromToken(token);
+            String userId = principal.getId();
             
             String statusStr = requestBody.get("status");
             if (statusStr == null) {
-                response.put("success", false);
-                response.put("message", "Status is required");
-                return ResponseEntity.status(400).body(response);
+                return ResponseEntity.status(400).body(ApiResponse.error("Status is required"));
             }
 
             Device.DeviceStatus status = Device.DeviceStatus.valueOf(statusStr.toUpperCase());
             DeviceDto updatedDevice = deviceService.updateDeviceStatus(userId, id, status);
             
-            response.put("success", true);
-            response.put("data", Map.of("device", updatedDevice));
-            response.put("message", "Device status updated successfully");
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(ApiResponse.ok("Device status updated successfully", Map.of("device", updatedDevice)));
         } catch (IllegalArgumentException e) {
-            response.put("success", false);
-            response.put("message", "Invalid status value");
-            return ResponseEntity.status(400).body(response);
+            return ResponseEntity.status(400).body(ApiResponse.error("Invalid status value"));
         } catch (Exception e) {
-            response.put("success", false);
-            response.put("message", "Error updating device status: " + e.getMessage());
-            return ResponseEntity.status(500).body(response);
+            return ResponseEntity.status(500).body(ApiResponse.error("Error updating device status: " + e.getMessage()));
         }
     }
 
     @PutMapping("/{id}/battery")
-    public ResponseEntity<Map<String, Object>> updateDeviceBattery(
-            @RequestHeader(value = "Authorization", required = false) String auth,
+    public ResponseEntity<ApiResponse<Map<String, DeviceDto>>> updateDeviceBattery(
+            @AuthenticationPrincipal AuthenticatedUser principal,
             @PathVariable String id,
             @RequestBody Map<String, Integer> requestBody) {
-        Map<String, Object> response = new HashMap<>();
-        
         try {
-            if (auth == null || !auth.startsWith("Bearer ")) {
-                response.put("success", false);
-                response.put("message", "No token provided");
-                return ResponseEntity.status(401).body(response);
-            }
-
-            String token = auth.replace("Bearer ", "");
-            String userId = jwtUtil.getUserIdFromToken(token);
+            String userId = principal.getId();
             
             Integer battery = requestBody.get("battery");
             if (battery == null || battery < 0 || battery > 100) {
-                response.put("success", false);
-                response.put("message", "Valid battery level (0-100) is required");
-                return ResponseEntity.status(400).body(response);
+                return ResponseEntity.status(400).body(ApiResponse.error("Valid battery level (0-100) is required"));
             }
 
             DeviceDto updatedDevice = deviceService.updateDeviceBattery(userId, id, battery);
             
-            response.put("success", true);
-            response.put("data", Map.of("device", updatedDevice));
-            response.put("message", "Device battery updated successfully");
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(ApiResponse.ok("Device battery updated successfully", Map.of("device", updatedDevice)));
         } catch (Exception e) {
-            response.put("success", false);
-            response.put("message", "Error updating device battery: " + e.getMessage());
-            return ResponseEntity.status(500).body(response);
+            return ResponseEntity.status(500).body(ApiResponse.error("Error updating device battery: " + e.getMessage()));
         }
     }
 
-    @GetMapping("/low-battery")
-    public ResponseEntity<Map<String, Object>> getLowBatteryDevices(
-            @RequestHeader(value = "Authorization", required = false) String auth,
-            @RequestParam(defaultValue = "20") Integer threshold) {
-        Map<String, Object> response = new HashMap<>();
-        
+    @PostMapping("/telemetry:batch")
+    public ResponseEntity<ApiResponse<TelemetryBatchResult>> ingestTelemetry(
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            @Valid @RequestBody TelemetryBatchRequest batchRequest) {
         try {
-            if (auth == null || !auth.startsWith("Bearer ")) {
-                response.put("success", false);
-                response.put("message", "No token provided");
-                return ResponseEntity.status(401).body(response);
+            String userId = principal.getId();
+            
+            if (batchRequest.getReadings().size() > maxTelemetryBatchSize) {
+                return ResponseEntity.status(413).body(ApiResponse.error("Batch exceeds the maximum of " + maxTelemetryBatchSize + " readings"));
             }
 
-            String token = auth.replace("Bearer ", "");
-            String userId = jwtUtil.getUserIdFromToken(token);
+            TelemetryBatchResult result = deviceService.ingestTelemetry(userId, batchRequest.getReadings());
+            
+            return ResponseEntity.ok(ApiResponse.ok("Telemetry batch processed", result));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(ApiResponse.error("Error processing telemetry batch: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/logs")
+    public ResponseEntity<ApiResponse<PageResponse<DeviceDto.DeviceLogDto>>> getUserLogs(
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(defaultValue = "false") boolean count,
+            WebRequest webRequest) {
+        return logsPage(principal.getId(), null, cursor, size, count, webRequest);
+    }
+
+    @GetMapping("/{id}/logs")
+    public ResponseEntity<ApiResponse<PageResponse<DeviceDto.DeviceLogDto>>> getDeviceLogs(
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            @PathVariable String id,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size,
+            WebRequest webRequest) {
+        return logsPage(principal.getId(), id, cursor, size, false, webRequest);
+    }
+
+    @GetMapping("/logs/export")
+    public ResponseEntity<StreamingResponseBody> exportLogs(
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            @RequestParam Instant from,
+            @RequestParam Instant to) {
+        try {
+            String userId = principal.getId();
+            
+            if (!from.isBefore(to)) {
+                return jsonBody(400, ApiResponse.error("'from' must be before 'to'"));
+            }
+
+            StreamingResponseBody body = out -> deviceService.exportUserLogs(userId, from, to, out);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                    .body(body);
+        } catch (Exception e) {
+            return jsonBody(500, ApiResponse.error("Error exporting device logs: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/summary")
+    public ResponseEntity<ApiResponse<FleetSummaryDto>> getFleetSummary(
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            WebRequest webRequest) {
+        try {
+            String userId = principal.getId();
+            if (webRequest.checkNotModified(resourceVersions.deviceTag(userId))) {
+                return ResponseEntity.status(304).cacheControl(DEVICE_CACHE).build();
+            }
+            
+            return ResponseEntity.ok().cacheControl(DEVICE_CACHE).body(ApiResponse.ok(deviceFleetSummary.getSummary(userId)));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(ApiResponse.error("Error fetching fleet summary: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/low-battery")
+    public ResponseEntity<ApiResponse<Map<String, List<DeviceDto>>>> getLowBatteryDevices(
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            @RequestParam(defaultValue = "20") Integer threshold,
+            WebRequest webRequest) {
+        try {
+            String userId = principal.getId();
+            if (webRequest.checkNotModified(resourceVersions.deviceTag(userId))) {
+                return ResponseEntity.status(304).cacheControl(DEVICE_CACHE).build();
+            }
             
             List<DeviceDto> devices = deviceService.getLowBatteryDevices(userId, threshold);
-            response.put("success", true);
-            response.put("data", Map.of("devices", devices));
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().cacheControl(DEVICE_CACHE).body(ApiResponse.ok(Map.of("devices", devices)));
         } catch (Exception e) {
-            response.put("success", false);
-            response.put("message", "Error fetching low battery devices: " + e.getMessage());
-            return ResponseEntity.status(500).body(response);
+            return ResponseEntity.status(500).body(ApiResponse.error("Error fetching low battery devices: " + e.getMessage()));
         }
     }
-}
\ No newline at end of file
+
+    // Streaming endpoints must declare a StreamingResponseBody, so errors are written through one too
+    private ResponseEntity<StreamingResponseBody> jsonBody(int status, ApiResponse<?> response) {
+        return ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> objectMapper.writeValue(out, response));
+    }
+
+    private ResponseEntity<ApiResponse<PageResponse<DeviceDto.DeviceLogDto>>> logsPage(
+            String userId, String deviceId, String cursor, int size, boolean count, WebRequest webRequest) {
+        try {
+            if (webRequest.checkNotModified(resourceVersions.deviceTag(userId))) {
+                return ResponseEntity.status(304).cacheControl(DEVICE_CACHE).build();
+            }
+            
+            CursorPage<DeviceDto.DeviceLogDto> logs = deviceService.getUserLogsPage(userId, deviceId, cursor, clampPageSize(size), count);
+            return ResponseEntity.ok().cacheControl(DEVICE_CACHE).body(ApiResponse.ok(PageResponse.of("logs", logs)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(400).body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(ApiResponse.error("Error fetching device logs: " + e.getMessage()));
+        }
+    }
+
+    private int clampPageSize(int size) {
+        return Math.max(1, Math.min(size, maxPageSize));
+    }
+}
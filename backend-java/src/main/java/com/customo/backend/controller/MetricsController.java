@@ -0,0 +1,100 @@
+package com.customo.backend.controller;
+
+import com.customo.backend.config.RequestBulkheads;
+import com.customo.backend.dto.ApiResponse;
+import com.customo.backend.security.AuthenticatedUserCache;
+import com.customo.backend.security.LoginThrottle;
+import com.customo.backend.security.PasswordHasher;
+import com.customo.backend.service.CartStore;
+import com.customo.backend.service.CatalogSnapshot;
+import com.customo.backend.service.DeviceEventBus;
+import com.customo.backend.service.DeviceLivenessTracker;
+import com.customo.backend.service.DeviceLogAppender;
+import com.customo.backend.service.DeviceStateBuffer;
+import com.customo.backend.service.OrderRollups;
+import com.customo.backend.service.ProductCatalogCache;
+import com.customo.backend.service.ResourceVersions;
+import com.customo.backend.service.StockReservationService;
+import com.customo.backend.service.TokenRevocations;
+import com.customo.backend.util.JwtUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/metrics")
+public class MetricsController {
+
+    @Autowired
+    private DeviceLogAppender deviceLogAppender;
+
+    @Autowired
+    private DeviceStateBuffer deviceStateBuffer;
+
+    @Autowired
+    private DeviceEventBus deviceEventBus;
+
+    @Autowired
+    private DeviceLivenessTracker deviceLivenessTracker;
+
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+
+    @Autowired
+    private CatalogSnapshot catalogSnapshot;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Autowired
+    private OrderRollups orderRollups;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private TokenRevocations tokenRevocations;
+
+    @Autowired
+    private AuthenticatedUserCache authenticatedUserCache;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    @Autowired
+    private RequestBulkheads requestBulkheads;
+
+    @Autowired
+    private LoginThrottle loginThrottle;
+
+    @GetMapping
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("deviceLogs", deviceLogAppender.getMetrics());
+        metrics.put("deviceStateBuffer", Map.of("pending", deviceStateBuffer.getPendingCount()));
+        metrics.put("deviceStream", deviceEventBus.getMetrics());
+        metrics.put("deviceLiveness", deviceLivenessTracker.getMetrics());
+        metrics.put("catalogCache", productCatalogCache.getStats());
+        metrics.put("catalogSnapshot", catalogSnapshot.getMetrics());
+        metrics.put("etags", resourceVersions.getMetrics());
+        metrics.put("stockReservations", stockReservationService.getMetrics());
+        metrics.put("cartStore", cartStore.getMetrics());
+        metrics.put("orderRollups", orderRollups.getMetrics());
+        metrics.put("authTokens", Map.of("cache", jwtUtil.getCacheStats(), "revocations", tokenRevocations.getMetrics()));
+        metrics.put("principals", authenticatedUserCache.getStats());
+        metrics.put("bulkheads", requestBulkheads.getMetrics());
+        metrics.put("passwords", Map.of("hasher", passwordHasher.getMetrics(), "loginThrottle", loginThrottle.getMetrics()));
+        return ResponseEntity.ok(ApiResponse.ok(metrics));
+    }
+}
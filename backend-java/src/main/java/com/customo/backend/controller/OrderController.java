@@ -0,0 +1,157 @@
+package com.customo.backend.controller;
+
+import com.customo.backend.dto.ApiResponse;
+import com.customo.backend.dto.CheckoutRequest;
+import com.customo.backend.dto.OrderAnalyticsDto;
+import com.customo.backend.dto.OrderDto;
+import com.customo.backend.entity.Order;
+import com.customo.backend.security.AuthenticatedUser;
+import com.customo.backend.service.CartStore;
+import com.customo.backend.service.OrderRollups;
+import com.customo.backend.service.OrderService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/orders")
+@CrossOrigin(origins = {"http://localhost:5173", "http://localhost:3000", "http://localhost:8080"})
+public class OrderController {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Autowired
+    private OrderRollups orderRollups;
+
+    /**
+     * Places an order for the contents of the cart. A retry carrying the same
+     * Idempotency-Key returns the order placed by the first attempt.
+     */
+    @PostMapping("/checkout")
+    public ResponseEntity<ApiResponse<Map<String, OrderDto>>> checkout(
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @Valid @RequestBody(required = false) CheckoutRequest checkoutRequest) {
+        try {
+            String userId = principal.getId();
+
+            if (idempotencyKey != null && (idempotencyKey.isBlank() || idempotencyKey.length() > 100)) {
+                return ResponseEntity.status(400).body(ApiResponse.error("Idempotency-Key must be 1 to 100 characters"));
+            }
+
+            if (idempotencyKey != null) {
+                Optional<OrderDto> placed = orderService.findByIdempotencyKey(userId, idempotencyKey);
+                if (placed.isPresent()) {
+                    return replayed(placed.get());
+                }
+            }
+
+            CheckoutRequest request = checkoutRequest != null ? checkoutRequest : new CheckoutRequest();
+            OrderDto order;
+            try {
+                order = cartStore.checkout(userId, () -> orderService.checkout(userId, idempotencyKey, request));
+            } catch (DataIntegrityViolationException e) {
+                // A concurrent attempt with the same key committed first
+                Optional<OrderDto> placed = idempotencyKey != null
+                        ? orderService.findByIdempotencyKey(userId, idempotencyKey) : Optional.empty();
+                if (placed.isEmpty()) throw e;
+                return replayed(placed.get());
+            }
+
+            return ResponseEntity.status(201).body(ApiResponse.ok("Order placed successfully", Map.of("order", order)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(400).body(ApiResponse.error(e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(400).body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(ApiResponse.error("Error placing order: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Moves an order to another status. Admins only (SecurityConfig).
+     */
+    @PutMapping("/{orderId}/status")
+    public ResponseEntity<ApiResponse<Map<String, OrderDto>>> updateStatus(
+            @PathVariable String orderId,
+            @RequestBody Map<String, String> body) {
+        try {
+            String status = body.get("status");
+            if (status == null || status.isBlank()) {
+                return ResponseEntity.status(400).body(ApiResponse.error("Status is required"));
+            }
+
+            Optional<OrderDto> order = orderService.updateStatus(orderId, parseStatus(status));
+            if (order.isEmpty()) {
+                return ResponseEntity.status(404).body(ApiResponse.error("Order not found"));
+            }
+
+            return ResponseEntity.ok(ApiResponse.ok("Order status updated", Map.of("order", order.get())));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(400).body(ApiResponse.error(e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(ApiResponse.error("Error updating order status: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Orders, revenue and items sold per status for [from, to), summed from
+     * the order rollups, with the best selling products. Admins only (SecurityConfig).
+     */
+    @GetMapping("/analytics")
+    public ResponseEntity<ApiResponse<OrderAnalyticsDto>> getAnalytics(
+            @RequestParam Instant from,
+            @RequestParam Instant to,
+            @RequestParam(required = false) String status,
+            @RequestParam(defaultValue = "10") int productLimit) {
+        try {
+            return ResponseEntity.ok(ApiResponse.ok(orderRollups.query(from, to, status != null ? parseStatus(status) : null, productLimit)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(400).body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(ApiResponse.error("Error fetching order analytics: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Recomputes the order rollups of the days touching [from, to) from the
+     * orders; everything when no bounds are given. Admins only (SecurityConfig).
+     */
+    @PostMapping("/analytics/rebuild")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> rebuildAnalytics(
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to) {
+        try {
+            return ResponseEntity.ok(ApiResponse.ok("Order analytics rebuilt", orderRollups.rebuild(from, to)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(400).body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(ApiResponse.error("Error rebuilding order analytics: " + e.getMessage()));
+        }
+    }
+
+    private static Order.OrderStatus parseStatus(String status) {
+        try {
+            return Order.OrderStatus.valueOf(status.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid status: " + status);
+        }
+    }
+
+    private ResponseEntity<ApiResponse<Map<String, OrderDto>>> replayed(OrderDto order) {
+        return ResponseEntity.ok(ApiResponse.ok("Order already placed", Map.of("order", order)));
+    }
+}
@@ -1,199 +1,216 @@
 package com.customo.backend.controller;
 
+import com.customo.backend.dto.ApiResponse;
+import com.customo.backend.dto.PageResponse;
 import com.customo.backend.dto.ProductDto;
+import com.customo.backend.dto.ProductFilter;
+import com.customo.backend.service.CatalogSnapshot;
+import com.customo.backend.service.ProductFacetIndex;
 import com.customo.backend.service.ProductService;
+import com.customo.backend.service.ResourceVersions;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/products")
 @CrossOrigin(origins = {"http://localhost:5173", "http://localhost:3000", "http://localhost:8080"})
 public class ProductController {
 
+    // Catalog data is the same for every user and changes rarely
+    private static final CacheControl LIST_CACHE = CacheControl.maxAge(Duration.ofSeconds(60)).cachePublic();
+    private static final CacheControl FACET_CACHE = CacheControl.maxAge(Duration.ofMinutes(5)).cachePublic();
+
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Autowired
+    private CatalogSnapshot catalogSnapshot;
+
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getAllProducts(
+    public ResponseEntity<ApiResponse<PageResponse<ProductDto>>> getAllProducts(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
             @RequestParam(required = false) String search,
-            @RequestParam(required = false) String category,
-            @RequestParam(required = false) String brand) {
-        
-        Map<String, Object> response = new HashMap<>();
+            @RequestParam(required = false) List<String> category,
+            @RequestParam(required = false) List<String> brand,
+            @RequestParam(required = false) List<String> priceRange,
+            @RequestParam(required = false) Integer minRating,
+            @RequestParam(required = false) Boolean inStock,
+            @RequestParam(defaultValue = "false") boolean facets,
+            WebRequest webRequest,
+            HttpServletResponse httpResponse) {
         
+        // Stock moves leave the catalog tag alone, so what depends on availability gets the stock version too
+        boolean byStock = facets || inStock != null;
+        if (webRequest.checkNotModified(weak(byStock ? resourceVersions.catalogStockTag() : resourceVersions.catalogTag()))) {
+            return ResponseEntity.status(304).cacheControl(LIST_CACHE).build();
+        }
+
         try {
             Pageable pageable = PageRequest.of(page, size);
             Page<ProductDto> products;
-            
-            if (search != null && !search.trim().isEmpty()) {
+
+            ProductFilter filter = new ProductFilter();
+            filter.setCategories(category);
+            filter.setBrands(brand);
+            filter.setPriceRanges(priceRange);
+            filter.setMinRating(minRating);
+            filter.setInStock(inStock);
+
+            boolean searching = search != null && !search.trim().isEmpty();
+            if (!searching && !facets && filter.isEmpty()) {
+                CatalogSnapshot.Body body = catalogSnapshot.page(page, size);
+                if (body != null) return writeSnapshot(body, LIST_CACHE, httpResponse);
+            }
+
+            if (facets || !filter.isEmpty()) {
+                ProductFacetIndex.FacetResult result = productService.filterProducts(filter, search, pageable);
+                products = new PageImpl<>(result.getProducts(), pageable, result.getTotal());
+                return ResponseEntity.ok().cacheControl(LIST_CACHE)
+                        .body(ApiResponse.ok(PageResponse.of("products", products).withFacets(result.getFacets())));
+            } else if (searching) {
                 products = productService.searchProducts(search, pageable);
-            } else if (category != null && !category.trim().isEmpty()) {
-                List<ProductDto> productList = productService.getProductsByCategory(category);
-                response.put("success", true);
-                response.put("data", Map.of(
-                    "products", productList,
-                    "totalElements", productList.size(),
-                    "totalPages", 1,
-                    "currentPage", 0,
-                    "size", productList.size()
-                ));
-                return ResponseEntity.ok(response);
-            } else if (brand != null && !brand.trim().isEmpty()) {
-                List<ProductDto> productList = productService.getProductsByBrand(brand);
-                response.put("success", true);
-                response.put("data", Map.of(
-                    "products", productList,
-                    "totalElements", productList.size(),
-                    "totalPages", 1,
-                    "currentPage", 0,
-                    "size", productList.size()
-                ));
-                return ResponseEntity.ok(response);
             } else {
                 products = productService.getAllProducts(pageable);
             }
-            
-            response.put("success", true);
-            response.put("data", Map.of(
-                "products", products.getContent(),
-                "totalElements", products.getTotalElements(),
-                "totalPages", products.getTotalPages(),
-                "currentPage", products.getNumber(),
-                "size", products.getSize()
-            ));
-            
-            return ResponseEntity.ok(response);
+
+            return ResponseEntity.ok().cacheControl(LIST_CACHE).body(ApiResponse.ok(PageResponse.of("products", products)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(400).body(ApiResponse.error(e.getMessage()));
         } catch (Exception e) {
-            response.put("success", false);
-            response.put("message", "Error fetching products: " + e.getMessage());
-            return ResponseEntity.status(500).body(response);
+            return ResponseEntity.status(500).body(ApiResponse.error("Error fetching products: " + e.getMessage()));
         }
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Map<String, Object>> getProductById(@PathVariable String id) {
-        Map<String, Object> response = new HashMap<>();
-        
+    public ResponseEntity<ApiResponse<Map<String, ProductDto>>> getProductById(@PathVariable String id, WebRequest webRequest,
+                                                                               HttpServletResponse httpResponse) {
+        if (webRequest.checkNotModified(resourceVersions.productTag(id))) {
+            return ResponseEntity.status(304).cacheControl(LIST_CACHE).build();
+        }
+
         try {
-            return productService.getProductById(id)
-                    .map(product -> {
-                        response.put("success", true);
-                        response.put("data", Map.of("product", product));
-                        return ResponseEntity.ok(response);
-                    })
-                    .orElseGet(() -> {
-                        response.put("success", false);
-                        response.put("message", "Product not found");
-                        return ResponseEntity.status(404).body(response);
-                    });
+            CatalogSnapshot.Body body = catalogSnapshot.product(id);
+            if (body != null) return writeSnapshot(body, LIST_CACHE, httpResponse);
+
+            Optional<ProductDto> product = productService.getProductById(id);
+            if (product.isEmpty()) {
+                return ResponseEntity.status(404).body(ApiResponse.error("Product not found"));
+            }
+            return ResponseEntity.ok().cacheControl(LIST_CACHE).body(ApiResponse.ok(Map.of("product", product.get())));
         } catch (Exception e) {
-            response.put("success", false);
-            response.put("message", "Error fetching product: " + e.getMessage());
-            return ResponseEntity.status(500).body(response);
+            return ResponseEntity.status(500).body(ApiResponse.error("Error fetching product: " + e.getMessage()));
         }
     }
 
     @GetMapping("/categories")
-    public ResponseEntity<Map<String, Object>> getCategories() {
-        Map<String, Object> response = new HashMap<>();
-        
+    public ResponseEntity<ApiResponse<Map<String, List<String>>>> getCategories(WebRequest webRequest, HttpServletResponse httpResponse) {
+        if (webRequest.checkNotModified(resourceVersions.catalogTag())) {
+            return ResponseEntity.status(304).cacheControl(FACET_CACHE).build();
+        }
+
         try {
+            CatalogSnapshot.Body body = catalogSnapshot.categories();
+            if (body != null) return writeSnapshot(body, FACET_CACHE, httpResponse);
+
             List<String> categories = productService.getCategories();
-            response.put("success", true);
-            response.put("data", Map.of("categories", categories));
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().cacheControl(FACET_CACHE).body(ApiResponse.ok(Map.of("categories", categories)));
         } catch (Exception e) {
-            response.put("success", false);
-            response.put("message", "Error fetching categories: " + e.getMessage());
-            return ResponseEntity.status(500).body(response);
+            return ResponseEntity.status(500).body(ApiResponse.error("Error fetching categories: " + e.getMessage()));
         }
     }
 
     @GetMapping("/brands")
-    public ResponseEntity<Map<String, Object>> getBrands() {
-        Map<String, Object> response = new HashMap<>();
-        
+    public ResponseEntity<ApiResponse<Map<String, List<String>>>> getBrands(WebRequest webRequest, HttpServletResponse httpResponse) {
+        if (webRequest.checkNotModified(resourceVersions.catalogTag())) {
+            return ResponseEntity.status(304).cacheControl(FACET_CACHE).build();
+        }
+
         try {
+            CatalogSnapshot.Body body = catalogSnapshot.brands();
+            if (body != null) return writeSnapshot(body, FACET_CACHE, httpResponse);
+
             List<String> brands = productService.getBrands();
-            response.put("success", true);
-            response.put("data", Map.of("brands", brands));
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().cacheControl(FACET_CACHE).body(ApiResponse.ok(Map.of("brands", brands)));
         } catch (Exception e) {
-            response.put("success", false);
-            response.put("message", "Error fetching brands: " + e.getMessage());
-            return ResponseEntity.status(500).body(response);
+            return ResponseEntity.status(500).body(ApiResponse.error("Error fetching brands: " + e.getMessage()));
         }
     }
 
     @PostMapping
-    public ResponseEntity<Map<String, Object>> createProduct(@Valid @RequestBody ProductDto productDto) {
-        Map<String, Object> response = new HashMap<>();
-        
+    public ResponseEntity<ApiResponse<Map<String, ProductDto>>> createProduct(@Valid @RequestBody ProductDto productDto) {
         try {
             ProductDto createdProduct = productService.createProduct(productDto);
-            response.put("success", true);
-            response.put("data", Map.of("product", createdProduct));
-            return ResponseEntity.status(201).body(response);
+            return ResponseEntity.status(201).body(ApiResponse.ok(Map.of("product", createdProduct)));
         } catch (Exception e) {
-            response.put("success", false);
-            response.put("message", "Error creating product: " + e.getMessage());
-            return ResponseEntity.status(400).body(response);
+            return ResponseEntity.status(400).body(ApiResponse.error("Error creating product: " + e.getMessage()));
         }
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<Map<String, Object>> updateProduct(@PathVariable String id, @Valid @RequestBody ProductDto productDto) {
-        Map<String, Object> response = new HashMap<>();
-        
+    public ResponseEntity<ApiResponse<Map<String, ProductDto>>> updateProduct(@PathVariable String id, @Valid @RequestBody ProductDto productDto) {
         try {
-            return productService.updateProduct(id, productDto)
-                    .map(product -> {
-                        response.put("success", true);
-                        response.put("data", Map.of("product", product));
-                        return ResponseEntity.ok(response);
-                    })
-                    .orElseGet(() -> {
-                        response.put("success", false);
-                        response.put("message", "Product not found");
-                        return ResponseEntity.status(404).body(response);
-                    });
+            Optional<ProductDto> product = productService.updateProduct(id, productDto);
+            if (product.isEmpty()) {
+                return ResponseEntity.status(404).body(ApiResponse.error("Product not found"));
+            }
+            return ResponseEntity.ok(ApiResponse.ok(Map.of("product", product.get())));
         } catch (Exception e) {
-            response.put("success", false);
-            response.put("message", "Error updating product: " + e.getMessage());
-            return ResponseEntity.status(400).body(response);
+            return ResponseEntity.status(400).body(ApiResponse.error("Error updating product: " + e.getMessage()));
         }
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<Map<String, Object>> deleteProduct(@PathVariable String id) {
-        Map<String, Object> response = new HashMap<>();
-        
+    public ResponseEntity<ApiResponse<Void>> deleteProduct(@PathVariable String id) {
         try {
             boolean deleted = productService.deleteProduct(id);
             if (deleted) {
-                response.put("success", true);
-                response.put("message", "Product deleted successfully");
-                return ResponseEntity.ok(response);
+                return ResponseEntity.ok(ApiResponse.message("Product deleted successfully"));
             } else {
-                response.put("success", false);
-                response.put("message", "Product not found");
-                return ResponseEntity.status(404).body(response);
+                return ResponseEntity.status(404).body(ApiResponse.error("Product not found"));
             }
         } catch (Exception e) {
-            response.put("success", false);
-            response.put("message", "Error deleting product: " + e.getMessage());
-            return ResponseEntity.status(500).body(response);
+            return ResponseEntity.status(500).body(ApiResponse.error("Error deleting product: " + e.getMessage()));
         }
     }
+
+    /**
+     * Listings carry stock quantities, which move without moving the catalog
+     * tag and are served from the page cache or the snapshot for up to
+     * catalog.cache.pages.ttl-ms and catalog.snapshot.max-age-ms. So a list
+     * tag stands for an equivalent list, not the same bytes: it is weak.
+     */
+    private static String weak(String tag) {
+        return "W/\"" + tag + "\"";
+    }
+
+    // Copies a pre-serialized body to the response; returning null tells MVC the response is complete
+    private <T> ResponseEntity<T> writeSnapshot(CatalogSnapshot.Body body, CacheControl cacheControl,
+                                                HttpServletResponse httpResponse) throws IOException {
+        httpResponse.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        httpResponse.setContentLength(body.getLength());
+        httpResponse.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        body.writeTo(httpResponse.getOutputStream());
+        return null;
+    }
 }
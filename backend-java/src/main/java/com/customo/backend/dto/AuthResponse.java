@@ -1,5 +1,9 @@
 package com.customo.backend.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+
 public class AuthResponse {
     public String token;
     public UserDTO user;
@@ -12,5 +16,9 @@ public class AuthResponse {
         public String phone;
         public String company;
         public String role;
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public Instant createdAt;
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public Instant updatedAt;
     }
 }
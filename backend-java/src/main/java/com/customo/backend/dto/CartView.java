@@ -0,0 +1,77 @@
+package com.customo.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+public class CartView {
+    private long lineCount;
+    private long itemCount;
+    private BigDecimal subtotal;
+    // Left out of the badge summary, which carries the totals only
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<Line> cartItems;
+
+    // Constructors
+    public CartView() {}
+
+    public CartView(long lineCount, long itemCount, BigDecimal subtotal) {
+        this.lineCount = lineCount;
+        this.itemCount = itemCount;
+        this.subtotal = subtotal;
+    }
+
+    // Getters and Setters
+    public long getLineCount() { return lineCount; }
+    public void setLineCount(long lineCount) { this.lineCount = lineCount; }
+
+    public long getItemCount() { return itemCount; }
+    public void setItemCount(long itemCount) { this.itemCount = itemCount; }
+
+    public BigDecimal getSubtotal() { return subtotal; }
+    public void setSubtotal(BigDecimal subtotal) { this.subtotal = subtotal; }
+
+    public List<Line> getCartItems() { return cartItems; }
+    public void setCartItems(List<Line> cartItems) { this.cartItems = cartItems; }
+
+    public static class Line {
+        private String id;
+        private String productId;
+        private ProductDto product;
+        private Integer quantity;
+        // Price when the line was created; the product's current price is in product.price
+        private BigDecimal unitPrice;
+        private BigDecimal totalPrice;
+        private Instant createdAt;
+        private Instant updatedAt;
+
+        // Constructors
+        public Line() {}
+
+        // Getters and Setters
+        public String getId() { return id; }
+        public void setId(String id) { this.id = id; }
+
+        public String getProductId() { return productId; }
+        public void setProductId(String productId) { this.productId = productId; }
+
+        public ProductDto getProduct() { return product; }
+        public void setProduct(ProductDto product) { this.product = product; }
+
+        public Integer getQuantity() { return quantity; }
+        public void setQuantity(Integer quantity) { this.quantity = quantity; }
+
+        public BigDecimal getUnitPrice() { return unitPrice; }
+        public void setUnitPrice(BigDecimal unitPrice) { this.unitPrice = unitPrice; }
+
+        public BigDecimal getTotalPrice() { return totalPrice; }
+        public void setTotalPrice(BigDecimal totalPrice) { this.totalPrice = totalPrice; }
+
+        public Instant getCreatedAt() { return createdAt; }
+        public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+
+        public Instant getUpdatedAt() { return updatedAt; }
+        public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+    }
+}
@@ -0,0 +1,45 @@
+package com.customo.backend.dto;
+
+import jakarta.validation.constraints.*;
+
+public class CheckoutRequest {
+    @Size(max = 500, message = "Shipping address must not exceed 500 characters")
+    private String shippingAddress;
+
+    @Size(max = 100, message = "City must not exceed 100 characters")
+    private String city;
+
+    @Size(max = 50, message = "State must not exceed 50 characters")
+    private String state;
+
+    @Size(max = 20, message = "Postal code must not exceed 20 characters")
+    private String postalCode;
+
+    @Size(max = 100, message = "Country must not exceed 100 characters")
+    private String country;
+
+    @Size(max = 1000, message = "Notes must not exceed 1000 characters")
+    private String notes;
+
+    // Constructors
+    public CheckoutRequest() {}
+
+    // Getters and Setters
+    public String getShippingAddress() { return shippingAddress; }
+    public void setShippingAddress(String shippingAddress) { this.shippingAddress = shippingAddress; }
+
+    public String getCity() { return city; }
+    public void setCity(String city) { this.city = city; }
+
+    public String getState() { return state; }
+    public void setState(String state) { this.state = state; }
+
+    public String getPostalCode() { return postalCode; }
+    public void setPostalCode(String postalCode) { this.postalCode = postalCode; }
+
+    public String getCountry() { return country; }
+    public void setCountry(String country) { this.country = country; }
+
+    public String getNotes() { return notes; }
+    public void setNotes(String notes) { this.notes = notes; }
+}
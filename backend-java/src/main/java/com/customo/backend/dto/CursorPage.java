@@ -0,0 +1,34 @@
+package com.customo.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.List;
+
+public class CursorPage<T> {
+    private List<T> items;
+    // Null on the last page
+    private String nextCursor;
+    // Only counted when the caller asks for it
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long totalElements;
+
+    // Constructors
+    public CursorPage() {}
+
+    public CursorPage(List<T> items, String nextCursor, Long totalElements) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.totalElements = totalElements;
+    }
+
+    // Getters and Setters
+    public List<T> getItems() { return items; }
+    public void setItems(List<T> items) { this.items = items; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+
+    public Long getTotalElements() { return totalElements; }
+    public void setTotalElements(Long totalElements) { this.totalElements = totalElements; }
+
+    public boolean isHasMore() { return nextCursor != null; }
+}
@@ -1,5 +1,6 @@
 package com.customo.backend.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.validation.constraints.*;
 import java.time.Instant;
 import java.util.List;
@@ -30,6 +31,8 @@ public class DeviceDto {
     private Instant lastSeen;
     private Instant createdAt;
     private Instant updatedAt;
+    // Only populated when logs were asked for; list views leave it out entirely
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private List<DeviceLogDto> logs;
 
     // Constructors
@@ -79,6 +82,7 @@ public class DeviceDto {
 
     public static class DeviceLogDto {
         private String id;
+        private String deviceId;
         private String level;
         private String message;
         private String details;
@@ -91,6 +95,9 @@ public class DeviceDto {
         public String getId() { return id; }
         public void setId(String id) { this.id = id; }
 
+        public String getDeviceId() { return deviceId; }
+        public void setDeviceId(String deviceId) { this.deviceId = deviceId; }
+
         public String getLevel() { return level; }
         public void setLevel(String level) { this.level = level; }
 
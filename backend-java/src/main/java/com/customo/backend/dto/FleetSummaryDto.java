@@ -0,0 +1,40 @@
+package com.customo.backend.dto;
+
+import java.time.Instant;
+import java.util.Map;
+
+public class FleetSummaryDto {
+    private long totalDevices;
+    private long online;
+    private long offline;
+    private Map<String, Long> byStatus;
+    private Map<String, Long> logsByLevel;
+    private Map<String, Long> batteryLevels;
+    // When the counters were last rebuilt from the database
+    private Instant reconciledAt;
+
+    // Constructors
+    public FleetSummaryDto() {}
+
+    // Getters and Setters
+    public long getTotalDevices() { return totalDevices; }
+    public void setTotalDevices(long totalDevices) { this.totalDevices = totalDevices; }
+
+    public long getOnline() { return online; }
+    public void setOnline(long online) { this.online = online; }
+
+    public long getOffline() { return offline; }
+    public void setOffline(long offline) { this.offline = offline; }
+
+    public Map<String, Long> getByStatus() { return byStatus; }
+    public void setByStatus(Map<String, Long> byStatus) { this.byStatus = byStatus; }
+
+    public Map<String, Long> getLogsByLevel() { return logsByLevel; }
+    public void setLogsByLevel(Map<String, Long> logsByLevel) { this.logsByLevel = logsByLevel; }
+
+    public Map<String, Long> getBatteryLevels() { return batteryLevels; }
+    public void setBatteryLevels(Map<String, Long> batteryLevels) { this.batteryLevels = batteryLevels; }
+
+    public Instant getReconciledAt() { return reconciledAt; }
+    public void setReconciledAt(Instant reconciledAt) { this.reconciledAt = reconciledAt; }
+}
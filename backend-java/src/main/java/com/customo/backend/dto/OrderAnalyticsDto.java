@@ -0,0 +1,92 @@
+package com.customo.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+public class OrderAnalyticsDto {
+    // The range actually summed, widened to whole hours
+    private Instant from;
+    private Instant to;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String status;
+    private Map<String, StatusTotals> byStatus;
+    private StatusTotals totals;
+    private List<ProductTotals> topProducts;
+
+    // Constructors
+    public OrderAnalyticsDto() {}
+
+    // Getters and Setters
+    public Instant getFrom() { return from; }
+    public void setFrom(Instant from) { this.from = from; }
+
+    public Instant getTo() { return to; }
+    public void setTo(Instant to) { this.to = to; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public Map<String, StatusTotals> getByStatus() { return byStatus; }
+    public void setByStatus(Map<String, StatusTotals> byStatus) { this.byStatus = byStatus; }
+
+    public StatusTotals getTotals() { return totals; }
+    public void setTotals(StatusTotals totals) { this.totals = totals; }
+
+    public List<ProductTotals> getTopProducts() { return topProducts; }
+    public void setTopProducts(List<ProductTotals> topProducts) { this.topProducts = topProducts; }
+
+    public static class StatusTotals {
+        private long orders;
+        private BigDecimal revenue;
+        private long itemsSold;
+
+        public StatusTotals() {}
+
+        public StatusTotals(long orders, BigDecimal revenue, long itemsSold) {
+            this.orders = orders;
+            this.revenue = revenue;
+            this.itemsSold = itemsSold;
+        }
+
+        public long getOrders() { return orders; }
+        public void setOrders(long orders) { this.orders = orders; }
+
+        public BigDecimal getRevenue() { return revenue; }
+        public void setRevenue(BigDecimal revenue) { this.revenue = revenue; }
+
+        public long getItemsSold() { return itemsSold; }
+        public void setItemsSold(long itemsSold) { this.itemsSold = itemsSold; }
+    }
+
+    public static class ProductTotals {
+        private String productId;
+        private String name;
+        private long units;
+        private BigDecimal revenue;
+
+        public ProductTotals() {}
+
+        public ProductTotals(String productId, String name, long units, BigDecimal revenue) {
+            this.productId = productId;
+            this.name = name;
+            this.units = units;
+            this.revenue = revenue;
+        }
+
+        public String getProductId() { return productId; }
+        public void setProductId(String productId) { this.productId = productId; }
+
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+
+        public long getUnits() { return units; }
+        public void setUnits(long units) { this.units = units; }
+
+        public BigDecimal getRevenue() { return revenue; }
+        public void setRevenue(BigDecimal revenue) { this.revenue = revenue; }
+    }
+}
@@ -0,0 +1,62 @@
+package com.customo.backend.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.springframework.data.domain.Page;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * One page of a list, with the items under a name of the resource
+ * ("products", "devices", "logs"). An offset page carries totalElements,
+ * totalPages, currentPage and size; a keyset page carries size, nextCursor,
+ * hasMore and, when counted, totalElements.
+ */
+@JsonSerialize(using = PageResponse.Serializer.class)
+public record PageResponse<T>(String itemsKey, List<T> items, Long totalElements, Integer totalPages,
+                              Integer currentPage, int size, String nextCursor, Boolean hasMore, Object facets) {
+
+    public static <T> PageResponse<T> of(String itemsKey, Page<T> page) {
+        return new PageResponse<>(itemsKey, page.getContent(), page.getTotalElements(), page.getTotalPages(),
+                page.getNumber(), page.getSize(), null, null, null);
+    }
+
+    // Everything on a single page
+    public static <T> PageResponse<T> of(String itemsKey, List<T> items) {
+        return new PageResponse<>(itemsKey, items, (long) items.size(), 1, 0, items.size(), null, null, null);
+    }
+
+    public static <T> PageResponse<T> of(String itemsKey, CursorPage<T> page) {
+        return new PageResponse<>(itemsKey, page.getItems(), page.getTotalElements(), null, null,
+                page.getItems().size(), page.getNextCursor(), page.isHasMore(), null);
+    }
+
+    public PageResponse<T> withFacets(Object facets) {
+        return new PageResponse<>(itemsKey, items, totalElements, totalPages, currentPage, size, nextCursor, hasMore, facets);
+    }
+
+    // Written by hand for the per-resource items name; one instance serves every page
+    static final class Serializer extends JsonSerializer<PageResponse<?>> {
+        @Override
+        public void serialize(PageResponse<?> page, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject();
+            provider.defaultSerializeField(page.itemsKey(), page.items(), gen);
+            if (page.hasMore() != null) {
+                gen.writeNumberField("size", page.size());
+                gen.writeStringField("nextCursor", page.nextCursor());
+                gen.writeBooleanField("hasMore", page.hasMore());
+                if (page.totalElements() != null) gen.writeNumberField("totalElements", page.totalElements());
+            } else {
+                gen.writeNumberField("totalElements", page.totalElements());
+                gen.writeNumberField("totalPages", page.totalPages());
+                gen.writeNumberField("currentPage", page.currentPage());
+                gen.writeNumberField("size", page.size());
+            }
+            if (page.facets() != null) provider.defaultSerializeField("facets", page.facets(), gen);
+            gen.writeEndObject();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.customo.backend.dto;
+
+import java.util.List;
+
+/**
+ * Catalog filters; values within one facet are OR-ed, facets are AND-ed.
+ */
+public class ProductFilter {
+    private List<String> categories;
+    private List<String> brands;
+    private List<String> priceRanges;
+    private Integer minRating;
+    private Boolean inStock;
+
+    // Constructors
+    public ProductFilter() {}
+
+    public boolean isEmpty() {
+        return (categories == null || categories.isEmpty())
+                && (brands == null || brands.isEmpty())
+                && (priceRanges == null || priceRanges.isEmpty())
+                && minRating == null
+                && !Boolean.TRUE.equals(inStock);
+    }
+
+    // Getters and Setters
+    public List<String> getCategories() { return categories; }
+    public void setCategories(List<String> categories) { this.categories = categories; }
+
+    public List<String> getBrands() { return brands; }
+    public void setBrands(List<String> brands) { this.brands = brands; }
+
+    public List<String> getPriceRanges() { return priceRanges; }
+    public void setPriceRanges(List<String> priceRanges) { this.priceRanges = priceRanges; }
+
+    public Integer getMinRating() { return minRating; }
+    public void setMinRating(Integer minRating) { this.minRating = minRating; }
+
+    public Boolean getInStock() { return inStock; }
+    public void setInStock(Boolean inStock) { this.inStock = inStock; }
+}
@@ -0,0 +1,44 @@
+package com.customo.backend.dto;
+
+import jakarta.validation.constraints.*;
+import java.time.Instant;
+import java.util.List;
+
+public class TelemetryBatchRequest {
+    @NotEmpty(message = "At least one reading is required")
+    private List<TelemetryReading> readings;
+
+    // Constructors
+    public TelemetryBatchRequest() {}
+
+    // Getters and Setters
+    public List<TelemetryReading> getReadings() { return readings; }
+    public void setReadings(List<TelemetryReading> readings) { this.readings = readings; }
+
+    public static class TelemetryReading {
+        private String deviceId;
+        private Integer battery;
+        private String status;
+        private Boolean online;
+        private Instant timestamp;
+
+        // Constructors
+        public TelemetryReading() {}
+
+        // Getters and Setters
+        public String getDeviceId() { return deviceId; }
+        public void setDeviceId(String deviceId) { this.deviceId = deviceId; }
+
+        public Integer getBattery() { return battery; }
+        public void setBattery(Integer battery) { this.battery = battery; }
+
+        public String getStatus() { return status; }
+        public void setStatus(String status) { this.status = status; }
+
+        public Boolean getOnline() { return online; }
+        public void setOnline(Boolean online) { this.online = online; }
+
+        public Instant getTimestamp() { return timestamp; }
+        public void setTimestamp(Instant timestamp) { this.timestamp = timestamp; }
+    }
+}
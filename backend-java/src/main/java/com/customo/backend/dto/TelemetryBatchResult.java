@@ -0,0 +1,56 @@
+package com.customo.backend.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TelemetryBatchResult {
+    private int received;
+    private int accepted;
+    private int devicesUpdated;
+    private List<RejectedReading> rejected = new ArrayList<>();
+
+    // Constructors
+    public TelemetryBatchResult() {}
+
+    // Getters and Setters
+    public int getReceived() { return received; }
+    public void setReceived(int received) { this.received = received; }
+
+    public int getAccepted() { return accepted; }
+    public void setAccepted(int accepted) { this.accepted = accepted; }
+
+    public int getDevicesUpdated() { return devicesUpdated; }
+    public void setDevicesUpdated(int devicesUpdated) { this.devicesUpdated = devicesUpdated; }
+
+    public List<RejectedReading> getRejected() { return rejected; }
+    public void setRejected(List<RejectedReading> rejected) { this.rejected = rejected; }
+
+    public void reject(int index, String deviceId, String reason) {
+        rejected.add(new RejectedReading(index, deviceId, reason));
+    }
+
+    public static class RejectedReading {
+        private int index;
+        private String deviceId;
+        private String reason;
+
+        // Constructors
+        public RejectedReading() {}
+
+        public RejectedReading(int index, String deviceId, String reason) {
+            this.index = index;
+            this.deviceId = deviceId;
+            this.reason = reason;
+        }
+
+        // Getters and Setters
+        public int getIndex() { return index; }
+        public void setIndex(int index) { this.index = index; }
+
+        public String getDeviceId() { return deviceId; }
+        public void setDeviceId(String deviceId) { this.deviceId = deviceId; }
+
+        public String getReason() { return reason; }
+        public void setReason(String reason) { this.reason = reason; }
+    }
+}
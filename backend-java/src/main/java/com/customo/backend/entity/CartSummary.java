@@ -0,0 +1,61 @@
+package com.customo.backend.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Running totals of one user's cart, adjusted by every change to its lines
+ * so the cart badge never has to aggregate cart_items.
+ */
+@Entity
+@Table(name = "cart_summaries")
+public class CartSummary {
+    @Id
+    @Column(name = "user_id")
+    private String userId;
+
+    @Column(nullable = false)
+    private Long lineCount = 0L;
+
+    @Column(nullable = false)
+    private Long itemCount = 0L;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal subtotal = BigDecimal.ZERO;
+
+    private Instant updatedAt = Instant.now();
+
+    // Moves with every change, so a node holding the cart in memory can tell it is behind
+    @Version
+    @Column(nullable = false)
+    private Long version = 0L;
+
+    // Constructors
+    public CartSummary() {}
+
+    public CartSummary(Long lineCount, Long itemCount, BigDecimal subtotal) {
+        this.lineCount = lineCount;
+        this.itemCount = itemCount;
+        this.subtotal = subtotal;
+    }
+
+    // Getters and Setters
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+
+    public Long getLineCount() { return lineCount; }
+    public void setLineCount(Long lineCount) { this.lineCount = lineCount; }
+
+    public Long getItemCount() { return itemCount; }
+    public void setItemCount(Long itemCount) { this.itemCount = itemCount; }
+
+    public BigDecimal getSubtotal() { return subtotal; }
+    public void setSubtotal(BigDecimal subtotal) { this.subtotal = subtotal; }
+
+    public Instant getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+}
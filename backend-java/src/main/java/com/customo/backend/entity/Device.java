@@ -7,7 +7,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "devices")
+@Table(name = "devices", indexes = {
+    @Index(name = "idx_devices_user_created", columnList = "user_id, created_at, id")
+})
 public class Device {
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
@@ -43,7 +45,8 @@ public class Device {
     private Instant createdAt = Instant.now();
     private Instant updatedAt = Instant.now();
 
-    @OneToMany(mappedBy = "device", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    // Not cascaded: removing a device deletes its logs with one bulk statement, see DeviceService.deleteDevice
+    @OneToMany(mappedBy = "device", fetch = FetchType.LAZY)
     private List<DeviceLog> logs = new ArrayList<>();
 
     // Constructors
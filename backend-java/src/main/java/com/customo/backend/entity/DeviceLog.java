@@ -1,20 +1,27 @@
 package com.customo.backend.entity;
 
+import com.customo.backend.util.TimeOrderedIds;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import java.time.Instant;
 
 @Entity
-@Table(name = "device_logs")
+@Table(name = "device_logs", indexes = {
+    @Index(name = "idx_device_logs_user_timestamp", columnList = "user_id, timestamp, id"),
+    @Index(name = "idx_device_logs_device_timestamp", columnList = "device_id, timestamp, id")
+})
 public class DeviceLog {
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
     private String id;
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "device_id", nullable = false)
     private Device device;
 
+    // Denormalized owner so per-user range queries need no join through devices
+    @Column(name = "user_id")
+    private String userId;
+
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private LogLevel level;
@@ -37,6 +44,11 @@ public class DeviceLog {
         this.message = message;
     }
 
+    public DeviceLog(Device device, String userId, LogLevel level, String message) {
+        this(device, level, message);
+        this.userId = userId;
+    }
+
     // Getters and Setters
     public String getId() { return id; }
     public void setId(String id) { this.id = id; }
@@ -44,6 +56,9 @@ public class DeviceLog {
     public Device getDevice() { return device; }
     public void setDevice(Device device) { this.device = device; }
 
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+
     public LogLevel getLevel() { return level; }
     public void setLevel(LogLevel level) { this.level = level; }
 
@@ -56,6 +71,14 @@ public class DeviceLog {
     public Instant getTimestamp() { return timestamp; }
     public void setTimestamp(Instant timestamp) { this.timestamp = timestamp; }
 
+    @PrePersist
+    public void prePersist() {
+        // Time-ordered ids are assigned here rather than generated per row so inserts batch cleanly
+        if (this.id == null) {
+            this.id = TimeOrderedIds.next();
+        }
+    }
+
     public enum LogLevel {
         INFO, WARNING, ERROR, DEBUG
     }
@@ -8,7 +8,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_orders_user_idempotency_key", columnNames = {"user_id", "idempotency_key"})
+})
 public class Order {
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
@@ -44,6 +46,10 @@ public class Order {
     @Size(max = 1000, message = "Notes must not exceed 1000 characters")
     private String notes;
 
+    // Client-supplied key of the checkout request that placed the order, so a retry finds it instead of ordering again
+    @Column(name = "idempotency_key", length = 100)
+    private String idempotencyKey;
+
     private Instant createdAt = Instant.now();
     private Instant updatedAt = Instant.now();
 
@@ -89,6 +95,9 @@ public class Order {
     public String getNotes() { return notes; }
     public void setNotes(String notes) { this.notes = notes; }
 
+    public String getIdempotencyKey() { return idempotencyKey; }
+    public void setIdempotencyKey(String idempotencyKey) { this.idempotencyKey = idempotencyKey; }
+
     public Instant getCreatedAt() { return createdAt; }
     public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
 
@@ -104,6 +113,16 @@ public class Order {
     }
 
     public enum OrderStatus {
-        PENDING, CONFIRMED, SHIPPED, DELIVERED, CANCELLED, REFUNDED
+        PENDING, CONFIRMED, SHIPPED, DELIVERED, CANCELLED, REFUNDED;
+
+        public boolean canMoveTo(OrderStatus next) {
+            switch (this) {
+                case PENDING: return next == CONFIRMED || next == CANCELLED;
+                case CONFIRMED: return next == SHIPPED || next == CANCELLED;
+                case SHIPPED: return next == DELIVERED;
+                case DELIVERED: return next == REFUNDED;
+                default: return false;
+            }
+        }
     }
 }
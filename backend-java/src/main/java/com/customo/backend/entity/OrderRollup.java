@@ -0,0 +1,69 @@
+package com.customo.backend.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Orders placed within one hour or one UTC day, counted under their current
+ * status. Written by OrderRollups; an order moves between status rows of its
+ * bucket when its status changes.
+ */
+@Entity
+@Table(name = "order_rollups", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_order_rollups_bucket", columnNames = {"granularity", "bucket_start", "status"})
+})
+public class OrderRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private String id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private Granularity granularity;
+
+    @Column(name = "bucket_start", nullable = false)
+    private Instant bucketStart;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Order.OrderStatus status;
+
+    @Column(nullable = false)
+    private Long orderCount = 0L;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal revenue = BigDecimal.ZERO;
+
+    @Column(nullable = false)
+    private Long itemsSold = 0L;
+
+    public enum Granularity {
+        HOUR, DAY
+    }
+
+    // Constructors
+    public OrderRollup() {}
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public Granularity getGranularity() { return granularity; }
+    public void setGranularity(Granularity granularity) { this.granularity = granularity; }
+
+    public Instant getBucketStart() { return bucketStart; }
+    public void setBucketStart(Instant bucketStart) { this.bucketStart = bucketStart; }
+
+    public Order.OrderStatus getStatus() { return status; }
+    public void setStatus(Order.OrderStatus status) { this.status = status; }
+
+    public Long getOrderCount() { return orderCount; }
+    public void setOrderCount(Long orderCount) { this.orderCount = orderCount; }
+
+    public BigDecimal getRevenue() { return revenue; }
+    public void setRevenue(BigDecimal revenue) { this.revenue = revenue; }
+
+    public Long getItemsSold() { return itemsSold; }
+    public void setItemsSold(Long itemsSold) { this.itemsSold = itemsSold; }
+}
@@ -0,0 +1,38 @@
+package com.customo.backend.entity;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * The shared version of one ETag'd resource (the catalog, a product, a
+ * user's devices), so every node hands out the same tag for the same state.
+ * Written and read by ResourceVersions with plain SQL.
+ */
+@Entity
+@Table(name = "resource_versions", indexes = {
+    @Index(name = "idx_resource_versions_changed_at", columnList = "changed_at")
+})
+public class ResourceVersion {
+    @Id
+    @Column(name = "resource_key", length = 300)
+    private String resourceKey;
+
+    @Column(nullable = false)
+    private Long version = 0L;
+
+    @Column(name = "changed_at", nullable = false)
+    private Instant changedAt = Instant.now();
+
+    // Constructors
+    public ResourceVersion() {}
+
+    // Getters and Setters
+    public String getResourceKey() { return resourceKey; }
+    public void setResourceKey(String resourceKey) { this.resourceKey = resourceKey; }
+
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+
+    public Instant getChangedAt() { return changedAt; }
+    public void setChangedAt(Instant changedAt) { this.changedAt = changedAt; }
+}
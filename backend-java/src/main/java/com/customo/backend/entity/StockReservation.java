@@ -0,0 +1,66 @@
+package com.customo.backend.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.*;
+import java.time.Instant;
+
+/**
+ * Stock held for one product in one user's cart. The quantity has already
+ * been taken off products.stock_quantity; it goes back when the item leaves
+ * the cart or the reservation expires.
+ */
+@Entity
+@Table(name = "stock_reservations", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_stock_reservations_user_product", columnNames = {"user_id", "product_id"})
+}, indexes = {
+    @Index(name = "idx_stock_reservations_expires", columnList = "expires_at")
+})
+public class StockReservation {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private String id;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Column(name = "product_id", nullable = false)
+    private String productId;
+
+    @NotNull
+    @Min(value = 1, message = "Quantity must be at least 1")
+    private Integer quantity;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    private Instant createdAt = Instant.now();
+
+    // Constructors
+    public StockReservation() {}
+
+    public StockReservation(String userId, String productId, Integer quantity, Instant expiresAt) {
+        this.userId = userId;
+        this.productId = productId;
+        this.quantity = quantity;
+        this.expiresAt = expiresAt;
+    }
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+
+    public String getProductId() { return productId; }
+    public void setProductId(String productId) { this.productId = productId; }
+
+    public Integer getQuantity() { return quantity; }
+    public void setQuantity(Integer quantity) { this.quantity = quantity; }
+
+    public Instant getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(Instant expiresAt) { this.expiresAt = expiresAt; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+}
@@ -0,0 +1,61 @@
+package com.customo.backend.event;
+
+import com.customo.backend.dto.DeviceDto;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+
+/**
+ * Published by DeviceService whenever a device's state changes. Serialized as
+ * the payload of the device stream; fields left null did not change.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DeviceStateChangedEvent {
+
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    @JsonIgnore
+    private final String userId;
+    private final Type type;
+    private final String deviceId;
+    private String status;
+    private Integer battery;
+    private Boolean online;
+    private Instant lastSeen;
+
+    // Constructors
+    public DeviceStateChangedEvent(String userId, Type type, String deviceId) {
+        this.userId = userId;
+        this.type = type;
+        this.deviceId = deviceId;
+    }
+
+    public static DeviceStateChangedEvent of(String userId, Type type, DeviceDto device) {
+        DeviceStateChangedEvent event = new DeviceStateChangedEvent(userId, type, device.getId());
+        event.setStatus(device.getStatus());
+        event.setBattery(device.getBattery());
+        event.setOnline(device.isOnline());
+        event.setLastSeen(device.getLastSeen());
+        return event;
+    }
+
+    // Getters and Setters
+    public String getUserId() { return userId; }
+
+    public Type getType() { return type; }
+
+    public String getDeviceId() { return deviceId; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public Integer getBattery() { return battery; }
+    public void setBattery(Integer battery) { this.battery = battery; }
+
+    public Boolean getOnline() { return online; }
+    public void setOnline(Boolean online) { this.online = online; }
+
+    public Instant getLastSeen() { return lastSeen; }
+    public void setLastSeen(Instant lastSeen) { this.lastSeen = lastSeen; }
+}
@@ -0,0 +1,64 @@
+package com.customo.backend.event;
+
+import com.customo.backend.entity.Order;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Published by OrderService when an order is placed or changes status.
+ * {@code previousStatus} is null for a new order. Carries what the order
+ * rollups need, so listeners never load the order.
+ */
+public class OrderStatusChangedEvent {
+
+    private final String orderId;
+    private final Order.OrderStatus previousStatus;
+    private final Order.OrderStatus status;
+    private final Instant createdAt;
+    private final BigDecimal totalAmount;
+    private final List<Item> items;
+
+    // Constructors
+    public OrderStatusChangedEvent(String orderId, Order.OrderStatus previousStatus, Order.OrderStatus status,
+                                   Instant createdAt, BigDecimal totalAmount, List<Item> items) {
+        this.orderId = orderId;
+        this.previousStatus = previousStatus;
+        this.status = status;
+        this.createdAt = createdAt;
+        this.totalAmount = totalAmount;
+        this.items = items;
+    }
+
+    // Getters
+    public String getOrderId() { return orderId; }
+
+    public Order.OrderStatus getPreviousStatus() { return previousStatus; }
+
+    public Order.OrderStatus getStatus() { return status; }
+
+    public Instant getCreatedAt() { return createdAt; }
+
+    public BigDecimal getTotalAmount() { return totalAmount; }
+
+    public List<Item> getItems() { return items; }
+
+    public static class Item {
+        private final String productId;
+        private final int quantity;
+        private final BigDecimal totalPrice;
+
+        public Item(String productId, int quantity, BigDecimal totalPrice) {
+            this.productId = productId;
+            this.quantity = quantity;
+            this.totalPrice = totalPrice;
+        }
+
+        public String getProductId() { return productId; }
+
+        public int getQuantity() { return quantity; }
+
+        public BigDecimal getTotalPrice() { return totalPrice; }
+    }
+}
@@ -0,0 +1,31 @@
+package com.customo.backend.event;
+
+import com.customo.backend.dto.ProductDto;
+
+/**
+ * Published by ProductService when a product is created, updated or
+ * deactivated. {@code product} is the new state, or null once the product
+ * has left the active catalog.
+ */
+public class ProductChangedEvent {
+
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    private final Type type;
+    private final String productId;
+    private final ProductDto product;
+
+    // Constructors
+    public ProductChangedEvent(Type type, String productId, ProductDto product) {
+        this.type = type;
+        this.productId = productId;
+        this.product = product;
+    }
+
+    // Getters
+    public Type getType() { return type; }
+
+    public String getProductId() { return productId; }
+
+    public ProductDto getProduct() { return product; }
+}
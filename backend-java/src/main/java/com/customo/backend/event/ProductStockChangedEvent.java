@@ -0,0 +1,20 @@
+package com.customo.backend.event;
+
+/**
+ * Published by ProductService when a product's stock moves outside
+ * updateProduct: reservations taken, returned or expired, and orders placed.
+ * Unlike ProductChangedEvent it leaves the catalog-wide views alone; only
+ * what shows the single product's exact quantity is refreshed.
+ */
+public class ProductStockChangedEvent {
+
+    private final String productId;
+
+    // Constructors
+    public ProductStockChangedEvent(String productId) {
+        this.productId = productId;
+    }
+
+    // Getters
+    public String getProductId() { return productId; }
+}
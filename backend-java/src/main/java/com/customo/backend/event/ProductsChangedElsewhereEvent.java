@@ -0,0 +1,25 @@
+package com.customo.backend.event;
+
+import java.util.Set;
+
+/**
+ * Published by ResourceVersions when a sync finds products, or the catalog,
+ * changed by another node, so caches on this node stop serving the old state
+ * under the new tags.
+ */
+public class ProductsChangedElsewhereEvent {
+
+    private final Set<String> productIds;
+    private final boolean catalogChanged;
+
+    // Constructors
+    public ProductsChangedElsewhereEvent(Set<String> productIds, boolean catalogChanged) {
+        this.productIds = productIds;
+        this.catalogChanged = catalogChanged;
+    }
+
+    // Getters
+    public Set<String> getProductIds() { return productIds; }
+
+    public boolean isCatalogChanged() { return catalogChanged; }
+}
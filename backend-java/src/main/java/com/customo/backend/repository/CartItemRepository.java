@@ -1,11 +1,14 @@
 package com.customo.backend.repository;
 
 import com.customo.backend.entity.CartItem;
+import com.customo.backend.entity.CartSummary;
 import com.customo.backend.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -15,18 +18,33 @@ public interface CartItemRepository extends JpaRepository<CartItem, String> {
     
     List<CartItem> findByUserOrderByCreatedAtDesc(User user);
     
-    @Query("SELECT ci FROM CartItem ci WHERE ci.user = :user ORDER BY ci.createdAt DESC")
+    @Query("SELECT ci FROM CartItem ci JOIN FETCH ci.product WHERE ci.user = :user ORDER BY ci.createdAt DESC")
     List<CartItem> findByUserWithProduct(@Param("user") User user);
     
-    Optional<CartItem> findByUserAndProduct(User user, com.customo.backend.entity.Product product);
+    // ci.user.id reads the foreign key column; the users row is never joined
+    @Query("SELECT ci FROM CartItem ci JOIN FETCH ci.product WHERE ci.user.id = :userId ORDER BY ci.createdAt DESC")
+    List<CartItem> findByUserIdWithProduct(@Param("userId") String userId);
+    
+    @Query("SELECT ci FROM CartItem ci JOIN FETCH ci.product WHERE ci.id = :id AND ci.user.id = :userId")
+    Optional<CartItem> findByIdAndUserIdWithProduct(@Param("id") String id, @Param("userId") String userId);
     
-    @Query("SELECT COUNT(ci) FROM CartItem ci WHERE ci.user = :user")
-    Long countByUser(@Param("user") User user);
+    @Query("SELECT ci FROM CartItem ci JOIN FETCH ci.product WHERE ci.user.id = :userId AND ci.product.id = :productId")
+    Optional<CartItem> findByUserIdAndProductIdWithProduct(@Param("userId") String userId, @Param("productId") String productId);
     
-    @Query("SELECT SUM(ci.totalPrice) FROM CartItem ci WHERE ci.user = :user")
-    Double sumTotalPriceByUser(@Param("user") User user);
+    Optional<CartItem> findByUserAndProduct(User user, com.customo.backend.entity.Product product);
     
+    // Seeds a cart_summaries row for a cart that has none yet
+    @Query("SELECT new com.customo.backend.entity.CartSummary(COUNT(ci), COALESCE(SUM(ci.quantity), 0L), COALESCE(SUM(ci.totalPrice), 0)) " +
+           "FROM CartItem ci WHERE ci.user.id = :userId")
+    CartSummary summarizeByUserId(@Param("userId") String userId);
+    
+    @Transactional
     void deleteByUser(User user);
     
+    @Modifying
+    @Query("DELETE FROM CartItem ci WHERE ci.user.id = :userId")
+    int deleteByUserId(@Param("userId") String userId);
+    
+    @Transactional
     void deleteByUserAndProduct(User user, com.customo.backend.entity.Product product);
 }
@@ -0,0 +1,104 @@
+package com.customo.backend.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Whole-cart JDBC reads and writes for the memory cart store, which
+ * persists a cart as one unit rather than line by line.
+ */
+@Repository
+public class CartJdbcRepository {
+
+    private static final String SELECT_LINES_SQL =
+            "SELECT id, product_id, quantity, unit_price, created_at, updated_at FROM cart_items " +
+            "WHERE user_id = ? ORDER BY created_at DESC";
+
+    private static final String DELETE_LINES_SQL = "DELETE FROM cart_items WHERE user_id = ?";
+
+    private static final String INSERT_LINE_SQL =
+            "INSERT INTO cart_items (id, user_id, product_id, quantity, unit_price, total_price, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public List<CartLine> findLines(String userId) {
+        return jdbcTemplate.query(SELECT_LINES_SQL, (rs, rowNum) -> {
+            CartLine line = new CartLine(rs.getString("id"), rs.getString("product_id"), rs.getBigDecimal("unit_price"),
+                    toInstant(rs.getTimestamp("created_at")));
+            line.setQuantity(rs.getInt("quantity"));
+            line.setUpdatedAt(toInstant(rs.getTimestamp("updated_at")));
+            return line;
+        }, userId);
+    }
+
+    // Line ids are kept, so ids handed out before the write stay valid
+    public void replaceLines(String userId, List<CartLine> lines) {
+        jdbcTemplate.update(DELETE_LINES_SQL, userId);
+        if (lines.isEmpty()) return;
+        jdbcTemplate.batchUpdate(INSERT_LINE_SQL, lines, lines.size(), (ps, line) -> {
+            ps.setString(1, line.getId());
+            ps.setString(2, userId);
+            ps.setString(3, line.getProductId());
+            ps.setInt(4, line.getQuantity());
+            ps.setBigDecimal(5, line.getUnitPrice());
+            ps.setBigDecimal(6, line.getTotalPrice());
+            ps.setObject(7, toTimestamp(line.getCreatedAt()));
+            ps.setObject(8, toTimestamp(line.getUpdatedAt()));
+        });
+    }
+
+    private static OffsetDateTime toTimestamp(Instant instant) {
+        return instant != null ? instant.atOffset(ZoneOffset.UTC) : null;
+    }
+
+    private static Instant toInstant(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toInstant() : null;
+    }
+
+    public static class CartLine {
+        private final String id;
+        private final String productId;
+        private final BigDecimal unitPrice;
+        private final Instant createdAt;
+        private int quantity;
+        private Instant updatedAt;
+
+        public CartLine(String id, String productId, BigDecimal unitPrice, Instant createdAt) {
+            this.id = id;
+            this.productId = productId;
+            this.unitPrice = unitPrice;
+            this.createdAt = createdAt;
+            this.updatedAt = createdAt;
+        }
+
+        public CartLine copy() {
+            CartLine copy = new CartLine(id, productId, unitPrice, createdAt);
+            copy.quantity = quantity;
+            copy.updatedAt = updatedAt;
+            return copy;
+        }
+
+        public String getId() { return id; }
+        public String getProductId() { return productId; }
+        public BigDecimal getUnitPrice() { return unitPrice; }
+        public Instant getCreatedAt() { return createdAt; }
+
+        public BigDecimal getTotalPrice() { return unitPrice.multiply(BigDecimal.valueOf(quantity)); }
+
+        public int getQuantity() { return quantity; }
+        public void setQuantity(int quantity) { this.quantity = quantity; }
+
+        public Instant getUpdatedAt() { return updatedAt; }
+        public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+    }
+}
@@ -0,0 +1,38 @@
+package com.customo.backend.repository;
+
+import com.customo.backend.entity.CartSummary;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Optional;
+
+@Repository
+public interface CartSummaryRepository extends JpaRepository<CartSummary, String> {
+
+    // A plain insert: save() would merge and could overwrite a row created concurrently
+    @Modifying
+    @Query("INSERT INTO CartSummary (userId, lineCount, itemCount, subtotal, updatedAt, version) " +
+           "VALUES (:userId, :lines, :items, :subtotal, :now, 0)")
+    int insert(@Param("userId") String userId, @Param("lines") long lines, @Param("items") long items,
+               @Param("subtotal") BigDecimal subtotal, @Param("now") Instant now);
+
+    @Query("SELECT s.version FROM CartSummary s WHERE s.userId = :userId")
+    Optional<Long> findVersion(@Param("userId") String userId);
+
+    // Serializes changes to one user's cart, so two adds of a new product cannot both create the line
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM CartSummary s WHERE s.userId = :userId")
+    Optional<CartSummary> findForUpdate(@Param("userId") String userId);
+
+    @Modifying
+    @Query("UPDATE CartSummary s SET s.lineCount = 0, s.itemCount = 0, s.subtotal = 0, s.updatedAt = :now, " +
+           "s.version = s.version + 1 WHERE s.userId = :userId")
+    int reset(@Param("userId") String userId, @Param("now") Instant now);
+}
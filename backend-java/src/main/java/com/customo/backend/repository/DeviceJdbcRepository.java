@@ -0,0 +1,177 @@
+package com.customo.backend.repository;
+
+import com.customo.backend.entity.Device;
+import com.customo.backend.entity.DeviceLog;
+import com.customo.backend.util.TimeOrderedIds;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Set-based JDBC writes for the device hot paths, where loading and saving
+ * one entity per row would cost a round trip each.
+ */
+@Repository
+public class DeviceJdbcRepository {
+
+    // last_seen only moves forward, so a delayed or reordered batch cannot set it back
+    private static final String LAST_SEEN = "last_seen = GREATEST(COALESCE(last_seen, ?), COALESCE(?, last_seen))";
+
+    // A reading taken before the stored last_seen arrived late; readings without a time count as current
+    private static final String IS_CURRENT = "(last_seen IS NULL OR COALESCE(?, last_seen) >= last_seen)";
+
+    private static final String UPDATE_TELEMETRY_SQL =
+            "UPDATE devices SET " + ifCurrent("battery") + ", " + ifCurrent("status") + ", " +
+            ifCurrent("is_online") + ", " + LAST_SEEN + ", updated_at = ? WHERE id = ?";
+
+    // Heartbeats deliberately leave status and updated_at alone so they do not rewrite the row's identity fields
+    private static final String UPDATE_HEARTBEAT_SQL =
+            "UPDATE devices SET " + ifCurrent("battery") + ", " + ifCurrent("is_online") + ", " +
+            LAST_SEEN + " WHERE id = ?";
+
+    // Only where the persisted last_seen is stale too, so a heartbeat written by another node keeps the device online
+    private static final String MARK_OFFLINE_SQL =
+            "UPDATE devices SET is_online = FALSE WHERE id = ? AND is_online = TRUE AND (last_seen IS NULL OR last_seen <= ?)";
+
+    private static final String INSERT_LOG_SQL =
+            "INSERT INTO device_logs (id, device_id, user_id, level, message, details, timestamp) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public void batchUpdateTelemetry(List<TelemetryUpdate> updates) {
+        if (updates.isEmpty()) return;
+        Instant now = Instant.now();
+        jdbcTemplate.batchUpdate(UPDATE_TELEMETRY_SQL, updates, updates.size(), (ps, update) -> {
+            OffsetDateTime seen = toTimestamp(update.getLastSeen());
+            ps.setObject(1, seen);
+            setNullableInt(ps, 2, update.getBattery());
+            ps.setObject(3, seen);
+            ps.setObject(4, update.getStatus() != null ? update.getStatus().name() : null, Types.VARCHAR);
+            ps.setObject(5, seen);
+            ps.setObject(6, update.getOnline(), Types.BOOLEAN);
+            ps.setObject(7, seen);
+            ps.setObject(8, seen);
+            ps.setObject(9, toTimestamp(now));
+            ps.setString(10, update.getDeviceId());
+        });
+    }
+
+    public void batchUpdateHeartbeats(List<TelemetryUpdate> updates) {
+        if (updates.isEmpty()) return;
+        jdbcTemplate.batchUpdate(UPDATE_HEARTBEAT_SQL, updates, updates.size(), (ps, update) -> {
+            OffsetDateTime seen = toTimestamp(update.getLastSeen());
+            ps.setObject(1, seen);
+            setNullableInt(ps, 2, update.getBattery());
+            ps.setObject(3, seen);
+            ps.setObject(4, update.getOnline(), Types.BOOLEAN);
+            ps.setObject(5, seen);
+            ps.setObject(6, seen);
+            ps.setString(7, update.getDeviceId());
+        });
+    }
+
+    /**
+     * Marks the devices offline unless they were seen after {@code cutoff};
+     * returns one update count per id, 0 where the device was left alone.
+     */
+    public int[] batchMarkOffline(List<String> deviceIds, Instant cutoff) {
+        if (deviceIds.isEmpty()) return new int[0];
+        return jdbcTemplate.batchUpdate(MARK_OFFLINE_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setString(1, deviceIds.get(i));
+                ps.setObject(2, toTimestamp(cutoff));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return deviceIds.size();
+            }
+        });
+    }
+
+    // Persisted last_seen of those of the devices that are online
+    public Map<String, Instant> findOnlineLastSeen(Collection<String> deviceIds) {
+        Map<String, Instant> lastSeen = new HashMap<>();
+        if (deviceIds.isEmpty()) return lastSeen;
+        String placeholders = String.join(", ", Collections.nCopies(deviceIds.size(), "?"));
+        jdbcTemplate.query("SELECT id, last_seen FROM devices WHERE is_online = TRUE AND id IN (" + placeholders + ")",
+                rs -> {
+                    Timestamp seen = rs.getTimestamp("last_seen");
+                    lastSeen.put(rs.getString("id"), seen != null ? seen.toInstant() : null);
+                },
+                deviceIds.toArray());
+        return lastSeen;
+    }
+
+    public void batchInsertLogs(List<DeviceLog> logs) {
+        if (logs.isEmpty()) return;
+        jdbcTemplate.batchUpdate(INSERT_LOG_SQL, logs, logs.size(), (ps, log) -> {
+            ps.setString(1, log.getId() != null ? log.getId() : TimeOrderedIds.next());
+            ps.setString(2, log.getDevice().getId());
+            ps.setString(3, log.getUserId());
+            ps.setString(4, log.getLevel().name());
+            ps.setString(5, log.getMessage());
+            ps.setString(6, log.getDetails());
+            ps.setObject(7, toTimestamp(log.getTimestamp()));
+        });
+    }
+
+    // Sets the column to the reading's value unless the reading is older than the stored last_seen
+    private static String ifCurrent(String column) {
+        return column + " = CASE WHEN " + IS_CURRENT + " THEN COALESCE(?, " + column + ") ELSE " + column + " END";
+    }
+
+    private static void setNullableInt(PreparedStatement ps, int index, Integer value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.INTEGER);
+        } else {
+            ps.setInt(index, value);
+        }
+    }
+
+    private static OffsetDateTime toTimestamp(Instant instant) {
+        return instant != null ? instant.atOffset(ZoneOffset.UTC) : null;
+    }
+
+    public static class TelemetryUpdate {
+        private final String deviceId;
+        private Integer battery;
+        private Device.DeviceStatus status;
+        private Boolean online;
+        private Instant lastSeen;
+
+        public TelemetryUpdate(String deviceId) {
+            this.deviceId = deviceId;
+        }
+
+        public String getDeviceId() { return deviceId; }
+
+        public Integer getBattery() { return battery; }
+        public void setBattery(Integer battery) { this.battery = battery; }
+
+        public Device.DeviceStatus getStatus() { return status; }
+        public void setStatus(Device.DeviceStatus status) { this.status = status; }
+
+        public Boolean getOnline() { return online; }
+        public void setOnline(Boolean online) { this.online = online; }
+
+        public Instant getLastSeen() { return lastSeen; }
+        public void setLastSeen(Instant lastSeen) { this.lastSeen = lastSeen; }
+    }
+}
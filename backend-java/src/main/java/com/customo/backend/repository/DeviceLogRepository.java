@@ -2,15 +2,22 @@ package com.customo.backend.repository;
 
 import com.customo.backend.entity.Device;
 import com.customo.backend.entity.DeviceLog;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface DeviceLogRepository extends JpaRepository<DeviceLog, String> {
@@ -21,20 +28,48 @@ public interface DeviceLogRepository extends JpaRepository<DeviceLog, String> {
     
     List<DeviceLog> findByDeviceAndLevelOrderByTimestampDesc(Device device, DeviceLog.LogLevel level);
     
-    @Query("SELECT dl FROM DeviceLog dl WHERE dl.device.user.id = :userId ORDER BY dl.timestamp DESC")
+    // The N most recent logs of each device in one round trip, instead of one collection load per device
+    @Query(value = "SELECT ranked.id, ranked.device_id, ranked.user_id, ranked.level, ranked.message, ranked.details, ranked.timestamp " +
+           "FROM (SELECT dl.*, ROW_NUMBER() OVER (PARTITION BY dl.device_id ORDER BY dl.timestamp DESC, dl.id DESC) AS rn " +
+           "FROM device_logs dl WHERE dl.device_id IN (:deviceIds)) ranked " +
+           "WHERE ranked.rn <= :limit ORDER BY ranked.device_id, ranked.timestamp DESC, ranked.id DESC", nativeQuery = true)
+    List<DeviceLog> findRecentByDeviceIds(@Param("deviceIds") Collection<String> deviceIds, @Param("limit") int limit);
+    
+    @Query("SELECT dl FROM DeviceLog dl WHERE dl.userId = :userId ORDER BY dl.timestamp DESC")
     List<DeviceLog> findByUserIdOrderByTimestampDesc(@Param("userId") String userId);
     
-    @Query("SELECT dl FROM DeviceLog dl WHERE dl.device.user.id = :userId ORDER BY dl.timestamp DESC")
+    @Query("SELECT dl FROM DeviceLog dl WHERE dl.userId = :userId ORDER BY dl.timestamp DESC")
     Page<DeviceLog> findByUserIdOrderByTimestampDesc(@Param("userId") String userId, Pageable pageable);
     
-    @Query("SELECT dl FROM DeviceLog dl WHERE dl.device.user.id = :userId AND dl.level = :level ORDER BY dl.timestamp DESC")
+    @Query("SELECT dl FROM DeviceLog dl WHERE dl.userId = :userId AND dl.level = :level ORDER BY dl.timestamp DESC")
     List<DeviceLog> findByUserIdAndLevelOrderByTimestampDesc(@Param("userId") String userId, @Param("level") DeviceLog.LogLevel level);
     
-    @Query("SELECT dl FROM DeviceLog dl WHERE dl.device.user.id = :userId AND dl.timestamp >= :startTime AND dl.timestamp <= :endTime ORDER BY dl.timestamp DESC")
+    @Query("SELECT dl FROM DeviceLog dl WHERE dl.userId = :userId AND dl.timestamp >= :startTime AND dl.timestamp <= :endTime ORDER BY dl.timestamp DESC")
     List<DeviceLog> findByUserIdAndDateRange(@Param("userId") String userId, @Param("startTime") Instant startTime, @Param("endTime") Instant endTime);
     
-    @Query("SELECT COUNT(dl) FROM DeviceLog dl WHERE dl.device.user.id = :userId AND dl.level = :level")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT dl FROM DeviceLog dl WHERE dl.userId = :userId AND dl.timestamp >= :startTime AND dl.timestamp < :endTime ORDER BY dl.timestamp DESC")
+    Stream<DeviceLog> streamByUserIdAndDateRange(@Param("userId") String userId, @Param("startTime") Instant startTime, @Param("endTime") Instant endTime);
+    
+    @Query("SELECT dl FROM DeviceLog dl WHERE dl.userId = :userId AND " +
+           "(dl.timestamp < :timestamp OR (dl.timestamp = :timestamp AND dl.id < :id)) " +
+           "ORDER BY dl.timestamp DESC, dl.id DESC")
+    List<DeviceLog> findPageByUserIdAfter(@Param("userId") String userId, @Param("timestamp") Instant timestamp,
+                                          @Param("id") String id, Pageable limit);
+    
+    @Query("SELECT dl FROM DeviceLog dl WHERE dl.userId = :userId AND dl.device.id = :deviceId AND " +
+           "(dl.timestamp < :timestamp OR (dl.timestamp = :timestamp AND dl.id < :id)) " +
+           "ORDER BY dl.timestamp DESC, dl.id DESC")
+    List<DeviceLog> findPageByUserIdAndDeviceIdAfter(@Param("userId") String userId, @Param("deviceId") String deviceId,
+                                                     @Param("timestamp") Instant timestamp, @Param("id") String id, Pageable limit);
+    
+    @Query("SELECT COUNT(dl) FROM DeviceLog dl WHERE dl.userId = :userId")
+    Long countByUserId(@Param("userId") String userId);
+    
+    @Query("SELECT COUNT(dl) FROM DeviceLog dl WHERE dl.userId = :userId AND dl.level = :level")
     Long countByUserIdAndLevel(@Param("userId") String userId, @Param("level") DeviceLog.LogLevel level);
     
-    void deleteByDevice(Device device);
+    @Modifying
+    @Query("DELETE FROM DeviceLog dl WHERE dl.device.id = :deviceId")
+    int deleteByDeviceId(@Param("deviceId") String deviceId);
 }
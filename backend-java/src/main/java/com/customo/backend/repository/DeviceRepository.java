@@ -10,6 +10,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -30,6 +31,19 @@ public interface DeviceRepository extends JpaRepository<Device, String> {
            "LOWER(d.location) LIKE LOWER(CONCAT('%', :searchTerm, '%')))")
     List<Device> searchDevicesByUser(@Param("user") User user, @Param("searchTerm") String searchTerm);
     
+    // Keyset pages over (createdAt, id); pass PageRequest.of(0, size) as the limit, no count query is issued
+    @Query("SELECT d FROM Device d WHERE d.user = :user AND " +
+           "(d.createdAt < :createdAt OR (d.createdAt = :createdAt AND d.id < :id)) " +
+           "ORDER BY d.createdAt DESC, d.id DESC")
+    List<Device> findPageByUserAfter(@Param("user") User user, @Param("createdAt") Instant createdAt,
+                                     @Param("id") String id, Pageable limit);
+    
+    @Query("SELECT d FROM Device d WHERE d.user = :user AND d.status = :status AND " +
+           "(d.createdAt < :createdAt OR (d.createdAt = :createdAt AND d.id < :id)) " +
+           "ORDER BY d.createdAt DESC, d.id DESC")
+    List<Device> findPageByUserAndStatusAfter(@Param("user") User user, @Param("status") Device.DeviceStatus status,
+                                              @Param("createdAt") Instant createdAt, @Param("id") String id, Pageable limit);
+    
     @Query("SELECT COUNT(d) FROM Device d WHERE d.user = :user")
     Long countByUser(@Param("user") User user);
     
@@ -45,6 +59,9 @@ public interface DeviceRepository extends JpaRepository<Device, String> {
     @Query("SELECT d FROM Device d WHERE d.user = :user AND d.lastSeen < :cutoffTime ORDER BY d.lastSeen ASC")
     List<Device> findOfflineDevicesByUser(@Param("user") User user, @Param("cutoffTime") Instant cutoffTime);
     
+    @Query("SELECT d.id FROM Device d WHERE d.user.id = :userId AND d.id IN :deviceIds")
+    List<String> findIdsByUserIdAndIdIn(@Param("userId") String userId, @Param("deviceIds") Collection<String> deviceIds);
+    
     Optional<Device> findByUserAndId(User user, String deviceId);
     
     void deleteByUserAndId(User user, String deviceId);
@@ -4,13 +4,16 @@ import com.customo.backend.entity.Order;
 import com.customo.backend.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, String> {
@@ -24,11 +27,14 @@ public interface OrderRepository extends JpaRepository<Order, String> {
     @Query("SELECT o FROM Order o WHERE o.createdAt >= :startDate AND o.createdAt <= :endDate ORDER BY o.createdAt DESC")
     List<Order> findByDateRange(@Param("startDate") Instant startDate, @Param("endDate") Instant endDate);
     
-    @Query("SELECT COUNT(o) FROM Order o WHERE o.status = :status")
-    Long countByStatus(@Param("status") Order.OrderStatus status);
+    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.orderItems i LEFT JOIN FETCH i.product " +
+           "WHERE o.user.id = :userId AND o.idempotencyKey = :idempotencyKey")
+    Optional<Order> findByUserIdAndIdempotencyKey(@Param("userId") String userId, @Param("idempotencyKey") String idempotencyKey);
     
-    @Query("SELECT SUM(o.totalAmount) FROM Order o WHERE o.status = :status AND o.createdAt >= :startDate AND o.createdAt <= :endDate")
-    Double sumTotalAmountByStatusAndDateRange(@Param("status") Order.OrderStatus status, 
-                                            @Param("startDate") Instant startDate, 
-                                            @Param("endDate") Instant endDate);
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.id = :id")
+    Optional<Order> findByIdForUpdate(@Param("id") String id);
+    
+    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.orderItems i LEFT JOIN FETCH i.product WHERE o.id = :id")
+    Optional<Order> findByIdWithItems(@Param("id") String id);
 }
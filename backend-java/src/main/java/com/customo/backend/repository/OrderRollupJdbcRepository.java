@@ -0,0 +1,348 @@
+package com.customo.backend.repository;
+
+import com.customo.backend.entity.Order;
+import com.customo.backend.entity.OrderRollup;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * JDBC reads and writes for order_rollups and order_product_rollups. Rollup
+ * rows are only ever moved by increments, so writes from several nodes add
+ * up instead of overwriting each other.
+ */
+@Repository
+public class OrderRollupJdbcRepository {
+
+    private static final String INCREMENT_ORDERS_SQL =
+            "UPDATE order_rollups SET order_count = order_count + ?, revenue = revenue + ?, items_sold = items_sold + ? " +
+            "WHERE granularity = ? AND bucket_start = ? AND status = ?";
+
+    private static final String INSERT_ORDERS_SQL =
+            "INSERT INTO order_rollups (id, granularity, bucket_start, status, order_count, revenue, items_sold) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INCREMENT_PRODUCTS_SQL =
+            "UPDATE order_product_rollups SET units = units + ?, revenue = revenue + ? " +
+            "WHERE granularity = ? AND bucket_start = ? AND status = ? AND product_id = ?";
+
+    private static final String INSERT_PRODUCTS_SQL =
+            "INSERT INTO order_product_rollups (id, granularity, bucket_start, status, product_id, units, revenue) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    // Upper bound for ranges left open
+    private static final Instant OPEN_END = Instant.parse("9999-12-31T00:00:00Z");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Adds each delta to its row, inserting the rows that do not exist yet.
+     * Two nodes inserting the same row both try the insert; one fails on the
+     * unique key and the caller retries its deltas.
+     */
+    public int apply(Map<Key, Totals> deltas) {
+        List<Map.Entry<Key, Totals>> orders = new ArrayList<>();
+        List<Map.Entry<Key, Totals>> products = new ArrayList<>();
+        for (Map.Entry<Key, Totals> entry : deltas.entrySet()) {
+            if (entry.getValue().isZero()) continue;
+            (entry.getKey().getProductId() == null ? orders : products).add(entry);
+        }
+
+        List<Map.Entry<Key, Totals>> missingOrders = missing(orders, batch(INCREMENT_ORDERS_SQL, orders, (ps, entry) -> {
+            ps.setLong(1, entry.getValue().getOrders());
+            ps.setBigDecimal(2, entry.getValue().getRevenue());
+            ps.setLong(3, entry.getValue().getUnits());
+            ps.setString(4, entry.getKey().getGranularity().name());
+            ps.setObject(5, toTimestamp(entry.getKey().getBucketStart()));
+            ps.setString(6, entry.getKey().getStatus().name());
+        }));
+        batch(INSERT_ORDERS_SQL, missingOrders, (ps, entry) -> {
+            ps.setString(1, UUID.randomUUID().toString());
+            ps.setString(2, entry.getKey().getGranularity().name());
+            ps.setObject(3, toTimestamp(entry.getKey().getBucketStart()));
+            ps.setString(4, entry.getKey().getStatus().name());
+            ps.setLong(5, entry.getValue().getOrders());
+            ps.setBigDecimal(6, entry.getValue().getRevenue());
+            ps.setLong(7, entry.getValue().getUnits());
+        });
+
+        List<Map.Entry<Key, Totals>> missingProducts = missing(products, batch(INCREMENT_PRODUCTS_SQL, products, (ps, entry) -> {
+            ps.setLong(1, entry.getValue().getUnits());
+            ps.setBigDecimal(2, entry.getValue().getRevenue());
+            ps.setString(3, entry.getKey().getGranularity().name());
+            ps.setObject(4, toTimestamp(entry.getKey().getBucketStart()));
+            ps.setString(5, entry.getKey().getStatus().name());
+            ps.setString(6, entry.getKey().getProductId());
+        }));
+        batch(INSERT_PRODUCTS_SQL, missingProducts, (ps, entry) -> {
+            ps.setString(1, UUID.randomUUID().toString());
+            ps.setString(2, entry.getKey().getGranularity().name());
+            ps.setObject(3, toTimestamp(entry.getKey().getBucketStart()));
+            ps.setString(4, entry.getKey().getStatus().name());
+            ps.setString(5, entry.getKey().getProductId());
+            ps.setLong(6, entry.getValue().getUnits());
+            ps.setBigDecimal(7, entry.getValue().getRevenue());
+        });
+        return orders.size() + products.size();
+    }
+
+    private int[][] batch(String sql, List<Map.Entry<Key, Totals>> entries,
+                          ParameterizedPreparedStatementSetter<Map.Entry<Key, Totals>> setter) {
+        if (entries.isEmpty()) return new int[0][];
+        return jdbcTemplate.batchUpdate(sql, entries, entries.size(), setter);
+    }
+
+    private static List<Map.Entry<Key, Totals>> missing(List<Map.Entry<Key, Totals>> entries, int[][] counts) {
+        List<Map.Entry<Key, Totals>> missing = new ArrayList<>();
+        int i = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count == 0) missing.add(entries.get(i));
+                i++;
+            }
+        }
+        return missing;
+    }
+
+    public boolean isEmpty() {
+        return jdbcTemplate.queryForList("SELECT id FROM order_rollups FETCH FIRST 1 ROWS ONLY", String.class).isEmpty();
+    }
+
+    public Instant findFirstOrderAt() {
+        return toInstant(jdbcTemplate.queryForObject("SELECT MIN(created_at) FROM orders", Timestamp.class));
+    }
+
+    public Instant findLastOrderAt() {
+        return toInstant(jdbcTemplate.queryForObject("SELECT MAX(created_at) FROM orders", Timestamp.class));
+    }
+
+    /**
+     * UTC start of the days with orders created in them that changed since {@code since}.
+     */
+    public List<Instant> findDaysOfOrdersUpdatedSince(Instant since) {
+        Set<Instant> days = new TreeSet<>();
+        jdbcTemplate.query("SELECT created_at FROM orders WHERE updated_at >= ?",
+                rs -> {
+                    days.add(rs.getTimestamp("created_at").toInstant().truncatedTo(ChronoUnit.DAYS));
+                }, toTimestamp(since));
+        return new ArrayList<>(days);
+    }
+
+    /**
+     * Deletes the buckets starting in [from, to) of both tables; null bounds are open.
+     */
+    public void deleteRange(Instant from, Instant to) {
+        String where = " WHERE bucket_start >= ? AND bucket_start < ?";
+        Object[] args = {toTimestamp(from != null ? from : Instant.EPOCH), toTimestamp(to != null ? to : OPEN_END)};
+        jdbcTemplate.update("DELETE FROM order_rollups" + where, args);
+        jdbcTemplate.update("DELETE FROM order_product_rollups" + where, args);
+    }
+
+    /**
+     * Streams the orders created in [from, to): id, status, created_at, total_amount.
+     */
+    public void forEachOrder(Instant from, Instant to, RowCallbackHandler handler) {
+        jdbcTemplate.query("SELECT id, status, created_at, total_amount FROM orders WHERE created_at >= ? AND created_at < ?",
+                handler, toTimestamp(from != null ? from : Instant.EPOCH), toTimestamp(to != null ? to : OPEN_END));
+    }
+
+    /**
+     * Streams the items of the orders created in [from, to): order_id, product_id, quantity, total_price.
+     */
+    public void forEachOrderItem(Instant from, Instant to, RowCallbackHandler handler) {
+        jdbcTemplate.query("SELECT i.order_id, i.product_id, i.quantity, i.total_price FROM order_items i " +
+                "JOIN orders o ON o.id = i.order_id WHERE o.created_at >= ? AND o.created_at < ?",
+                handler, toTimestamp(from != null ? from : Instant.EPOCH), toTimestamp(to != null ? to : OPEN_END));
+    }
+
+    /**
+     * Sums the buckets of the given spans per status.
+     */
+    public Map<Order.OrderStatus, Totals> sumByStatus(List<Span> spans, Order.OrderStatus status) {
+        List<Object> args = new ArrayList<>();
+        String where = where(spans, status, args);
+        Map<Order.OrderStatus, Totals> totals = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT status, SUM(order_count) AS orders, SUM(revenue) AS revenue, SUM(items_sold) AS units " +
+                "FROM order_rollups WHERE " + where + " GROUP BY status", rs -> {
+            totals.put(Order.OrderStatus.valueOf(rs.getString("status")),
+                    new Totals(rs.getLong("orders"), rs.getBigDecimal("revenue"), rs.getLong("units")));
+        }, args.toArray());
+        return totals;
+    }
+
+    /**
+     * The products with the most units in the buckets of the given spans.
+     */
+    public List<ProductTotals> topProducts(List<Span> spans, Order.OrderStatus status, int limit) {
+        List<Object> args = new ArrayList<>();
+        String where = where(spans, status, args);
+        args.add(limit);
+        return jdbcTemplate.query("SELECT r.product_id, p.name, SUM(r.units) AS units, SUM(r.revenue) AS revenue " +
+                "FROM order_product_rollups r LEFT JOIN products p ON p.id = r.product_id WHERE " + where +
+                " GROUP BY r.product_id, p.name HAVING SUM(r.units) > 0 ORDER BY SUM(r.units) DESC, r.product_id FETCH FIRST ? ROWS ONLY",
+                (rs, rowNum) -> new ProductTotals(rs.getString("product_id"), rs.getString("name"),
+                        rs.getLong("units"), rs.getBigDecimal("revenue")),
+                args.toArray());
+    }
+
+    private static String where(List<Span> spans, Order.OrderStatus status, List<Object> args) {
+        StringBuilder where = new StringBuilder("(");
+        for (Span span : spans) {
+            if (where.length() > 1) where.append(" OR ");
+            where.append("(granularity = ? AND bucket_start >= ? AND bucket_start < ?)");
+            args.add(span.getGranularity().name());
+            args.add(toTimestamp(span.getFrom()));
+            args.add(toTimestamp(span.getTo()));
+        }
+        if (spans.isEmpty()) where.append("1 = 0");
+        where.append(")");
+        if (status != null) {
+            where.append(" AND status = ?");
+            args.add(status.name());
+        }
+        return where.toString();
+    }
+
+    private static OffsetDateTime toTimestamp(Instant instant) {
+        return instant.atOffset(ZoneOffset.UTC);
+    }
+
+    private static Instant toInstant(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toInstant() : null;
+    }
+
+    /**
+     * One rollup row: an order_rollups row when productId is null, an
+     * order_product_rollups row otherwise.
+     */
+    public static final class Key {
+        private final OrderRollup.Granularity granularity;
+        private final Instant bucketStart;
+        private final Order.OrderStatus status;
+        private final String productId;
+
+        public Key(OrderRollup.Granularity granularity, Instant bucketStart, Order.OrderStatus status, String productId) {
+            this.granularity = granularity;
+            this.bucketStart = bucketStart;
+            this.status = status;
+            this.productId = productId;
+        }
+
+        public OrderRollup.Granularity getGranularity() { return granularity; }
+
+        public Instant getBucketStart() { return bucketStart; }
+
+        public Order.OrderStatus getStatus() { return status; }
+
+        public String getProductId() { return productId; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return granularity == key.granularity && bucketStart.equals(key.bucketStart)
+                    && status == key.status && Objects.equals(productId, key.productId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(granularity, bucketStart, status, productId);
+        }
+    }
+
+    /**
+     * Orders, revenue and units (items sold) of a rollup row or delta.
+     * Product rows leave orders at zero.
+     */
+    public static final class Totals {
+        private final long orders;
+        private final BigDecimal revenue;
+        private final long units;
+
+        public Totals(long orders, BigDecimal revenue, long units) {
+            this.orders = orders;
+            this.revenue = revenue != null ? revenue : BigDecimal.ZERO;
+            this.units = units;
+        }
+
+        public long getOrders() { return orders; }
+
+        public BigDecimal getRevenue() { return revenue; }
+
+        public long getUnits() { return units; }
+
+        public Totals plus(Totals other) {
+            return new Totals(orders + other.orders, revenue.add(other.revenue), units + other.units);
+        }
+
+        public Totals negate() {
+            return new Totals(-orders, revenue.negate(), -units);
+        }
+
+        public boolean isZero() {
+            return orders == 0 && units == 0 && revenue.signum() == 0;
+        }
+    }
+
+    public static final class ProductTotals {
+        private final String productId;
+        private final String name;
+        private final long units;
+        private final BigDecimal revenue;
+
+        public ProductTotals(String productId, String name, long units, BigDecimal revenue) {
+            this.productId = productId;
+            this.name = name;
+            this.units = units;
+            this.revenue = revenue;
+        }
+
+        public String getProductId() { return productId; }
+
+        public String getName() { return name; }
+
+        public long getUnits() { return units; }
+
+        public BigDecimal getRevenue() { return revenue; }
+    }
+
+    /**
+     * Buckets of one granularity starting in [from, to).
+     */
+    public static final class Span {
+        private final OrderRollup.Granularity granularity;
+        private final Instant from;
+        private final Instant to;
+
+        public Span(OrderRollup.Granularity granularity, Instant from, Instant to) {
+            this.granularity = granularity;
+            this.from = from;
+            this.to = to;
+        }
+
+        public OrderRollup.Granularity getGranularity() { return granularity; }
+
+        public Instant getFrom() { return from; }
+
+        public Instant getTo() { return to; }
+    }
+}
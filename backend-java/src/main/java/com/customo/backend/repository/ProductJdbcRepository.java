@@ -0,0 +1,43 @@
+package com.customo.backend.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Set-based JDBC writes for checkout, where taking stock one product at a
+ * time through the entity would cost a round trip each.
+ */
+@Repository
+public class ProductJdbcRepository {
+
+    private static final String TAKE_STOCK_SQL =
+            "UPDATE products SET stock_quantity = stock_quantity - ? WHERE id = ? AND is_active = TRUE AND stock_quantity >= ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Takes the given quantity of each product in one batch. Returns the
+     * products that did not have enough stock; the caller rolls back.
+     */
+    public List<String> takeStock(Map<String, Integer> quantities) {
+        if (quantities.isEmpty()) return List.of();
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(quantities.entrySet());
+        int[][] counts = jdbcTemplate.batchUpdate(TAKE_STOCK_SQL, entries, entries.size(), (ps, entry) -> {
+            ps.setInt(1, entry.getValue());
+            ps.setString(2, entry.getKey());
+            ps.setInt(3, entry.getValue());
+        });
+
+        List<String> insufficient = new ArrayList<>();
+        for (int i = 0; i < entries.size(); i++) {
+            if (counts[0][i] == 0) insufficient.add(entries.get(i).getKey());
+        }
+        return insufficient;
+    }
+}
@@ -4,10 +4,12 @@ import com.customo.backend.entity.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -34,13 +36,21 @@ public interface ProductRepository extends JpaRepository<Product, String> {
            "LOWER(p.category) LIKE LOWER(CONCAT('%', :searchTerm, '%')))")
     Page<Product> searchProducts(@Param("searchTerm") String searchTerm, Pageable pageable);
     
-    @Query("SELECT DISTINCT p.category FROM Product p WHERE p.isActive = true ORDER BY p.category")
-    List<String> findDistinctCategories();
-    
-    @Query("SELECT DISTINCT p.brand FROM Product p WHERE p.isActive = true ORDER BY p.brand")
-    List<String> findDistinctBrands();
-    
     Optional<Product> findBySkuAndIsActiveTrue(String sku);
     
     List<Product> findByStockQuantityLessThanAndIsActiveTrue(Integer threshold);
+
+    // {id, stockQuantity} of each of the products
+    @Query("SELECT p.id, p.stockQuantity FROM Product p WHERE p.id IN :ids")
+    List<Object[]> findStockByIdIn(@Param("ids") Collection<String> ids);
+
+    // Takes stock only if enough is left; the row lock makes concurrent takes queue rather than oversell
+    @Modifying
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity - :quantity " +
+           "WHERE p.id = :id AND p.isActive = true AND p.stockQuantity >= :quantity")
+    int takeStock(@Param("id") String id, @Param("quantity") int quantity);
+
+    @Modifying
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity + :quantity WHERE p.id = :id")
+    int returnStock(@Param("id") String id, @Param("quantity") int quantity);
 }
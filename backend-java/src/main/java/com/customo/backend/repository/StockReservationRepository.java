@@ -0,0 +1,36 @@
+package com.customo.backend.repository;
+
+import com.customo.backend.entity.StockReservation;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, String> {
+
+    // Serializes concurrent changes to the same cart line
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM StockReservation r WHERE r.userId = :userId AND r.productId = :productId")
+    Optional<StockReservation> findForUpdate(@Param("userId") String userId, @Param("productId") String productId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM StockReservation r WHERE r.userId = :userId")
+    List<StockReservation> findByUserIdForUpdate(@Param("userId") String userId);
+
+    @Query("SELECT r FROM StockReservation r WHERE r.expiresAt < :now ORDER BY r.expiresAt")
+    List<StockReservation> findExpired(@Param("now") Instant now, Pageable limit);
+
+    // Loses to a renewal that moved expiresAt after the row was read
+    @Modifying
+    @Query("DELETE FROM StockReservation r WHERE r.id = :id AND r.expiresAt < :now")
+    int deleteIfExpired(@Param("id") String id, @Param("now") Instant now);
+}
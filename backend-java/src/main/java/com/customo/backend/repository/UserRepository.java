@@ -1,9 +1,23 @@
 package com.customo.backend.repository;
 
 import com.customo.backend.entity.User;
+import com.customo.backend.security.AuthenticatedUser;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, String> {
     Optional<User> findByEmail(String email);
+
+    @Query("SELECT new com.customo.backend.security.AuthenticatedUser(u.id, u.email, u.role, u.isActive) FROM User u WHERE u.id = :id")
+    Optional<AuthenticatedUser> findPrincipalById(@Param("id") String id);
+
+    // Only replaces the hash that was checked, so a concurrent password change wins
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.password = :newHash WHERE u.id = :id AND u.password = :oldHash")
+    int replacePasswordHash(@Param("id") String id, @Param("oldHash") String oldHash, @Param("newHash") String newHash);
 }
@@ -0,0 +1,37 @@
+package com.customo.backend.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+
+/**
+ * The caller of a request, as resolved by JwtAuthenticationFilter. Immutable,
+ * so one instance is shared by all requests of the user while it is cached.
+ * Controllers take it with {@code @AuthenticationPrincipal}.
+ */
+public final class AuthenticatedUser {
+    private final String id;
+    private final String email;
+    private final String role;
+    private final boolean active;
+    private final List<GrantedAuthority> authorities;
+
+    public AuthenticatedUser(String id, String email, String role, boolean active) {
+        this.id = id;
+        this.email = email;
+        this.role = role;
+        this.active = active;
+        this.authorities = role != null ? List.of(new SimpleGrantedAuthority("ROLE_" + role)) : List.of();
+    }
+
+    public String getId() { return id; }
+
+    public String getEmail() { return email; }
+
+    public String getRole() { return role; }
+
+    public boolean isActive() { return active; }
+
+    public List<GrantedAuthority> getAuthorities() { return authorities; }
+}
@@ -0,0 +1,43 @@
+package com.customo.backend.security;
+
+import com.customo.backend.repository.UserRepository;
+import com.customo.backend.util.BoundedCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Principals by user id, loaded with one narrow query instead of the User
+ * entity. Code changing a user's password, role or active flag calls
+ * {@link #invalidate}, so the change takes effect at once on this node and
+ * within security.principals.ttl-ms on the others.
+ */
+@Component
+public class AuthenticatedUserCache {
+
+    private final UserRepository userRepository;
+    private final BoundedCache<String, Optional<AuthenticatedUser>> principals;
+    private final long ttlMs;
+
+    public AuthenticatedUserCache(UserRepository userRepository,
+                                  @Value("${security.principals.max-size:10000}") long maxSize,
+                                  @Value("${security.principals.ttl-ms:60000}") long ttlMs) {
+        this.userRepository = userRepository;
+        this.principals = new BoundedCache<>(maxSize, principal -> 1);
+        this.ttlMs = ttlMs;
+    }
+
+    public Optional<AuthenticatedUser> get(String userId) {
+        return principals.get(userId, userRepository::findPrincipalById, ttlMs);
+    }
+
+    public void invalidate(String userId) {
+        principals.invalidate(userId);
+    }
+
+    public Map<String, Object> getStats() {
+        return principals.getStats();
+    }
+}
@@ -0,0 +1,70 @@
+package com.customo.backend.security;
+
+import com.customo.backend.util.JwtUtil;
+import io.jsonwebtoken.JwtException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Authenticates a request from its bearer token: the token is verified once
+ * (JwtUtil caches the result) and the principal comes from
+ * AuthenticatedUserCache, so an authenticated request loads no User entity.
+ * A missing or invalid token, or an inactive user, leaves the request
+ * anonymous; SecurityConfig decides whether that is allowed.
+ *
+ * Not a bean on purpose: Spring Boot would also register a bean filter with
+ * the servlet container, outside the security chain.
+ */
+public class JwtAuthenticationFilter extends OncePerRequestFilter {
+
+    // EventSource cannot set headers, so the device stream takes the token as a parameter
+    private static final String QUERY_TOKEN_PATH = "/api/devices/stream";
+
+    private final JwtUtil jwtUtil;
+    private final AuthenticatedUserCache authenticatedUserCache;
+
+    public JwtAuthenticationFilter(JwtUtil jwtUtil, AuthenticatedUserCache authenticatedUserCache) {
+        this.jwtUtil = jwtUtil;
+        this.authenticatedUserCache = authenticatedUserCache;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String token = token(request);
+        if (token != null) {
+            try {
+                String userId = jwtUtil.verify(token).getUserId();
+                authenticatedUserCache.get(userId)
+                        .filter(AuthenticatedUser::isActive)
+                        .ifPresent(principal -> {
+                            SecurityContext context = SecurityContextHolder.createEmptyContext();
+                            context.setAuthentication(new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+                            SecurityContextHolder.setContext(context);
+                        });
+            } catch (JwtException | IllegalArgumentException e) {
+                // Not authenticated
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private static String token(HttpServletRequest request) {
+        String auth = request.getHeader("Authorization");
+        if (auth != null && auth.startsWith("Bearer ")) {
+            return auth.substring("Bearer ".length());
+        }
+        if (QUERY_TOKEN_PATH.equals(request.getRequestURI())) {
+            return request.getParameter("access_token");
+        }
+        return null;
+    }
+}
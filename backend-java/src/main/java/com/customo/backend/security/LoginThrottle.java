@@ -0,0 +1,117 @@
+package com.customo.backend.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sliding-window limits on login, checked before any password is hashed:
+ * every attempt counts against the client address, and failed attempts count
+ * against the email until a login for it succeeds. Held per node in memory.
+ */
+@Component
+public class LoginThrottle {
+
+    private final int maxPerAddress;
+    private final int maxFailuresPerEmail;
+    private final long windowMs;
+    private final Map<String, SlidingWindow> addresses = new ConcurrentHashMap<>();
+    private final Map<String, SlidingWindow> emails = new ConcurrentHashMap<>();
+    private final AtomicLong throttled = new AtomicLong();
+
+    public LoginThrottle(@Value("${security.login.max-attempts-per-address:20}") int maxPerAddress,
+                         @Value("${security.login.max-failures-per-email:5}") int maxFailuresPerEmail,
+                         @Value("${security.login.window-ms:300000}") long windowMs) {
+        this.maxPerAddress = maxPerAddress;
+        this.maxFailuresPerEmail = maxFailuresPerEmail;
+        this.windowMs = windowMs;
+    }
+
+    /**
+     * Records an attempt and returns 0 when it may go ahead, or how many
+     * milliseconds to wait before the next one is allowed.
+     */
+    public long tryAcquire(String email, String address) {
+        long now = System.currentTimeMillis();
+        SlidingWindow failures = emails.get(key(email));
+        long wait = failures != null ? failures.waitMs(now, windowMs) : 0;
+        if (wait == 0) {
+            wait = addresses.computeIfAbsent(address, a -> new SlidingWindow(maxPerAddress)).acquire(now, windowMs);
+        }
+        if (wait > 0) throttled.incrementAndGet();
+        return wait;
+    }
+
+    public void recordFailure(String email) {
+        emails.computeIfAbsent(key(email), e -> new SlidingWindow(maxFailuresPerEmail))
+                .acquire(System.currentTimeMillis(), windowMs);
+    }
+
+    public void recordSuccess(String email) {
+        emails.remove(key(email));
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("addresses", addresses.size());
+        metrics.put("emails", emails.size());
+        metrics.put("throttled", throttled.get());
+        return metrics;
+    }
+
+    @Scheduled(fixedDelayString = "${security.login.window-ms:300000}", initialDelayString = "${security.login.window-ms:300000}")
+    public void purge() {
+        long now = System.currentTimeMillis();
+        addresses.values().removeIf(window -> window.isEmpty(now, windowMs));
+        emails.values().removeIf(window -> window.isEmpty(now, windowMs));
+    }
+
+    private static String key(String email) {
+        return email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Times of the last max events, oldest first in a ring.
+     */
+    private static final class SlidingWindow {
+        private final long[] times;
+        private int head;
+        private int size;
+
+        SlidingWindow(int max) {
+            this.times = new long[Math.max(1, max)];
+        }
+
+        // Adds an event at now unless the window is full
+        synchronized long acquire(long now, long windowMs) {
+            long wait = waitMs(now, windowMs);
+            if (wait > 0) return wait;
+            times[(head + size) % times.length] = now;
+            size++;
+            return 0;
+        }
+
+        synchronized long waitMs(long now, long windowMs) {
+            expire(now, windowMs);
+            return size < times.length ? 0 : times[head] + windowMs - now;
+        }
+
+        synchronized boolean isEmpty(long now, long windowMs) {
+            expire(now, windowMs);
+            return size == 0;
+        }
+
+        private void expire(long now, long windowMs) {
+            while (size > 0 && times[head] + windowMs <= now) {
+                head = (head + 1) % times.length;
+                size--;
+            }
+        }
+    }
+}
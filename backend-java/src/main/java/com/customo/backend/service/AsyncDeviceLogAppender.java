@@ -0,0 +1,429 @@
+package com.customo.backend.service;
+
+import com.customo.backend.entity.Device;
+import com.customo.backend.entity.DeviceLog;
+import com.customo.backend.repository.DeviceJdbcRepository;
+import com.customo.backend.util.TimeOrderedIds;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Queues device log events on a bounded lock-free queue and inserts them from a
+ * single background writer in JDBC batches. Events are only queued once the
+ * surrounding transaction commits, so a rolled back request never logs.
+ */
+@Component
+@ConditionalOnProperty(name = "devices.logs.appender", havingValue = "async", matchIfMissing = true)
+public class AsyncDeviceLogAppender implements DeviceLogAppender {
+
+    public enum BackpressurePolicy {
+        // Wait up to devices.logs.block-timeout-ms for space, then drop
+        BLOCK,
+        // Drop DEBUG events above 80% of capacity and everything else once full
+        DROP_DEBUG,
+        // Append overflow to devices.logs.spill-path and replay it when the queue drains
+        SPILL
+    }
+
+    @Autowired
+    private DeviceJdbcRepository deviceJdbcRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private DeviceFleetSummary deviceFleetSummary;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Value("${devices.logs.queue-capacity:10000}")
+    private int capacity;
+
+    @Value("${devices.logs.batch-size:500}")
+    private int batchSize;
+
+    @Value("${devices.logs.linger-ms:200}")
+    private long lingerMs;
+
+    @Value("${devices.logs.backpressure:BLOCK}")
+    private BackpressurePolicy policy;
+
+    @Value("${devices.logs.block-timeout-ms:1000}")
+    private long blockTimeoutMs;
+
+    @Value("${devices.logs.retry-backoff-ms:100}")
+    private long retryBackoffMs;
+
+    @Value("${devices.logs.retry-backoff-max-ms:5000}")
+    private long retryBackoffMaxMs;
+
+    @Value("${devices.logs.spill-path:${java.io.tmpdir}/customo-device-logs.spill}")
+    private String spillPath;
+
+    private final Queue<DeviceLog> queue = new ConcurrentLinkedQueue<>();
+    // Slots reserved by producers; the queue itself is unbounded, capacity is enforced here
+    private final AtomicInteger depth = new AtomicInteger();
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong spilled = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong flushNanosTotal = new AtomicLong();
+    private final AtomicLong flushNanosMax = new AtomicLong();
+    private final AtomicLong flushNanosLast = new AtomicLong();
+
+    private final Object spillLock = new Object();
+    private BufferedWriter spillWriter;
+    private volatile boolean spillPending;
+    private volatile boolean lastWriteSucceeded = true;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    @PostConstruct
+    public void start() {
+        spillPending = Files.exists(Path.of(spillPath)) || Files.exists(replayPath());
+        running = true;
+        writer = new Thread(this::runWriter, "device-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+        synchronized (spillLock) {
+            closeSpillWriter();
+        }
+    }
+
+    @Override
+    public void append(DeviceLog log) {
+        appendAll(List.of(log));
+    }
+
+    @Override
+    public void appendAll(List<DeviceLog> logs) {
+        if (logs.isEmpty()) return;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // The device row a log points at may not be visible to the writer until the caller commits
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    logs.forEach(AsyncDeviceLogAppender.this::enqueue);
+                }
+            });
+        } else {
+            logs.forEach(this::enqueue);
+        }
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        long flushCount = flushes.get();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("appender", "async");
+        metrics.put("backpressure", policy.name());
+        metrics.put("queueDepth", depth.get());
+        metrics.put("queueCapacity", capacity);
+        metrics.put("enqueued", enqueued.get());
+        metrics.put("written", written.get());
+        metrics.put("dropped", dropped.get());
+        metrics.put("spilled", spilled.get());
+        metrics.put("failed", failed.get());
+        metrics.put("retries", retries.get());
+        metrics.put("flushes", flushCount);
+        metrics.put("lastFlushMs", nanosToMillis(flushNanosLast.get()));
+        metrics.put("avgFlushMs", flushCount == 0 ? 0.0 : nanosToMillis(flushNanosTotal.get() / flushCount));
+        metrics.put("maxFlushMs", nanosToMillis(flushNanosMax.get()));
+        return metrics;
+    }
+
+    private void enqueue(DeviceLog log) {
+        if (log.getId() == null) {
+            // Assigned up front so a spilled and replayed event keeps its identity
+            log.setId(TimeOrderedIds.next());
+        }
+        int limit = policy == BackpressurePolicy.DROP_DEBUG && log.getLevel() == DeviceLog.LogLevel.DEBUG
+                ? capacity * 8 / 10
+                : capacity;
+        if (!tryReserve(limit)) {
+            switch (policy) {
+                case SPILL -> {
+                    spill(List.of(log));
+                    return;
+                }
+                case BLOCK -> {
+                    if (!awaitReserve(limit)) {
+                        dropped.incrementAndGet();
+                        return;
+                    }
+                }
+                case DROP_DEBUG -> {
+                    dropped.incrementAndGet();
+                    return;
+                }
+            }
+        }
+        queue.offer(log);
+        enqueued.incrementAndGet();
+        if (depth.get() >= batchSize) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private boolean tryReserve(int limit) {
+        while (true) {
+            int current = depth.get();
+            if (current >= limit) return false;
+            if (depth.compareAndSet(current, current + 1)) return true;
+        }
+    }
+
+    private boolean awaitReserve(int limit) {
+        LockSupport.unpark(writer);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(blockTimeoutMs);
+        while (running && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+            if (tryReserve(limit)) return true;
+        }
+        return false;
+    }
+
+    private void runWriter() {
+        long lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMs);
+        List<DeviceLog> batch = new ArrayList<>(batchSize);
+        long batchStarted = 0;
+        long backoffMs = 0;
+        int shutdownAttempts = 0;
+        while (running || depth.get() > 0 || !batch.isEmpty()) {
+            DeviceLog log;
+            while (batch.size() < batchSize && (log = queue.poll()) != null) {
+                depth.decrementAndGet();
+                if (batch.isEmpty()) batchStarted = System.nanoTime();
+                batch.add(log);
+            }
+
+            long waited = System.nanoTime() - batchStarted;
+            if (!batch.isEmpty() && (batch.size() >= batchSize || waited >= lingerNanos || !running)) {
+                batch.subList(0, write(batch)).clear();
+                if (batch.isEmpty()) {
+                    backoffMs = 0;
+                } else if (policy == BackpressurePolicy.SPILL) {
+                    spill(batch);
+                    batch.clear();
+                } else if (!running && ++shutdownAttempts > 3) {
+                    failed.addAndGet(batch.size());
+                    batch.clear();
+                } else {
+                    // Keep the batch and retry it once the database is back; the full queue pushes back on producers
+                    retries.incrementAndGet();
+                    backoffMs = backoffMs == 0 ? retryBackoffMs : Math.min(backoffMs * 2, retryBackoffMaxMs);
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(backoffMs));
+                }
+            } else if (batch.isEmpty() && spillPending && lastWriteSucceeded && running) {
+                replaySpill();
+            } else {
+                LockSupport.parkNanos(batch.isEmpty() ? lingerNanos : lingerNanos - waited);
+            }
+        }
+    }
+
+    // Returns how many leading logs of the batch are done with; the rest hit a transient error
+    private int write(List<DeviceLog> batch) {
+        long started = System.nanoTime();
+        try {
+            insert(batch);
+            return batch.size();
+        } catch (DataIntegrityViolationException e) {
+            // Isolate the rows that cannot be written, e.g. logs of a device deleted in the meantime
+            for (int i = 0; i < batch.size(); i++) {
+                try {
+                    insert(List.of(batch.get(i)));
+                } catch (DataIntegrityViolationException rowError) {
+                    failed.incrementAndGet();
+                } catch (RuntimeException rowError) {
+                    lastWriteSucceeded = false;
+                    return i;
+                }
+            }
+            return batch.size();
+        } catch (RuntimeException e) {
+            lastWriteSucceeded = false;
+            return 0;
+        } finally {
+            long elapsed = System.nanoTime() - started;
+            flushes.incrementAndGet();
+            flushNanosTotal.addAndGet(elapsed);
+            flushNanosLast.set(elapsed);
+            flushNanosMax.accumulateAndGet(elapsed, Math::max);
+        }
+    }
+
+    private void insert(List<DeviceLog> logs) {
+        transactionTemplate.executeWithoutResult(status -> deviceJdbcRepository.batchInsertLogs(logs));
+        written.addAndGet(logs.size());
+        deviceFleetSummary.recordLogs(logs);
+        resourceVersions.recordLogs(logs);
+        lastWriteSucceeded = true;
+    }
+
+    private void spill(List<DeviceLog> logs) {
+        synchronized (spillLock) {
+            try {
+                if (spillWriter == null) {
+                    spillWriter = Files.newBufferedWriter(Path.of(spillPath), StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                }
+                for (DeviceLog log : logs) {
+                    spillWriter.write(toSpillLine(log));
+                    spillWriter.newLine();
+                }
+                spillWriter.flush();
+                spilled.addAndGet(logs.size());
+                spillPending = true;
+            } catch (IOException e) {
+                dropped.addAndGet(logs.size());
+            }
+        }
+    }
+
+    private void replaySpill() {
+        Path replay = replayPath();
+        synchronized (spillLock) {
+            spillPending = false;
+            try {
+                closeSpillWriter();
+                if (!Files.exists(replay)) {
+                    Path spill = Path.of(spillPath);
+                    if (!Files.exists(spill)) return;
+                    Files.move(spill, replay, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException e) {
+                return;
+            }
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(replay, StandardCharsets.UTF_8)) {
+            List<DeviceLog> batch = new ArrayList<>(batchSize);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) continue;
+                batch.add(fromSpillLine(line));
+                if (batch.size() >= batchSize) {
+                    replay(batch);
+                }
+            }
+            replay(batch);
+            Files.delete(replay);
+        } catch (IOException | RuntimeException e) {
+            // Leave the replay file in place; it is retried on the next idle cycle or restart
+            spillPending = true;
+        }
+    }
+
+    private void replay(List<DeviceLog> batch) {
+        if (batch.isEmpty()) return;
+        if (write(batch) < batch.size()) {
+            throw new IllegalStateException("Database unavailable while replaying spilled device logs");
+        }
+        batch.clear();
+    }
+
+    private Path replayPath() {
+        return Path.of(spillPath + ".replay");
+    }
+
+    private void closeSpillWriter() {
+        if (spillWriter == null) return;
+        try {
+            spillWriter.close();
+        } catch (IOException ignored) {
+            // Nothing left to flush that we could recover
+        }
+        spillWriter = null;
+    }
+
+    private static String toSpillLine(DeviceLog log) {
+        return String.join("\t",
+                log.getId(),
+                log.getDevice().getId(),
+                log.getLevel().name(),
+                log.getTimestamp().toString(),
+                escape(log.getMessage()),
+                escape(log.getDetails()),
+                escape(log.getUserId()));
+    }
+
+    private static DeviceLog fromSpillLine(String line) {
+        String[] fields = line.split("\t", -1);
+        Device device = new Device();
+        device.setId(fields[1]);
+        DeviceLog log = new DeviceLog(device, DeviceLog.LogLevel.valueOf(fields[2]), unescape(fields[4]));
+        log.setId(fields[0]);
+        log.setTimestamp(Instant.parse(fields[3]));
+        log.setDetails(unescape(fields[5]));
+        if (fields.length > 6) {
+            log.setUserId(unescape(fields[6]));
+        }
+        return log;
+    }
+
+    private static String escape(String value) {
+        if (value == null) return "\\N";
+        return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private static String unescape(String value) {
+        if (value.equals("\\N")) return null;
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                sb.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static double nanosToMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
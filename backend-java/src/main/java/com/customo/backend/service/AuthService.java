@@ -3,22 +3,28 @@ package com.customo.backend.service;
 import com.customo.backend.dto.*;
 import com.customo.backend.entity.User;
 import com.customo.backend.repository.UserRepository;
+import com.customo.backend.security.AuthenticatedUserCache;
+import com.customo.backend.security.PasswordHasher;
 import com.customo.backend.util.JwtUtil;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
 
 @Service
 public class AuthService {
     private final UserRepository userRepository;
-    private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder(12);
+    private final PasswordHasher passwordHasher;
     private final JwtUtil jwtUtil;
+    private final AuthenticatedUserCache authenticatedUserCache;
 
-    public AuthService(UserRepository userRepository, JwtUtil jwtUtil) {
+    public AuthService(UserRepository userRepository, PasswordHasher passwordHasher, JwtUtil jwtUtil,
+                       AuthenticatedUserCache authenticatedUserCache) {
         this.userRepository = userRepository;
+        this.passwordHasher = passwordHasher;
         this.jwtUtil = jwtUtil;
+        this.authenticatedUserCache = authenticatedUserCache;
     }
 
     public AuthResponse register(RegisterRequest req) {
@@ -28,7 +34,7 @@ public class AuthService {
         User u = new User();
         u.setId(UUID.randomUUID().toString());
         u.setEmail(req.email);
-        u.setPassword(passwordEncoder.encode(req.password));
+        u.setPassword(passwordHasher.encode(req.password));
         u.setFirstName(req.firstName);
         u.setLastName(req.lastName);
         u.setPhone(req.phone);
@@ -37,26 +43,27 @@ public class AuthService {
 
         AuthResponse resp = new AuthResponse();
         resp.token = jwtUtil.generateToken(u.getId(), u.getEmail());
-        AuthResponse.UserDTO userDTO = new AuthResponse.UserDTO();
-        userDTO.id = u.getId(); userDTO.email = u.getEmail(); userDTO.firstName = u.getFirstName();
-        userDTO.lastName = u.getLastName(); userDTO.phone = u.getPhone(); userDTO.company = u.getCompany();
-        userDTO.role = u.getRole();
-        resp.user = userDTO;
+        resp.user = toUserDto(u);
         return resp;
     }
 
     public AuthResponse login(AuthRequest req) {
         User u = userRepository.findByEmail(req.email).orElseThrow(() -> new IllegalArgumentException("Invalid credentials"));
         if (!u.isActive()) throw new IllegalArgumentException("Invalid credentials");
-        if (!passwordEncoder.matches(req.password, u.getPassword())) throw new IllegalArgumentException("Invalid credentials");
+        if (!passwordHasher.matches(req.password, u.getPassword())) throw new IllegalArgumentException("Invalid credentials");
+        if (passwordHasher.needsRehash(u.getPassword())) rehash(u, req.password);
         AuthResponse resp = new AuthResponse();
         resp.token = jwtUtil.generateToken(u.getId(), u.getEmail());
+        resp.user = toUserDto(u);
+        return resp;
+    }
+
+    public AuthResponse.UserDTO toUserDto(User u) {
         AuthResponse.UserDTO userDTO = new AuthResponse.UserDTO();
         userDTO.id = u.getId(); userDTO.email = u.getEmail(); userDTO.firstName = u.getFirstName();
         userDTO.lastName = u.getLastName(); userDTO.phone = u.getPhone(); userDTO.company = u.getCompany();
-        userDTO.role = u.getRole();
-        resp.user = userDTO;
-        return resp;
+        userDTO.role = u.getRole(); userDTO.createdAt = u.getCreatedAt(); userDTO.updatedAt = u.getUpdatedAt();
+        return userDTO;
     }
 
     public User findById(String id) {
@@ -74,8 +81,19 @@ public class AuthService {
 
     public void changePassword(String id, ChangePasswordRequest req) {
         User u = userRepository.findById(id).orElseThrow(() -> new IllegalArgumentException("User not found"));
-        if (!passwordEncoder.matches(req.currentPassword, u.getPassword())) throw new IllegalArgumentException("Current password is incorrect");
-        u.setPassword(passwordEncoder.encode(req.newPassword));
+        if (!passwordHasher.matches(req.currentPassword, u.getPassword())) throw new IllegalArgumentException("Current password is incorrect");
+        u.setPassword(passwordHasher.encode(req.newPassword));
         userRepository.save(u);
+        // The next request loads the account afresh, with whatever role and active flag it has now
+        authenticatedUserCache.invalidate(id);
+    }
+
+    // Moves the stored hash to the configured cost; left for a later login when hashing is busy
+    private void rehash(User u, String password) {
+        try {
+            userRepository.replacePasswordHash(u.getId(), u.getPassword(), passwordHasher.encode(password));
+        } catch (RejectedExecutionException e) {
+            // Keep the old hash
+        }
     }
 }
@@ -0,0 +1,49 @@
+package com.customo.backend.service;
+
+import com.customo.backend.dto.CartView;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Where cart lines live between requests. Selected with {@code cart.store}:
+ * {@code jpa} reads and writes cart_items in every request, {@code memory}
+ * caches carts on the node and coalesces their cart_items writes. Either
+ * way stock reservations are written in the request that changes the cart.
+ */
+public interface CartStore {
+
+    CartView getCart(String userId);
+
+    CartView getSummary(String userId);
+
+    /**
+     * Adds to the user's line for the product, creating it if needed. Empty
+     * when the product does not exist or is inactive; throws
+     * IllegalStateException when the stock cannot be reserved.
+     */
+    Optional<CartView.Line> addItem(String userId, String productId, int quantity);
+
+    /**
+     * Sets the quantity of one of the user's lines. Empty when the line does
+     * not exist or belongs to someone else.
+     */
+    Optional<CartView.Line> updateItem(String userId, String cartItemId, int quantity);
+
+    boolean removeItem(String userId, String cartItemId);
+
+    void clear(String userId);
+
+    /**
+     * Runs {@code checkout} with cart_items current for the user, and keeps
+     * changes to the cart from starting until it returns, so none lands
+     * between the checkout reading the cart and emptying it.
+     */
+    default <T> T checkout(String userId, Supplier<T> checkout) {
+        // cart_items is always current here, and checkout locks cart_summaries like every cart change
+        return checkout.get();
+    }
+
+    Map<String, Object> getMetrics();
+}
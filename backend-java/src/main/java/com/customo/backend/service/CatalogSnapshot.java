@@ -0,0 +1,221 @@
+package com.customo.backend.service;
+
+import com.customo.backend.dto.ApiResponse;
+import com.customo.backend.dto.PageResponse;
+import com.customo.backend.dto.ProductDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pre-serialized response bodies for the catalog reads that do not filter:
+ * every active product, the unfiltered list pages of the standard size, and
+ * the category and brand lists. The bodies sit in one direct buffer outside
+ * the heap and are copied to the response as they are, so serving one does
+ * no entity loading, DTO conversion or JSON writing.
+ *
+ * A snapshot is only served while it matches the current catalog version;
+ * after a change requests fall back to the normal path until the rebuild,
+ * which runs within catalog.snapshot.check-ms.
+ */
+@Component
+public class CatalogSnapshot {
+
+    private static final ThreadLocal<byte[]> TRANSFER_BUFFER = ThreadLocal.withInitial(() -> new byte[8192]);
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${catalog.snapshot.enabled:false}")
+    private boolean enabled;
+
+    @Value("${catalog.snapshot.page-size:20}")
+    private int pageSize;
+
+    @Value("${catalog.snapshot.max-age-ms:300000}")
+    private long maxAgeMs;
+
+    private volatile Snapshot current;
+    private final AtomicLong served = new AtomicLong();
+    private final AtomicLong builds = new AtomicLong();
+
+    public Body product(String id) {
+        Snapshot snapshot = usable();
+        // A product whose stock moved since the build carries a newer tag than its body
+        if (snapshot == null || resourceVersions.productVersion(id) > snapshot.version) return null;
+        return snapshot.products.get(id);
+    }
+
+    public Body page(int page, int size) {
+        Snapshot snapshot = usable();
+        if (snapshot == null || size != pageSize || page < 0 || page >= snapshot.pages.size()) return null;
+        return snapshot.pages.get(page);
+    }
+
+    public Body categories() {
+        Snapshot snapshot = usable();
+        return snapshot != null ? snapshot.categories : null;
+    }
+
+    public Body brands() {
+        Snapshot snapshot = usable();
+        return snapshot != null ? snapshot.brands : null;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Snapshot snapshot = current;
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("builds", builds.get());
+        metrics.put("served", served.get());
+        if (snapshot != null) {
+            metrics.put("bytes", snapshot.buffer.capacity());
+            metrics.put("products", snapshot.products.size());
+            metrics.put("pages", snapshot.pages.size());
+            metrics.put("builtAt", Instant.ofEpochMilli(snapshot.builtAt));
+            metrics.put("current", snapshot == usable());
+        }
+        return metrics;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildAtStartup() {
+        refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${catalog.snapshot.check-ms:1000}", initialDelayString = "${catalog.snapshot.check-ms:1000}")
+    public void refresh() {
+        if (!enabled) return;
+        Snapshot snapshot = current;
+        if (snapshot != null && snapshot == usable() && System.currentTimeMillis() - snapshot.builtAt < maxAgeMs) return;
+        try {
+            current = build();
+            builds.incrementAndGet();
+        } catch (IOException e) {
+            // Keep serving through the normal path; the next check retries
+            current = null;
+        }
+    }
+
+    // A snapshot behind the catalog version would serve old data under the new ETag
+    private Snapshot usable() {
+        Snapshot snapshot = current;
+        return snapshot != null && snapshot.tag.equals(resourceVersions.catalogTag()) ? snapshot : null;
+    }
+
+    private Snapshot build() throws IOException {
+        // Read before loading, so a change made during the build leaves the snapshot unusable
+        String tag = resourceVersions.catalogTag();
+        long version = resourceVersions.currentVersion();
+        List<ProductDto> catalog = productService.getAllProducts();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Map<String, int[]> productRanges = new HashMap<>();
+        for (ProductDto product : catalog) {
+            productRanges.put(product.getId(), write(out, Map.of("product", product)));
+        }
+
+        List<int[]> pageRanges = new ArrayList<>();
+        int totalPages = (catalog.size() + pageSize - 1) / pageSize;
+        // Page 0 exists even for an empty catalog
+        for (int page = 0; page < Math.max(totalPages, 1); page++) {
+            List<ProductDto> content = catalog.subList(Math.min(page * pageSize, catalog.size()), Math.min((page + 1) * pageSize, catalog.size()));
+            pageRanges.add(write(out, PageResponse.of("products", new PageImpl<>(content, PageRequest.of(page, pageSize), catalog.size()))));
+        }
+        int[] categoryRange = write(out, Map.of("categories", productService.getCategories()));
+        int[] brandRange = write(out, Map.of("brands", productService.getBrands()));
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(out.size());
+        buffer.put(out.toByteArray()).flip();
+        ByteBuffer readOnly = buffer.asReadOnlyBuffer();
+
+        Map<String, Body> products = new HashMap<>();
+        productRanges.forEach((id, range) -> products.put(id, new Body(readOnly, range)));
+        List<Body> pages = new ArrayList<>(pageRanges.size());
+        for (int[] range : pageRanges) {
+            pages.add(new Body(readOnly, range));
+        }
+        return new Snapshot(tag, version, readOnly, products, pages, new Body(readOnly, categoryRange), new Body(readOnly, brandRange));
+    }
+
+    // Returns the {offset, length} of the response envelope around data
+    private int[] write(ByteArrayOutputStream out, Object data) throws IOException {
+        int offset = out.size();
+        objectMapper.writeValue(out, ApiResponse.ok(data));
+        return new int[] {offset, out.size() - offset};
+    }
+
+    /**
+     * One serialized response body.
+     */
+    public final class Body {
+        private final ByteBuffer buffer;
+        private final int offset;
+        private final int length;
+
+        private Body(ByteBuffer buffer, int[] range) {
+            this.buffer = buffer;
+            this.offset = range[0];
+            this.length = range[1];
+        }
+
+        public int getLength() { return length; }
+
+        public void writeTo(OutputStream out) throws IOException {
+            byte[] transfer = TRANSFER_BUFFER.get();
+            for (int position = offset; position < offset + length; position += transfer.length) {
+                int chunk = Math.min(transfer.length, offset + length - position);
+                // Absolute get: the shared buffer's position is never touched
+                buffer.get(position, transfer, 0, chunk);
+                out.write(transfer, 0, chunk);
+            }
+            served.incrementAndGet();
+        }
+    }
+
+    private static final class Snapshot {
+        private final String tag;
+        private final long version;
+        private final ByteBuffer buffer;
+        private final Map<String, Body> products;
+        private final List<Body> pages;
+        private final Body categories;
+        private final Body brands;
+        private final long builtAt = System.currentTimeMillis();
+
+        private Snapshot(String tag, long version, ByteBuffer buffer, Map<String, Body> products, List<Body> pages,
+                         Body categories, Body brands) {
+            this.tag = tag;
+            this.version = version;
+            this.buffer = buffer;
+            this.products = products;
+            this.pages = pages;
+            this.categories = categories;
+            this.brands = brands;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.customo.backend.service;
+
+import com.customo.backend.event.DeviceStateChangedEvent;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fans device state changes out to each user's open SSE streams. Every
+ * subscriber has a bounded buffer drained by its own writer task, so a slow
+ * client never blocks the request that changed the device or the streams of
+ * other clients. A client whose buffer overflows, or whose send has not
+ * completed within devices.stream.send-timeout-ms, is disconnected and
+ * expected to reconnect.
+ */
+@Component
+public class DeviceEventBus {
+
+    @Value("${devices.stream.buffer-size:256}")
+    private int bufferSize;
+
+    @Value("${devices.stream.max-per-user:5}")
+    private int maxPerUser;
+
+    @Value("${devices.stream.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${devices.stream.send-timeout-ms:5000}")
+    private long sendTimeoutMs;
+
+    private final Map<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicInteger threadCount = new AtomicInteger();
+    // Writes block, so each draining subscriber gets a thread; idle threads are reclaimed after a minute
+    private final ExecutorService dispatcher = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "device-stream-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SseEmitter subscribe(String userId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(userId, emitter, bufferSize);
+
+        AtomicBoolean added = new AtomicBoolean();
+        subscribers.compute(userId, (id, forUser) -> {
+            if (forUser == null) forUser = ConcurrentHashMap.newKeySet();
+            if (forUser.size() < maxPerUser) added.set(forUser.add(subscriber));
+            return forUser.isEmpty() ? null : forUser;
+        });
+        if (!added.get()) {
+            throw new IllegalStateException("Too many open device streams");
+        }
+
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(error -> remove(subscriber));
+
+        // Flushes the response headers so the client sees the stream open immediately
+        subscriber.queue.offer(Message.comment("connected"));
+        schedule(subscriber);
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeviceStateChanged(DeviceStateChangedEvent event) {
+        Set<Subscriber> forUser = subscribers.get(event.getUserId());
+        if (forUser == null || forUser.isEmpty()) return;
+
+        Message message = new Message(sequence.incrementAndGet(), event, null);
+        for (Subscriber subscriber : forUser) {
+            if (subscriber.queue.offer(message)) {
+                schedule(subscriber);
+            } else {
+                evictions.incrementAndGet();
+                close(subscriber);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${devices.stream.keepalive-ms:15000}")
+    public void keepAlive() {
+        // Also surfaces dead connections, which only fail on write
+        subscribers.values().forEach(forUser -> forUser.forEach(subscriber -> {
+            if (subscriber.queue.offer(Message.comment("keepalive"))) {
+                schedule(subscriber);
+            }
+        }));
+    }
+
+    @Scheduled(fixedDelayString = "${devices.stream.send-check-ms:1000}")
+    public void evictStalled() {
+        long now = System.nanoTime();
+        long limit = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        subscribers.values().forEach(forUser -> forUser.forEach(subscriber -> {
+            long started = subscriber.sendStarted;
+            if (started != 0 && now - started > limit && remove(subscriber)) {
+                evictions.incrementAndGet();
+                // complete() waits for the stuck send to give up, so it must not run on the scheduler
+                dispatcher.execute(subscriber.emitter::complete);
+            }
+        }));
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("subscribers", subscribers.values().stream().mapToInt(Set::size).sum());
+        metrics.put("evictions", evictions.get());
+        return metrics;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.values().forEach(forUser -> forUser.forEach(this::close));
+        dispatcher.shutdownNow();
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            dispatcher.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            Message message;
+            while ((message = subscriber.queue.poll()) != null) {
+                subscriber.sendStarted = System.nanoTime();
+                if (message.event == null) {
+                    subscriber.emitter.send(SseEmitter.event().comment(message.comment));
+                } else {
+                    subscriber.emitter.send(SseEmitter.event()
+                            .id(Long.toString(message.id))
+                            .name("device")
+                            .data(message.event, MediaType.APPLICATION_JSON));
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Client went away or the emitter already completed
+            remove(subscriber);
+        } finally {
+            subscriber.sendStarted = 0;
+            subscriber.draining.set(false);
+        }
+        // A message may have arrived between the last poll and releasing the flag
+        if (!subscriber.queue.isEmpty() && subscriber.active.get()) {
+            schedule(subscriber);
+        }
+    }
+
+    private void close(Subscriber subscriber) {
+        if (remove(subscriber)) {
+            subscriber.emitter.complete();
+        }
+    }
+
+    private boolean remove(Subscriber subscriber) {
+        if (!subscriber.active.compareAndSet(true, false)) return false;
+        subscriber.queue.clear();
+        subscribers.computeIfPresent(subscriber.userId, (id, forUser) -> {
+            forUser.remove(subscriber);
+            return forUser.isEmpty() ? null : forUser;
+        });
+        return true;
+    }
+
+    private static final class Subscriber {
+        private final String userId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<Message> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean active = new AtomicBoolean(true);
+        // System.nanoTime() when the send in progress began, 0 when idle
+        private volatile long sendStarted;
+
+        private Subscriber(String userId, SseEmitter emitter, int bufferSize) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+        }
+    }
+
+    private static final class Message {
+        private final long id;
+        private final DeviceStateChangedEvent event;
+        private final String comment;
+
+        private Message(long id, DeviceStateChangedEvent event, String comment) {
+            this.id = id;
+            this.event = event;
+            this.comment = comment;
+        }
+
+        private static Message comment(String comment) {
+            return new Message(0, null, comment);
+        }
+    }
+}
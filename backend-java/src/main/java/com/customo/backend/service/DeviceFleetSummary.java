@@ -0,0 +1,218 @@
+package com.customo.backend.service;
+
+import com.customo.backend.dto.FleetSummaryDto;
+import com.customo.backend.entity.Device;
+import com.customo.backend.entity.DeviceLog;
+import com.customo.backend.event.DeviceStateChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-user fleet counters (online/offline, status, battery level, log level)
+ * kept up to date from device change events, so the dashboard summary is read
+ * from memory instead of running a COUNT per figure. A user's counters are
+ * loaded on first read and again after a device is deleted, rebuilt from the
+ * database periodically to correct any drift, and dropped once nobody has
+ * read them for a while.
+ */
+@Component
+public class DeviceFleetSummary {
+
+    // Below 10%, 10-19%, 20-49%, 50% and up
+    private static final String[] BATTERY_LEVELS = {"critical", "low", "medium", "high"};
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DeviceStateBuffer deviceStateBuffer;
+
+    @Value("${devices.summary.idle-ms:3600000}")
+    private long idleMs;
+
+    private final Map<String, UserSummary> summaries = new ConcurrentHashMap<>();
+
+    public FleetSummaryDto getSummary(String userId) {
+        UserSummary summary = summaries.computeIfAbsent(userId, id -> new UserSummary());
+        summary.lastRead = System.currentTimeMillis();
+        summary.lock.lock();
+        try {
+            if (summary.reconciledAt == null) {
+                load(userId, summary);
+            }
+            return summary.toDto();
+        } finally {
+            summary.lock.unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeviceStateChanged(DeviceStateChangedEvent event) {
+        UserSummary summary = summaries.get(event.getUserId());
+        if (summary == null) return;
+        summary.lock.lock();
+        try {
+            if (event.getType() == DeviceStateChangedEvent.Type.DELETED) {
+                // Its logs were deleted with it, and log counts are not kept per device; the next read reloads
+                summary.reconciledAt = null;
+                return;
+            }
+            DeviceState previous = summary.devices.get(event.getDeviceId());
+            if (previous == null && event.getType() != DeviceStateChangedEvent.Type.CREATED) {
+                // Not in the last load; the next reconcile picks it up
+                return;
+            }
+            summary.put(event.getDeviceId(), new DeviceState(
+                    event.getStatus() != null ? Device.DeviceStatus.valueOf(event.getStatus()) : previous != null ? previous.status : null,
+                    event.getOnline() != null ? event.getOnline() : previous != null && previous.online,
+                    event.getBattery() != null ? event.getBattery() : previous != null ? previous.battery : null));
+        } finally {
+            summary.lock.unlock();
+        }
+    }
+
+    /**
+     * Counts logs once they have been written.
+     */
+    public void recordLogs(List<DeviceLog> logs) {
+        for (DeviceLog log : logs) {
+            UserSummary summary = log.getUserId() != null ? summaries.get(log.getUserId()) : null;
+            if (summary == null) continue;
+            summary.lock.lock();
+            try {
+                summary.logsByLevel[log.getLevel().ordinal()]++;
+            } finally {
+                summary.lock.unlock();
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${devices.summary.reconcile-ms:300000}")
+    public void reconcile() {
+        long idleSince = System.currentTimeMillis() - idleMs;
+        summaries.forEach((userId, summary) -> {
+            if (summary.lastRead < idleSince) {
+                summaries.remove(userId, summary);
+                return;
+            }
+            summary.lock.lock();
+            try {
+                load(userId, summary);
+            } finally {
+                summary.lock.unlock();
+            }
+        });
+    }
+
+    private void load(String userId, UserSummary summary) {
+        summary.clear();
+        jdbcTemplate.query("SELECT id, status, is_online, battery FROM devices WHERE user_id = ?", rs -> {
+            String deviceId = rs.getString("id");
+            Boolean online = rs.getBoolean("is_online");
+            Integer battery = rs.getObject("battery") != null ? rs.getInt("battery") : null;
+            // Heartbeats not yet flushed by the state buffer
+            DeviceStateBuffer.PendingState pending = deviceStateBuffer.peek(deviceId).orElse(null);
+            if (pending != null) {
+                if (pending.getOnline() != null) online = pending.getOnline();
+                if (pending.getBattery() != null) battery = pending.getBattery();
+            }
+            summary.put(deviceId, new DeviceState(Device.DeviceStatus.valueOf(rs.getString("status")), online, battery));
+        }, userId);
+        jdbcTemplate.query("SELECT level, COUNT(*) AS total FROM device_logs WHERE user_id = ? GROUP BY level", rs -> {
+            summary.logsByLevel[DeviceLog.LogLevel.valueOf(rs.getString("level")).ordinal()] = rs.getLong("total");
+        }, userId);
+        summary.reconciledAt = Instant.now();
+    }
+
+    private static int batteryLevel(int battery) {
+        if (battery < 10) return 0;
+        if (battery < 20) return 1;
+        if (battery < 50) return 2;
+        return 3;
+    }
+
+    private static final class DeviceState {
+        private final Device.DeviceStatus status;
+        private final boolean online;
+        private final Integer battery;
+
+        private DeviceState(Device.DeviceStatus status, boolean online, Integer battery) {
+            this.status = status;
+            this.online = online;
+            this.battery = battery;
+        }
+    }
+
+    // Guarded by lock, held across the load queries; a lock rather than a monitor so a
+    // virtual thread waiting on JDBC inside it does not pin its carrier thread
+    private static final class UserSummary {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<String, DeviceState> devices = new HashMap<>();
+        private final long[] byStatus = new long[Device.DeviceStatus.values().length];
+        private final long[] logsByLevel = new long[DeviceLog.LogLevel.values().length];
+        private final long[] batteryLevels = new long[BATTERY_LEVELS.length];
+        private long online;
+        private Instant reconciledAt;
+        private volatile long lastRead;
+
+        private void put(String deviceId, DeviceState state) {
+            DeviceState previous = devices.put(deviceId, state);
+            if (previous != null) count(previous, -1);
+            count(state, 1);
+        }
+
+        private void count(DeviceState state, int delta) {
+            if (state.online) online += delta;
+            if (state.status != null) byStatus[state.status.ordinal()] += delta;
+            if (state.battery != null) batteryLevels[batteryLevel(state.battery)] += delta;
+        }
+
+        private void clear() {
+            devices.clear();
+            Arrays.fill(byStatus, 0);
+            Arrays.fill(logsByLevel, 0);
+            Arrays.fill(batteryLevels, 0);
+            online = 0;
+        }
+
+        private FleetSummaryDto toDto() {
+            FleetSummaryDto dto = new FleetSummaryDto();
+            dto.setTotalDevices(devices.size());
+            dto.setOnline(online);
+            dto.setOffline(devices.size() - online);
+
+            Map<String, Long> statuses = new LinkedHashMap<>();
+            for (Device.DeviceStatus status : Device.DeviceStatus.values()) {
+                statuses.put(status.name(), byStatus[status.ordinal()]);
+            }
+            dto.setByStatus(statuses);
+
+            Map<String, Long> levels = new LinkedHashMap<>();
+            for (DeviceLog.LogLevel level : DeviceLog.LogLevel.values()) {
+                levels.put(level.name(), logsByLevel[level.ordinal()]);
+            }
+            dto.setLogsByLevel(levels);
+
+            Map<String, Long> battery = new LinkedHashMap<>();
+            for (int i = 0; i < BATTERY_LEVELS.length; i++) {
+                battery.put(BATTERY_LEVELS[i], batteryLevels[i]);
+            }
+            dto.setBatteryLevels(battery);
+            dto.setReconciledAt(reconciledAt);
+            return dto;
+        }
+    }
+}
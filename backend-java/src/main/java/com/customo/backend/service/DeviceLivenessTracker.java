@@ -0,0 +1,258 @@
+package com.customo.backend.service;
+
+import com.customo.backend.entity.DeviceLog;
+import com.customo.backend.event.DeviceStateChangedEvent;
+import com.customo.backend.repository.DeviceJdbcRepository;
+import com.customo.backend.repository.DeviceRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Marks devices offline when no heartbeat arrives within
+ * devices.liveness.timeout-ms, using a hashed timer wheel instead of scanning
+ * the devices table. A heartbeat only moves the device's deadline forward;
+ * timers are re-slotted lazily when their bucket comes up, so re-arming is a
+ * map lookup and a volatile write. Offline transitions are written in one
+ * batched UPDATE that skips devices whose persisted lastSeen is still fresh,
+ * so when several nodes track a device, it only goes offline once none of
+ * them has heard from it.
+ */
+@Component
+public class DeviceLivenessTracker {
+
+    @Autowired
+    private DeviceJdbcRepository deviceJdbcRepository;
+
+    @Autowired
+    private DeviceLogAppender deviceLogAppender;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${devices.liveness.timeout-ms:120000}")
+    private long timeoutMs;
+
+    @Value("${devices.liveness.tick-ms:1000}")
+    private long tickMs;
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    // Devices known to be offline, so their next heartbeat can bring them back online
+    private final Set<String> offline = ConcurrentHashMap.newKeySet();
+    private final AtomicLong expired = new AtomicLong();
+
+    private final ReentrantLock wheelLock = new ReentrantLock();
+    private final ArrayDeque<Timer>[] wheel;
+    private final int mask;
+    private long currentTick = -1;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public DeviceLivenessTracker(@Value("${devices.liveness.wheel-size:512}") int wheelSize) {
+        int size = Integer.highestOneBit(Math.max(wheelSize, 2) - 1) << 1;
+        wheel = new ArrayDeque[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new ArrayDeque<>();
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * Records a heartbeat seen at {@code lastSeen}. Returns true if the device
+     * was offline or not tracked yet, in which case the caller marks it online;
+     * another node may have marked it offline meanwhile.
+     */
+    public boolean heartbeat(String deviceId, String userId, Instant lastSeen) {
+        long deadline = lastSeen.toEpochMilli() + timeoutMs;
+        AtomicBoolean armed = new AtomicBoolean();
+        Timer timer = timers.compute(deviceId, (id, existing) -> {
+            if (existing == null) {
+                armed.set(true);
+                return new Timer(id, userId, deadline);
+            }
+            if (deadline > existing.deadline) existing.deadline = deadline;
+            return existing;
+        });
+        if (!timer.slotted) {
+            slot(timer);
+        }
+        return offline.remove(deviceId) || armed.get();
+    }
+
+    public void markOffline(String deviceId) {
+        timers.remove(deviceId);
+        offline.add(deviceId);
+    }
+
+    public void forget(String deviceId) {
+        timers.remove(deviceId);
+        offline.remove(deviceId);
+    }
+
+    public Map<String, Object> getMetrics() {
+        return Map.of("tracked", timers.size(), "offline", offline.size(), "expired", expired.get());
+    }
+
+    /**
+     * Arms every online device from its persisted lastSeen, and remembers the
+     * offline ones; the only full read of the table, done once at startup.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadFromDatabase() {
+        jdbcTemplate.query("SELECT id, user_id, is_online, last_seen FROM devices", rs -> {
+            String deviceId = rs.getString("id");
+            Timestamp lastSeen = rs.getTimestamp("last_seen");
+            if (!rs.getBoolean("is_online")) {
+                if (!timers.containsKey(deviceId)) offline.add(deviceId);
+            } else {
+                heartbeat(deviceId, rs.getString("user_id"), lastSeen != null ? lastSeen.toInstant() : Instant.now());
+            }
+        });
+    }
+
+    @Scheduled(fixedRateString = "${devices.liveness.tick-ms:1000}")
+    public void tick() {
+        long now = System.currentTimeMillis();
+        List<Timer> due = new ArrayList<>();
+        wheelLock.lock();
+        try {
+            long target = now / tickMs;
+            if (currentTick < 0) currentTick = target - 1;
+            // After a long pause every bucket is visited once rather than once per missed tick
+            for (long t = Math.max(currentTick + 1, target - mask); t <= target; t++) {
+                ArrayDeque<Timer> bucket = wheel[(int) (t & mask)];
+                List<Timer> timersInBucket = new ArrayList<>(bucket);
+                bucket.clear();
+                for (Timer timer : timersInBucket) {
+                    if (timers.get(timer.deviceId) != timer) {
+                        timer.slotted = false;
+                    } else if (timer.deadline > now) {
+                        // Re-armed since it was slotted: move it to the bucket of its current deadline
+                        bucket(timer, target).add(timer);
+                    } else {
+                        timer.slotted = false;
+                        due.add(timer);
+                    }
+                }
+            }
+            currentTick = target;
+        } finally {
+            wheelLock.unlock();
+        }
+
+        List<Timer> expiredTimers = new ArrayList<>(due.size());
+        for (Timer timer : due) {
+            // Loses to a heartbeat that re-armed the timer after it was collected
+            AtomicBoolean removed = new AtomicBoolean();
+            timers.computeIfPresent(timer.deviceId, (id, existing) -> {
+                if (existing != timer || existing.deadline > now) return existing;
+                removed.set(true);
+                return null;
+            });
+            if (removed.get()) {
+                expiredTimers.add(timer);
+            } else {
+                slot(timer);
+            }
+        }
+        if (!expiredTimers.isEmpty()) {
+            markExpired(expiredTimers, Instant.ofEpochMilli(now - timeoutMs));
+        }
+    }
+
+    private void markExpired(List<Timer> expiredTimers, Instant cutoff) {
+        List<String> deviceIds = expiredTimers.stream().map(timer -> timer.deviceId).toList();
+        List<Timer> skipped = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            int[] counts = deviceJdbcRepository.batchMarkOffline(deviceIds, cutoff);
+            List<DeviceLog> logs = new ArrayList<>(expiredTimers.size());
+            for (int i = 0; i < counts.length; i++) {
+                Timer timer = expiredTimers.get(i);
+                if (counts[i] == 0) {
+                    skipped.add(timer);
+                    continue;
+                }
+                offline.add(timer.deviceId);
+                logs.add(new DeviceLog(deviceRepository.getReferenceById(timer.deviceId), timer.userId,
+                        DeviceLog.LogLevel.WARNING, "Device went offline: no heartbeat for " + (timeoutMs / 1000) + "s"));
+
+                DeviceStateChangedEvent event = new DeviceStateChangedEvent(timer.userId, DeviceStateChangedEvent.Type.UPDATED, timer.deviceId);
+                event.setOnline(false);
+                eventPublisher.publishEvent(event);
+            }
+            deviceLogAppender.appendAll(logs);
+        });
+        expired.addAndGet(expiredTimers.size() - skipped.size());
+        if (skipped.isEmpty()) return;
+
+        // Another node heard from these devices since, or one of them marked them offline already
+        Map<String, Instant> online = deviceJdbcRepository.findOnlineLastSeen(
+                skipped.stream().map(timer -> timer.deviceId).toList());
+        for (Timer timer : skipped) {
+            Instant lastSeen = online.get(timer.deviceId);
+            if (lastSeen != null) {
+                heartbeat(timer.deviceId, timer.userId, lastSeen);
+            } else if (!timers.containsKey(timer.deviceId)) {
+                offline.add(timer.deviceId);
+            }
+        }
+    }
+
+    private void slot(Timer timer) {
+        wheelLock.lock();
+        try {
+            if (!timer.slotted && timers.get(timer.deviceId) == timer) {
+                timer.slotted = true;
+                bucket(timer, currentTick).add(timer);
+            }
+        } finally {
+            wheelLock.unlock();
+        }
+    }
+
+    // Deadlines more than one rotation away land in a nearer bucket and are re-slotted when it comes up
+    private ArrayDeque<Timer> bucket(Timer timer, long fromTick) {
+        long tick = Math.max(timer.deadline / tickMs, fromTick + 1);
+        return wheel[(int) (tick & mask)];
+    }
+
+    private static final class Timer {
+        private final String deviceId;
+        private final String userId;
+        private volatile long deadline;
+        // Written under wheelLock
+        private volatile boolean slotted;
+
+        private Timer(String deviceId, String userId, long deadline) {
+            this.deviceId = deviceId;
+            this.userId = userId;
+            this.deadline = deadline;
+        }
+    }
+}
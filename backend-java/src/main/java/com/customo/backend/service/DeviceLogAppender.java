@@ -0,0 +1,22 @@
+package com.customo.backend.service;
+
+import com.customo.backend.entity.DeviceLog;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Destination for device log events. Selected with {@code devices.logs.appender}:
+ * {@code inline} writes inside the caller's transaction, {@code async} hands
+ * events to a background batch writer.
+ */
+public interface DeviceLogAppender {
+
+    void append(DeviceLog log);
+
+    default void appendAll(List<DeviceLog> logs) {
+        logs.forEach(this::append);
+    }
+
+    Map<String, Object> getMetrics();
+}
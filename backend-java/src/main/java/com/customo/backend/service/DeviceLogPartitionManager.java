@@ -0,0 +1,233 @@
+package com.customo.backend.service;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Manages device_logs as an append-only, time-partitioned table on PostgreSQL:
+ * creates the range-partitioned parent before Hibernate touches the schema,
+ * keeps daily or weekly partitions created ahead of time, moving rows that
+ * landed in the default partition into the partition created for them, and
+ * enforces retention by dropping whole partitions. Other databases, and a
+ * pre-existing unpartitioned table, fall back to batched deletes.
+ */
+@Component("deviceLogPartitionManager")
+public class DeviceLogPartitionManager implements InitializingBean {
+
+    public enum Interval { DAILY, WEEKLY }
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("device_logs_p(\\d{8})");
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final String CHECK_VIOLATION = "23514";
+    private static final String COLUMNS = "id, device_id, user_id, level, message, details, timestamp";
+
+    private static final String CREATE_PARENT_SQL =
+            "CREATE TABLE device_logs (" +
+            "id varchar(255) NOT NULL, " +
+            "device_id varchar(255) NOT NULL, " +
+            "user_id varchar(255), " +
+            "level varchar(255) NOT NULL, " +
+            "message varchar(1000), " +
+            "details varchar(2000), " +
+            "timestamp timestamp(6) with time zone NOT NULL, " +
+            // The partition key has to be part of the primary key
+            "PRIMARY KEY (id, timestamp)" +
+            ") PARTITION BY RANGE (timestamp)";
+
+    private static final String LIST_PARTITIONS_SQL =
+            "SELECT c.relname FROM pg_inherits i " +
+            "JOIN pg_class c ON c.oid = i.inhrelid " +
+            "JOIN pg_class p ON p.oid = i.inhparent " +
+            "WHERE p.relname = 'device_logs'";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${devices.logs.partition.interval:DAILY}")
+    private Interval interval;
+
+    @Value("${devices.logs.partition.premake:7}")
+    private int premake;
+
+    @Value("${devices.logs.retention-days:90}")
+    private int retentionDays;
+
+    @Value("${devices.logs.maintenance-batch-size:10000}")
+    private int batchSize;
+
+    private boolean partitioned;
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!isPostgres()) return;
+
+        List<String> kinds = jdbcTemplate.queryForList(
+                "SELECT c.relkind::text FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace " +
+                "WHERE c.relname = 'device_logs' AND n.nspname = current_schema()", String.class);
+        if (kinds.isEmpty()) {
+            jdbcTemplate.execute(CREATE_PARENT_SQL);
+            // Catches rows outside every range partition, e.g. from badly skewed device clocks
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS device_logs_default PARTITION OF device_logs DEFAULT");
+            partitioned = true;
+        } else {
+            // An existing plain table has to be migrated by hand; until then retention uses deletes
+            partitioned = "p".equals(kinds.get(0));
+        }
+
+        if (partitioned) {
+            ensurePartitions(LocalDate.now(ZoneOffset.UTC));
+        }
+    }
+
+    public boolean isPartitioned() {
+        return partitioned;
+    }
+
+    @Scheduled(cron = "${devices.logs.maintenance-cron:0 10 0 * * *}", zone = "UTC")
+    public void maintain() {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        if (partitioned) {
+            ensurePartitions(today);
+        }
+        if (retentionDays <= 0) return;
+
+        Instant cutoff = today.minusDays(retentionDays).atStartOfDay(ZoneOffset.UTC).toInstant();
+        if (partitioned) {
+            dropPartitionsBefore(cutoff);
+            jdbcTemplate.update("DELETE FROM device_logs_default WHERE timestamp < ?", toTimestamp(cutoff));
+        } else {
+            deleteBefore(cutoff);
+        }
+    }
+
+    /**
+     * Fills the denormalized user_id on rows written before the column existed.
+     * Rows whose device is gone keep it NULL, so only rows with a device are
+     * picked, and nothing runs once no such row is left.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillUserIds() {
+        Boolean pending = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM device_logs l JOIN devices d ON d.id = l.device_id WHERE l.user_id IS NULL)",
+                Boolean.class);
+        if (!Boolean.TRUE.equals(pending)) return;
+
+        int updated;
+        do {
+            updated = jdbcTemplate.update(
+                    "UPDATE device_logs SET user_id = (SELECT d.user_id FROM devices d WHERE d.id = device_logs.device_id) " +
+                    "WHERE id IN (SELECT l.id FROM device_logs l JOIN devices d ON d.id = l.device_id " +
+                    "WHERE l.user_id IS NULL LIMIT ?)", batchSize);
+        } while (updated >= batchSize);
+    }
+
+    private void ensurePartitions(LocalDate today) {
+        LocalDate start = periodStart(today);
+        for (int i = 0; i <= premake; i++) {
+            LocalDate end = nextPeriod(start);
+            String name = "device_logs_p" + start.format(SUFFIX);
+            String create = "CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF device_logs FOR VALUES FROM ('" +
+                    start + " 00:00:00+00') TO ('" + end + " 00:00:00+00')";
+            try {
+                jdbcTemplate.execute(create);
+            } catch (DataAccessException e) {
+                if (!isDefaultPartitionViolation(e)) throw e;
+                moveOutOfDefault(name, create, start, end);
+            }
+            start = end;
+        }
+    }
+
+    /**
+     * Creates a partition whose range already has rows in the default
+     * partition, which PostgreSQL refuses to do directly: detaches the
+     * default, creates the partition, moves the rows over and attaches the
+     * default again, in one transaction. Log writes wait until it commits.
+     */
+    private void moveOutOfDefault(String name, String create, LocalDate start, LocalDate end) {
+        String range = "timestamp >= '" + start + " 00:00:00+00' AND timestamp < '" + end + " 00:00:00+00'";
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("ALTER TABLE device_logs DETACH PARTITION device_logs_default");
+                statement.execute(create);
+                statement.execute("WITH moved AS (DELETE FROM device_logs_default WHERE " + range + " RETURNING *) " +
+                        "INSERT INTO " + name + " (" + COLUMNS + ") SELECT " + COLUMNS + " FROM moved");
+                statement.execute("ALTER TABLE device_logs ATTACH PARTITION device_logs_default DEFAULT");
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+            return null;
+        });
+    }
+
+    // Raised when rows of the new range sit in the default partition
+    private static boolean isDefaultPartitionViolation(DataAccessException e) {
+        Throwable cause = e.getMostSpecificCause();
+        return cause instanceof SQLException && CHECK_VIOLATION.equals(((SQLException) cause).getSQLState());
+    }
+
+    private void dropPartitionsBefore(Instant cutoff) {
+        for (String name : jdbcTemplate.queryForList(LIST_PARTITIONS_SQL, String.class)) {
+            Matcher matcher = PARTITION_NAME.matcher(name);
+            if (!matcher.matches()) continue;
+            LocalDate end = nextPeriod(LocalDate.parse(matcher.group(1), SUFFIX));
+            if (!end.atStartOfDay(ZoneOffset.UTC).toInstant().isAfter(cutoff)) {
+                jdbcTemplate.execute("DROP TABLE IF EXISTS " + name);
+            }
+        }
+    }
+
+    private void deleteBefore(Instant cutoff) {
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(
+                    "DELETE FROM device_logs WHERE id IN (SELECT id FROM device_logs WHERE timestamp < ? LIMIT ?)",
+                    toTimestamp(cutoff), batchSize);
+        } while (deleted >= batchSize);
+    }
+
+    private LocalDate periodStart(LocalDate date) {
+        return interval == Interval.WEEKLY ? date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)) : date;
+    }
+
+    private LocalDate nextPeriod(LocalDate start) {
+        return interval == Interval.WEEKLY ? start.plusWeeks(1) : start.plusDays(1);
+    }
+
+    private boolean isPostgres() {
+        String product = jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        return product != null && product.toLowerCase().contains("postgresql");
+    }
+
+    private static OffsetDateTime toTimestamp(Instant instant) {
+        return instant.atOffset(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,249 @@
+package com.customo.backend.service;
+
+import com.customo.backend.entity.Device;
+import com.customo.backend.util.AfterCommit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Per-user trigram index over device name, type and location, answering
+ * substring search from memory instead of a LIKE '%term%' scan. A user's
+ * index is built from the database on their first search, kept current by
+ * DeviceService after each committed change, and evicted when idle.
+ */
+@Component
+public class DeviceSearchIndex {
+
+    private static final int NAME_WEIGHT = 3;
+    private static final int TYPE_WEIGHT = 2;
+    private static final int LOCATION_WEIGHT = 1;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${devices.search.max-users:1000}")
+    private int maxUsers;
+
+    @Value("${devices.search.idle-ms:1800000}")
+    private long idleMs;
+
+    private final Map<String, UserIndex> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * All of the user's devices whose name, type or location contains the
+     * term, ranked by score, then newest first.
+     */
+    public List<Match> search(String userId, String term) {
+        String needle = term.trim().toLowerCase(Locale.ROOT);
+        UserIndex index = indexes.computeIfAbsent(userId, id -> new UserIndex());
+        index.lastAccess = System.currentTimeMillis();
+        if (!index.built) {
+            build(userId, index);
+        }
+
+        List<Match> matches = new ArrayList<>();
+        index.lock.readLock().lock();
+        try {
+            for (String deviceId : index.candidates(needle)) {
+                Document document = index.documents.get(deviceId);
+                int score = document.score(needle);
+                if (score > 0) {
+                    matches.add(new Match(deviceId, score, document.createdAt));
+                }
+            }
+        } finally {
+            index.lock.readLock().unlock();
+        }
+        matches.sort(Comparator.comparingInt(Match::getScore).reversed()
+                .thenComparing(Match::getCreatedAt, Comparator.reverseOrder())
+                .thenComparing(Match::getDeviceId, Comparator.reverseOrder()));
+        return matches;
+    }
+
+    public void put(String userId, Device device) {
+        Document document = new Document(device.getName(), device.getType(), device.getLocation(), device.getCreatedAt());
+        String deviceId = device.getId();
+        AfterCommit.run(() -> {
+            UserIndex index = indexes.get(userId);
+            if (index == null) return;
+            index.lock.writeLock().lock();
+            try {
+                index.put(deviceId, document);
+            } finally {
+                index.lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public void remove(String userId, String deviceId) {
+        AfterCommit.run(() -> {
+            UserIndex index = indexes.get(userId);
+            if (index == null) return;
+            index.lock.writeLock().lock();
+            try {
+                index.remove(deviceId);
+            } finally {
+                index.lock.writeLock().unlock();
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${devices.search.evict-interval-ms:60000}")
+    public void evict() {
+        long idleSince = System.currentTimeMillis() - idleMs;
+        indexes.entrySet().removeIf(entry -> entry.getValue().lastAccess < idleSince);
+
+        int excess = indexes.size() - maxUsers;
+        if (excess > 0) {
+            indexes.entrySet().stream()
+                    .sorted(Comparator.comparingLong(entry -> entry.getValue().lastAccess))
+                    .limit(excess)
+                    .map(Map.Entry::getKey)
+                    .toList()
+                    .forEach(indexes::remove);
+        }
+    }
+
+    private void build(String userId, UserIndex index) {
+        index.lock.writeLock().lock();
+        try {
+            if (index.built) return;
+            jdbcTemplate.query("SELECT id, name, type, location, created_at FROM devices WHERE user_id = ?", rs -> {
+                Timestamp createdAt = rs.getTimestamp("created_at");
+                index.put(rs.getString("id"), new Document(rs.getString("name"), rs.getString("type"),
+                        rs.getString("location"), createdAt != null ? createdAt.toInstant() : Instant.EPOCH));
+            }, userId);
+            index.built = true;
+        } finally {
+            index.lock.writeLock().unlock();
+        }
+    }
+
+    private static Set<String> trigrams(String value) {
+        Set<String> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= value.length(); i++) {
+            trigrams.add(value.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    public static final class Match {
+        private final String deviceId;
+        private final int score;
+        private final Instant createdAt;
+
+        private Match(String deviceId, int score, Instant createdAt) {
+            this.deviceId = deviceId;
+            this.score = score;
+            this.createdAt = createdAt;
+        }
+
+        public String getDeviceId() { return deviceId; }
+        public int getScore() { return score; }
+        public Instant getCreatedAt() { return createdAt; }
+    }
+
+    private static final class Document {
+        private final String name;
+        private final String type;
+        private final String location;
+        private final Instant createdAt;
+
+        private Document(String name, String type, String location, Instant createdAt) {
+            this.name = normalize(name);
+            this.type = normalize(type);
+            this.location = normalize(location);
+            this.createdAt = createdAt != null ? createdAt : Instant.EPOCH;
+        }
+
+        private Set<String> trigrams() {
+            Set<String> trigrams = DeviceSearchIndex.trigrams(name);
+            trigrams.addAll(DeviceSearchIndex.trigrams(type));
+            trigrams.addAll(DeviceSearchIndex.trigrams(location));
+            return trigrams;
+        }
+
+        // Trigrams only narrow the candidates; the substring check decides
+        private int score(String needle) {
+            return score(name, needle, NAME_WEIGHT) + score(type, needle, TYPE_WEIGHT) + score(location, needle, LOCATION_WEIGHT);
+        }
+
+        private static int score(String field, String needle, int weight) {
+            int at = field.indexOf(needle);
+            if (at < 0) return 0;
+            if (field.length() == needle.length()) return weight * 4;
+            if (at == 0) return weight * 3;
+            // Start of a later word
+            if (field.indexOf(" " + needle) >= 0) return weight * 2;
+            return weight;
+        }
+
+        private static String normalize(String value) {
+            return value == null ? "" : value.toLowerCase(Locale.ROOT);
+        }
+    }
+
+    // Guarded by lock
+    private static final class UserIndex {
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<String, Document> documents = new HashMap<>();
+        private final Map<String, Set<String>> postings = new HashMap<>();
+        private volatile boolean built;
+        private volatile long lastAccess;
+
+        private void put(String deviceId, Document document) {
+            remove(deviceId);
+            documents.put(deviceId, document);
+            for (String trigram : document.trigrams()) {
+                postings.computeIfAbsent(trigram, key -> new HashSet<>()).add(deviceId);
+            }
+        }
+
+        private void remove(String deviceId) {
+            Document previous = documents.remove(deviceId);
+            if (previous == null) return;
+            for (String trigram : previous.trigrams()) {
+                Set<String> ids = postings.get(trigram);
+                if (ids != null && ids.remove(deviceId) && ids.isEmpty()) {
+                    postings.remove(trigram);
+                }
+            }
+        }
+
+        private Set<String> candidates(String needle) {
+            Set<String> needleTrigrams = trigrams(needle);
+            // Terms shorter than a trigram are checked against every document
+            if (needleTrigrams.isEmpty()) return documents.keySet();
+
+            List<Set<String>> lists = new ArrayList<>(needleTrigrams.size());
+            for (String trigram : needleTrigrams) {
+                Set<String> ids = postings.get(trigram);
+                if (ids == null) return Set.of();
+                lists.add(ids);
+            }
+            lists.sort(Comparator.comparingInt(Set::size));
+            Set<String> result = new HashSet<>(lists.get(0));
+            for (int i = 1; i < lists.size() && !result.isEmpty(); i++) {
+                result.retainAll(lists.get(i));
+            }
+            return result;
+        }
+    }
+}
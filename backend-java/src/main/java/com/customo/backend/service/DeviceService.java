@@ -1,22 +1,47 @@
 package com.customo.backend.service;
 
+import com.customo.backend.dto.CursorPage;
 import com.customo.backend.dto.DeviceDto;
+import com.customo.backend.dto.TelemetryBatchRequest;
+import com.customo.backend.dto.TelemetryBatchResult;
 import com.customo.backend.entity.Device;
 import com.customo.backend.entity.DeviceLog;
 import com.customo.backend.entity.User;
+import com.customo.backend.event.DeviceStateChangedEvent;
+import com.customo.backend.repository.DeviceJdbcRepository;
 import com.customo.backend.repository.DeviceLogRepository;
 import com.customo.backend.repository.DeviceRepository;
 import com.customo.backend.repository.UserRepository;
+import com.customo.backend.util.AfterCommit;
+import com.customo.backend.util.KeysetCursor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
@@ -26,16 +51,40 @@ public class DeviceService {
     private DeviceRepository deviceRepository;
 
     @Autowired
-    private DeviceLogRepository deviceLogRepository;
+    private DeviceLogAppender deviceLogAppender;
+
+    @Autowired
+    private DeviceJdbcRepository deviceJdbcRepository;
 
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private DeviceStateBuffer deviceStateBuffer;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private DeviceLivenessTracker deviceLivenessTracker;
+
+    @Autowired
+    private DeviceSearchIndex deviceSearchIndex;
+
+    @Autowired
+    private DeviceLogRepository deviceLogRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${devices.logs.detail-limit:50}")
+    private int detailLogLimit;
+
     public List<DeviceDto> getUserDevices(String userId) {
-        User user = userRepository.findById(userId).orElse(null);
-        if (user == null) {
-            throw new IllegalArgumentException("User not found");
-        }
+        User user = userReference(userId);
         
         return deviceRepository.findByUserOrderByCreatedAtDesc(user)
                 .stream()
@@ -43,31 +92,92 @@ public class DeviceService {
                 .collect(Collectors.toList());
     }
 
-    public Page<DeviceDto> getUserDevices(String userId, Pageable pageable) {
-        User user = userRepository.findById(userId).orElse(null);
-        if (user == null) {
-            throw new IllegalArgumentException("User not found");
-        }
+    public Page<DeviceDto> getUserDevices(String userId, Pageable pageable, int logLimit) {
+        User user = userReference(userId);
         
-        return deviceRepository.findByUserOrderByCreatedAtDesc(user, pageable)
-                .map(this::convertToDto);
+        Page<Device> devices = deviceRepository.findByUserOrderByCreatedAtDesc(user, pageable);
+        return new PageImpl<>(convertToDtos(devices.getContent(), logLimit), pageable, devices.getTotalElements());
     }
 
-    public Optional<DeviceDto> getUserDevice(String userId, String deviceId) {
-        User user = userRepository.findById(userId).orElse(null);
-        if (user == null) {
-            throw new IllegalArgumentException("User not found");
+    /**
+     * Keyset page of the user's devices, newest first, optionally filtered by
+     * status or a search term. The total is only counted when asked for.
+     */
+    public CursorPage<DeviceDto> getUserDevicesPage(String userId, Device.DeviceStatus status, String searchTerm,
+                                                    String cursor, int size, boolean count, int logLimit) {
+        User user = userReference(userId);
+
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        // One extra row tells whether there is a next page
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<Device> devices;
+        Long total = null;
+        if (searchTerm != null) {
+            List<DeviceSearchIndex.Match> matches = deviceSearchIndex.search(userId, searchTerm);
+            // Cursor order rather than rank, so pages stay stable as the client walks them
+            devices = findInOrder(matches.stream()
+                    .filter(match -> match.getCreatedAt().isBefore(after.getPosition())
+                            || (match.getCreatedAt().equals(after.getPosition()) && match.getDeviceId().compareTo(after.getId()) < 0))
+                    .sorted(Comparator.comparing(DeviceSearchIndex.Match::getCreatedAt)
+                            .thenComparing(DeviceSearchIndex.Match::getDeviceId).reversed())
+                    .limit(size + 1L)
+                    .map(DeviceSearchIndex.Match::getDeviceId)
+                    .collect(Collectors.toList()));
+            if (count) total = (long) matches.size();
+        } else if (status != null) {
+            devices = deviceRepository.findPageByUserAndStatusAfter(user, status, after.getPosition(), after.getId(), limit);
+            if (count) total = deviceRepository.countByUserAndStatus(user, status);
+        } else {
+            devices = deviceRepository.findPageByUserAfter(user, after.getPosition(), after.getId(), limit);
+            if (count) total = deviceRepository.countByUser(user);
         }
+
+        String nextCursor = null;
+        if (devices.size() > size) {
+            devices = devices.subList(0, size);
+            Device last = devices.get(size - 1);
+            nextCursor = KeysetCursor.encode(last.getCreatedAt(), last.getId());
+        }
+        return new CursorPage<>(convertToDtos(devices, logLimit), nextCursor, total);
+    }
+
+    /**
+     * Keyset page of the user's logs, newest first, across all devices or for
+     * one device when {@code deviceId} is given.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<DeviceDto.DeviceLogDto> getUserLogsPage(String userId, String deviceId, String cursor, int size, boolean count) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<DeviceLog> logs = deviceId != null
+                ? deviceLogRepository.findPageByUserIdAndDeviceIdAfter(userId, deviceId, after.getPosition(), after.getId(), limit)
+                : deviceLogRepository.findPageByUserIdAfter(userId, after.getPosition(), after.getId(), limit);
+
+        String nextCursor = null;
+        if (logs.size() > size) {
+            logs = logs.subList(0, size);
+            DeviceLog last = logs.get(size - 1);
+            nextCursor = KeysetCursor.encode(last.getTimestamp(), last.getId());
+        }
+        Long total = count && deviceId == null ? deviceLogRepository.countByUserId(userId) : null;
+        return new CursorPage<>(logs.stream().map(this::convertLogToDto).collect(Collectors.toList()), nextCursor, total);
+    }
+
+    public Optional<DeviceDto> getUserDevice(String userId, String deviceId) {
+        User user = userReference(userId);
         
         return deviceRepository.findByUserAndId(user, deviceId)
-                .map(this::convertToDto);
+                .map(device -> {
+                    DeviceDto dto = convertToDto(device);
+                    dto.setLogs(deviceLogRepository.findByDeviceOrderByTimestampDesc(device, PageRequest.of(0, detailLogLimit))
+                            .map(this::convertLogToDto)
+                            .getContent());
+                    return dto;
+                });
     }
 
     public DeviceDto createDevice(String userId, DeviceDto deviceDto) {
-        User user = userRepository.findById(userId).orElse(null);
-        if (user == null) {
-            throw new IllegalArgumentException("User not found");
-        }
+        User user = existingUser(userId);
 
         Device device = convertToEntity(deviceDto);
         device.setUser(user);
@@ -79,78 +189,77 @@ public class DeviceService {
         Device savedDevice = deviceRepository.save(device);
         
         // Log device creation
-        DeviceLog log = new DeviceLog(savedDevice, DeviceLog.LogLevel.INFO, "Device created successfully");
-        deviceLogRepository.save(log);
+        DeviceLog log = new DeviceLog(savedDevice, userId, DeviceLog.LogLevel.INFO, "Device created successfully");
+        deviceLogAppender.append(log);
+
+        deviceLivenessTracker.heartbeat(savedDevice.getId(), userId, savedDevice.getLastSeen());
+        deviceSearchIndex.put(userId, savedDevice);
 
-        return convertToDto(savedDevice);
+        DeviceDto dto = convertToDto(savedDevice);
+        eventPublisher.publishEvent(DeviceStateChangedEvent.of(userId, DeviceStateChangedEvent.Type.CREATED, dto));
+        return dto;
     }
 
     public Optional<DeviceDto> updateDevice(String userId, String deviceId, DeviceDto deviceDto) {
-        User user = userRepository.findById(userId).orElse(null);
-        if (user == null) {
-            throw new IllegalArgumentException("User not found");
-        }
+        User user = userReference(userId);
 
         return deviceRepository.findByUserAndId(user, deviceId)
                 .map(existingDevice -> {
+                    deviceStateBuffer.drainInto(existingDevice);
                     updateDeviceFields(existingDevice, deviceDto);
                     Device savedDevice = deviceRepository.save(existingDevice);
+                    trackLiveness(userId, savedDevice);
+                    deviceSearchIndex.put(userId, savedDevice);
                     
                     // Log device update
-                    DeviceLog log = new DeviceLog(savedDevice, DeviceLog.LogLevel.INFO, "Device updated");
-                    deviceLogRepository.save(log);
+                    DeviceLog log = new DeviceLog(savedDevice, userId, DeviceLog.LogLevel.INFO, "Device updated");
+                    deviceLogAppender.append(log);
                     
-                    return convertToDto(savedDevice);
+                    DeviceDto dto = convertToDto(savedDevice);
+                    eventPublisher.publishEvent(DeviceStateChangedEvent.of(userId, DeviceStateChangedEvent.Type.UPDATED, dto));
+                    return dto;
                 });
     }
 
     public boolean deleteDevice(String userId, String deviceId) {
-        User user = userRepository.findById(userId).orElse(null);
-        if (user == null) {
-            throw new IllegalArgumentException("User not found");
-        }
+        User user = userReference(userId);
 
         Optional<Device> device = deviceRepository.findByUserAndId(user, deviceId);
         if (device.isPresent()) {
-            // Log device deletion
-            DeviceLog log = new DeviceLog(device.get(), DeviceLog.LogLevel.INFO, "Device deleted");
-            deviceLogRepository.save(log);
-            
-            deviceRepository.deleteByUserAndId(user, deviceId);
+            // No "Device deleted" log: the device's logs are removed with it
+            deviceLogRepository.deleteByDeviceId(deviceId);
+            deviceRepository.delete(device.get());
+            deviceStateBuffer.discard(deviceId);
+            deviceLivenessTracker.forget(deviceId);
+            deviceSearchIndex.remove(userId, deviceId);
+            eventPublisher.publishEvent(new DeviceStateChangedEvent(userId, DeviceStateChangedEvent.Type.DELETED, deviceId));
             return true;
         }
         return false;
     }
 
-    public List<DeviceDto> searchUserDevices(String userId, String searchTerm) {
-        User user = userRepository.findById(userId).orElse(null);
-        if (user == null) {
-            throw new IllegalArgumentException("User not found");
-        }
-        
-        return deviceRepository.searchDevicesByUser(user, searchTerm)
-                .stream()
-                .map(this::convertToDto)
+    /**
+     * Ranked substring search over name, type and location, served by the
+     * in-memory search index.
+     */
+    public Page<DeviceDto> searchUserDevices(String userId, String searchTerm, Pageable pageable, int logLimit) {
+        List<DeviceSearchIndex.Match> matches = deviceSearchIndex.search(userId, searchTerm);
+        List<String> pageIds = matches.stream()
+                .skip(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .map(DeviceSearchIndex.Match::getDeviceId)
                 .collect(Collectors.toList());
+        return new PageImpl<>(convertToDtos(findInOrder(pageIds), logLimit), pageable, matches.size());
     }
 
-    public List<DeviceDto> getUserDevicesByStatus(String userId, Device.DeviceStatus status) {
-        User user = userRepository.findById(userId).orElse(null);
-        if (user == null) {
-            throw new IllegalArgumentException("User not found");
-        }
+    public List<DeviceDto> getUserDevicesByStatus(String userId, Device.DeviceStatus status, int logLimit) {
+        User user = userReference(userId);
         
-        return deviceRepository.findByUserAndStatusOrderByCreatedAtDesc(user, status)
-                .stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return convertToDtos(deviceRepository.findByUserAndStatusOrderByCreatedAtDesc(user, status), logLimit);
     }
 
     public List<DeviceDto> getLowBatteryDevices(String userId, Integer threshold) {
-        User user = userRepository.findById(userId).orElse(null);
-        if (user == null) {
-            throw new IllegalArgumentException("User not found");
-        }
+        User user = userReference(userId);
         
         return deviceRepository.findLowBatteryDevicesByUser(user, threshold)
                 .stream()
@@ -159,47 +268,226 @@ public class DeviceService {
     }
 
     public DeviceDto updateDeviceStatus(String userId, String deviceId, Device.DeviceStatus status) {
-        User user = userRepository.findById(userId).orElse(null);
-        if (user == null) {
-            throw new IllegalArgumentException("User not found");
-        }
+        User user = userReference(userId);
 
         Device device = deviceRepository.findByUserAndId(user, deviceId)
                 .orElseThrow(() -> new IllegalArgumentException("Device not found"));
 
+        deviceStateBuffer.drainInto(device);
         device.setStatus(status);
+        device.setOnline(isLive(status));
         device.setLastSeen(Instant.now());
         
         Device savedDevice = deviceRepository.save(device);
+        trackLiveness(userId, savedDevice);
         
         // Log status change
-        DeviceLog log = new DeviceLog(savedDevice, DeviceLog.LogLevel.INFO, 
+        DeviceLog log = new DeviceLog(savedDevice, userId, DeviceLog.LogLevel.INFO, 
                 "Device status changed to " + status.name());
-        deviceLogRepository.save(log);
+        deviceLogAppender.append(log);
 
-        return convertToDto(savedDevice);
+        DeviceDto dto = convertToDto(savedDevice);
+        eventPublisher.publishEvent(DeviceStateChangedEvent.of(userId, DeviceStateChangedEvent.Type.UPDATED, dto));
+        return dto;
     }
 
     public DeviceDto updateDeviceBattery(String userId, String deviceId, Integer battery) {
-        User user = userRepository.findById(userId).orElse(null);
-        if (user == null) {
-            throw new IllegalArgumentException("User not found");
-        }
+        User user = userReference(userId);
 
         Device device = deviceRepository.findByUserAndId(user, deviceId)
                 .orElseThrow(() -> new IllegalArgumentException("Device not found"));
 
-        device.setBattery(battery);
-        device.setLastSeen(Instant.now());
-        
-        Device savedDevice = deviceRepository.save(device);
+        // Heartbeat fields go through the write-behind buffer rather than a full row save,
+        // once the log is committed, so a rolled back request leaves nothing to flush
+        Instant now = Instant.now();
+        boolean backOnline = deviceLivenessTracker.heartbeat(device.getId(), userId, now);
+        Boolean online = backOnline ? Boolean.TRUE : null;
+        AfterCommit.run(() -> deviceStateBuffer.record(deviceId, battery, online, now));
         
         // Log battery update
-        DeviceLog log = new DeviceLog(savedDevice, DeviceLog.LogLevel.INFO, 
+        DeviceLog log = new DeviceLog(device, userId, DeviceLog.LogLevel.INFO, 
                 "Battery level updated to " + battery + "%");
-        deviceLogRepository.save(log);
+        deviceLogAppender.append(log);
+
+        DeviceDto dto = convertToDto(device);
+        dto.setBattery(battery);
+        dto.setLastSeen(now);
+        if (backOnline) dto.setOnline(true);
+        eventPublisher.publishEvent(DeviceStateChangedEvent.of(userId, DeviceStateChangedEvent.Type.UPDATED, dto));
+        return dto;
+    }
+
+    public TelemetryBatchResult ingestTelemetry(String userId, List<TelemetryBatchRequest.TelemetryReading> readings) {
+        TelemetryBatchResult result = new TelemetryBatchResult();
+        result.setReceived(readings.size());
+        Instant now = Instant.now();
+
+        List<Integer> valid = new ArrayList<>();
+        for (int i = 0; i < readings.size(); i++) {
+            String error = validateReading(readings.get(i));
+            if (error != null) {
+                result.reject(i, readings.get(i) != null ? readings.get(i).getDeviceId() : null, error);
+            } else {
+                valid.add(i);
+            }
+        }
+
+        // Coalesce to one update per device, applying readings in timestamp order so the latest wins
+        valid.sort(Comparator.comparing(i -> readingTime(readings.get(i), now)));
+        Map<String, DeviceJdbcRepository.TelemetryUpdate> updates = new LinkedHashMap<>();
+        Map<String, List<Integer>> indexesByDevice = new LinkedHashMap<>();
+        for (Integer i : valid) {
+            TelemetryBatchRequest.TelemetryReading reading = readings.get(i);
+            DeviceJdbcRepository.TelemetryUpdate update = updates.computeIfAbsent(reading.getDeviceId(),
+                    DeviceJdbcRepository.TelemetryUpdate::new);
+            if (reading.getBattery() != null) update.setBattery(reading.getBattery());
+            if (reading.getStatus() != null) update.setStatus(Device.DeviceStatus.valueOf(reading.getStatus().toUpperCase()));
+            if (reading.getOnline() != null) update.setOnline(reading.getOnline());
+            update.setLastSeen(readingTime(reading, now));
+            indexesByDevice.computeIfAbsent(reading.getDeviceId(), id -> new ArrayList<>()).add(i);
+        }
+        if (updates.isEmpty()) {
+            return result;
+        }
+
+        // One set-based ownership check for the whole batch
+        Set<String> owned = new HashSet<>(deviceRepository.findIdsByUserIdAndIdIn(userId, updates.keySet()));
+        List<DeviceJdbcRepository.TelemetryUpdate> statusChanges = new ArrayList<>();
+        List<DeviceLog> logs = new ArrayList<>(owned.size());
+        for (DeviceJdbcRepository.TelemetryUpdate update : updates.values()) {
+            List<Integer> indexes = indexesByDevice.get(update.getDeviceId());
+            if (!owned.contains(update.getDeviceId())) {
+                indexes.forEach(i -> result.reject(i, update.getDeviceId(), "Device not found"));
+                continue;
+            }
+            // As in updateDeviceStatus, a device reported out of service is offline and not timed out
+            if (update.getStatus() != null && !isLive(update.getStatus()) && update.getOnline() == null) {
+                update.setOnline(false);
+            }
+            if (Boolean.FALSE.equals(update.getOnline()) || (update.getStatus() != null && !isLive(update.getStatus()))) {
+                deviceLivenessTracker.markOffline(update.getDeviceId());
+            } else if (deviceLivenessTracker.heartbeat(update.getDeviceId(), userId, update.getLastSeen())
+                    && update.getOnline() == null) {
+                update.setOnline(true);
+            }
+            DeviceLog log = new DeviceLog(deviceRepository.getReferenceById(update.getDeviceId()), userId,
+                    DeviceLog.LogLevel.INFO, describeTelemetry(update));
+            log.setTimestamp(update.getLastSeen());
+            logs.add(log);
+
+            if (update.getStatus() != null) {
+                // Status changes are written through; pure heartbeats are coalesced by the buffer
+                deviceStateBuffer.drainInto(update);
+                statusChanges.add(update);
+            } else {
+                AfterCommit.run(() -> deviceStateBuffer.record(update.getDeviceId(), update.getBattery(), update.getOnline(), update.getLastSeen()));
+            }
+            eventPublisher.publishEvent(toEvent(userId, update));
+            result.setAccepted(result.getAccepted() + indexes.size());
+            result.setDevicesUpdated(result.getDevicesUpdated() + 1);
+        }
+
+        deviceJdbcRepository.batchUpdateTelemetry(statusChanges);
+        deviceLogAppender.appendAll(logs);
+        result.getRejected().sort(Comparator.comparingInt(TelemetryBatchResult.RejectedReading::getIndex));
+        return result;
+    }
+
+    /**
+     * Arms the offline timer of a device saved as online, and stops it for one
+     * saved as offline or out of service, so tick() does not log it going
+     * offline a second time.
+     */
+    private void trackLiveness(String userId, Device device) {
+        if (device.isOnline() && isLive(device.getStatus())) {
+            deviceLivenessTracker.heartbeat(device.getId(), userId, device.getLastSeen());
+        } else {
+            deviceLivenessTracker.markOffline(device.getId());
+        }
+    }
+
+    private static boolean isLive(Device.DeviceStatus status) {
+        return status == Device.DeviceStatus.ACTIVE || status == Device.DeviceStatus.IDLE;
+    }
 
-        return convertToDto(savedDevice);
+    // Callers are authenticated users, so the row is not loaded; a user removed since simply owns nothing
+    private User userReference(String userId) {
+        return userRepository.getReferenceById(userId);
+    }
+
+    // For inserts: a user removed within the principal cache TTL gets "User not found", not a foreign key error
+    private User existingUser(String userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new IllegalArgumentException("User not found");
+        }
+        return userRepository.getReferenceById(userId);
+    }
+
+    private String validateReading(TelemetryBatchRequest.TelemetryReading reading) {
+        if (reading == null) return "Reading is required";
+        if (reading.getDeviceId() == null || reading.getDeviceId().isBlank()) return "Device ID is required";
+        if (reading.getBattery() == null && reading.getStatus() == null && reading.getOnline() == null) {
+            return "Reading has no telemetry values";
+        }
+        if (reading.getBattery() != null && (reading.getBattery() < 0 || reading.getBattery() > 100)) {
+            return "Valid battery level (0-100) is required";
+        }
+        if (reading.getStatus() != null) {
+            try {
+                Device.DeviceStatus.valueOf(reading.getStatus().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                return "Invalid status value";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes the user's logs in [from, to) as newline-delimited JSON, streaming
+     * rows from the database instead of materializing the whole range.
+     */
+    @Transactional(readOnly = true)
+    public void exportUserLogs(String userId, Instant from, Instant to, OutputStream out) throws IOException {
+        try (Stream<DeviceLog> logs = deviceLogRepository.streamByUserIdAndDateRange(userId, from, to)) {
+            Iterator<DeviceLog> iterator = logs.iterator();
+            while (iterator.hasNext()) {
+                DeviceLog log = iterator.next();
+                out.write(objectMapper.writeValueAsBytes(convertLogToDto(log)));
+                out.write('\n');
+                // Keep the persistence context from growing with the export
+                entityManager.detach(log);
+            }
+        }
+        out.flush();
+    }
+
+    private Instant readingTime(TelemetryBatchRequest.TelemetryReading reading, Instant now) {
+        // Device clocks drift; never record a lastSeen in the future
+        Instant timestamp = reading.getTimestamp();
+        return timestamp == null || timestamp.isAfter(now) ? now : timestamp;
+    }
+
+    private DeviceStateChangedEvent toEvent(String userId, DeviceJdbcRepository.TelemetryUpdate update) {
+        DeviceStateChangedEvent event = new DeviceStateChangedEvent(userId, DeviceStateChangedEvent.Type.UPDATED, update.getDeviceId());
+        if (update.getStatus() != null) event.setStatus(update.getStatus().name());
+        event.setBattery(update.getBattery());
+        event.setOnline(update.getOnline());
+        event.setLastSeen(update.getLastSeen());
+        return event;
+    }
+
+    private String describeTelemetry(DeviceJdbcRepository.TelemetryUpdate update) {
+        List<String> parts = new ArrayList<>(3);
+        if (update.getBattery() != null) parts.add("battery " + update.getBattery() + "%");
+        if (update.getStatus() != null) parts.add("status " + update.getStatus().name());
+        if (update.getOnline() != null) parts.add(update.getOnline() ? "online" : "offline");
+        return "Telemetry received: " + String.join(", ", parts);
+    }
+
+    private List<Device> findInOrder(List<String> deviceIds) {
+        Map<String, Device> byId = deviceRepository.findAllById(deviceIds).stream()
+                .collect(Collectors.toMap(Device::getId, device -> device));
+        return deviceIds.stream().map(byId::get).filter(device -> device != null).collect(Collectors.toList());
     }
 
     private DeviceDto convertToDto(Device device) {
@@ -215,20 +503,38 @@ public class DeviceService {
         dto.setLastSeen(device.getLastSeen());
         dto.setCreatedAt(device.getCreatedAt());
         dto.setUpdatedAt(device.getUpdatedAt());
-        
-        // Convert logs
-        if (device.getLogs() != null) {
-            dto.setLogs(device.getLogs().stream()
-                    .map(this::convertLogToDto)
-                    .collect(Collectors.toList()));
-        }
-        
+        deviceStateBuffer.applyTo(dto);
         return dto;
     }
 
+    /**
+     * Converts a page of devices, attaching each device's {@code logLimit} most
+     * recent logs from a single windowed query when {@code logLimit > 0}.
+     */
+    private List<DeviceDto> convertToDtos(List<Device> devices, int logLimit) {
+        if (logLimit <= 0 || devices.isEmpty()) {
+            return devices.stream().map(this::convertToDto).collect(Collectors.toList());
+        }
+
+        Map<String, List<DeviceDto.DeviceLogDto>> logsByDevice = new HashMap<>();
+        List<String> deviceIds = devices.stream().map(Device::getId).collect(Collectors.toList());
+        for (DeviceLog log : deviceLogRepository.findRecentByDeviceIds(deviceIds, logLimit)) {
+            logsByDevice.computeIfAbsent(log.getDevice().getId(), id -> new ArrayList<>()).add(convertLogToDto(log));
+        }
+
+        return devices.stream()
+                .map(device -> {
+                    DeviceDto dto = convertToDto(device);
+                    dto.setLogs(logsByDevice.getOrDefault(device.getId(), new ArrayList<>()));
+                    return dto;
+                })
+                .collect(Collectors.toList());
+    }
+
     private DeviceDto.DeviceLogDto convertLogToDto(DeviceLog log) {
         DeviceDto.DeviceLogDto dto = new DeviceDto.DeviceLogDto();
         dto.setId(log.getId());
+        dto.setDeviceId(log.getDevice().getId());
         dto.setLevel(log.getLevel().name());
         dto.setMessage(log.getMessage());
         dto.setDetails(log.getDetails());
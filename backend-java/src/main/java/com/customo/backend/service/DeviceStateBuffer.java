@@ -0,0 +1,211 @@
+package com.customo.backend.service;
+
+import com.customo.backend.dto.DeviceDto;
+import com.customo.backend.entity.Device;
+import com.customo.backend.repository.DeviceJdbcRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind buffer for device heartbeat fields (battery, online, lastSeen).
+ * Repeated heartbeats for a device are coalesced in memory and written as one
+ * batched UPDATE on a fixed interval, or earlier once too many devices are pending.
+ * Reads overlay the buffered values so callers never observe the lag.
+ */
+@Component
+public class DeviceStateBuffer {
+
+    @Autowired
+    private DeviceJdbcRepository deviceJdbcRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    @Value("${devices.state-buffer.max-pending:10000}")
+    private int maxPending;
+
+    private final Map<String, PendingState> pending = new ConcurrentHashMap<>();
+    // Entries being written; still visible to readers until the batch commits
+    private final Map<String, PendingState> flushing = new ConcurrentHashMap<>();
+    // Devices with a synchronous save open; flushes leave them alone until it completes
+    private final Map<String, Integer> draining = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    public void record(String deviceId, Integer battery, Boolean online, Instant lastSeen) {
+        pending.merge(deviceId, new PendingState(battery, online, lastSeen), PendingState::merge);
+        if (pending.size() >= maxPending && flushRequested.compareAndSet(false, true)) {
+            taskScheduler.schedule(() -> {
+                flushRequested.set(false);
+                flush();
+            }, Instant.now());
+        }
+    }
+
+    public Optional<PendingState> peek(String deviceId) {
+        PendingState inFlight = flushing.get(deviceId);
+        PendingState state = pending.get(deviceId);
+        if (inFlight == null) return Optional.ofNullable(state);
+        return Optional.of(state == null ? inFlight : inFlight.merge(state));
+    }
+
+    public void applyTo(DeviceDto dto) {
+        peek(dto.getId()).ifPresent(state -> {
+            if (state.getBattery() != null) dto.setBattery(state.getBattery());
+            if (state.getOnline() != null) dto.setOnline(state.getOnline());
+            if (state.getLastSeen() != null) dto.setLastSeen(state.getLastSeen());
+        });
+    }
+
+    /**
+     * Copies any buffered values onto an entity that is about to be saved
+     * synchronously. The values stay pending until the save commits, so a
+     * rollback keeps them, and no flush writes the device while the save is
+     * open, so an older flushed snapshot cannot land after it.
+     */
+    public void drainInto(Device device) {
+        claim(device.getId()).ifPresent(state -> {
+            // The stored values win where another node already saved a later reading
+            PendingState merged = new PendingState(device.getBattery(), device.isOnline(), device.getLastSeen()).merge(state);
+            device.setBattery(merged.getBattery());
+            device.setOnline(merged.getOnline());
+            device.setLastSeen(merged.getLastSeen());
+        });
+    }
+
+    public void drainInto(DeviceJdbcRepository.TelemetryUpdate update) {
+        claim(update.getDeviceId()).ifPresent(state -> {
+            PendingState merged = state.merge(new PendingState(update.getBattery(), update.getOnline(), update.getLastSeen()));
+            update.setBattery(merged.getBattery());
+            update.setOnline(merged.getOnline());
+            update.setLastSeen(merged.getLastSeen());
+        });
+    }
+
+    public void discard(String deviceId) {
+        pending.remove(deviceId);
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    @Scheduled(fixedDelayString = "${devices.state-buffer.flush-interval-ms:1000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            if (pending.isEmpty()) return;
+
+            List<DeviceJdbcRepository.TelemetryUpdate> batch = new ArrayList<>(pending.size());
+            for (Map.Entry<String, PendingState> entry : pending.entrySet()) {
+                if (draining.containsKey(entry.getKey())) continue;
+                flushing.put(entry.getKey(), entry.getValue());
+                // A concurrent record() replaces the value, in which case the newer state stays pending
+                pending.remove(entry.getKey(), entry.getValue());
+                batch.add(entry.getValue().toUpdate(entry.getKey()));
+            }
+            if (batch.isEmpty()) return;
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> deviceJdbcRepository.batchUpdateHeartbeats(batch));
+            } catch (RuntimeException e) {
+                // Requeue behind anything recorded since, so the next flush retries without losing readings
+                flushing.forEach((deviceId, state) -> pending.merge(deviceId, state, (newer, older) -> older.merge(newer)));
+                throw e;
+            } finally {
+                flushing.clear();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void drain() {
+        flush();
+    }
+
+    // Waits out a flush in flight, so the buffered values are all in pending
+    private Optional<PendingState> claim(String deviceId) {
+        flushLock.lock();
+        try {
+            PendingState state = pending.get(deviceId);
+            if (state == null) return Optional.empty();
+            if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+                pending.remove(deviceId, state);
+                return Optional.of(state);
+            }
+            draining.merge(deviceId, 1, Integer::sum);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    // Anything recorded since the claim replaced the value and stays pending
+                    if (status == STATUS_COMMITTED) pending.remove(deviceId, state);
+                    draining.computeIfPresent(deviceId, (id, count) -> count == 1 ? null : count - 1);
+                }
+            });
+            return Optional.of(state);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public static final class PendingState {
+        private final Integer battery;
+        private final Boolean online;
+        private final Instant lastSeen;
+
+        public PendingState(Integer battery, Boolean online, Instant lastSeen) {
+            this.battery = battery;
+            this.online = online;
+            this.lastSeen = lastSeen;
+        }
+
+        public Integer getBattery() { return battery; }
+        public Boolean getOnline() { return online; }
+        public Instant getLastSeen() { return lastSeen; }
+
+        /**
+         * Combines this state with one recorded after it. Each field comes
+         * from the reading taken later, so a heartbeat that arrives late
+         * cannot override a newer one; a reading without a time counts as
+         * the latest.
+         */
+        PendingState merge(PendingState newer) {
+            boolean takenLater = newer.lastSeen == null || lastSeen == null || !newer.lastSeen.isBefore(lastSeen);
+            PendingState later = takenLater ? newer : this;
+            PendingState earlier = takenLater ? this : newer;
+            return new PendingState(
+                    later.battery != null ? later.battery : earlier.battery,
+                    later.online != null ? later.online : earlier.online,
+                    later.lastSeen != null ? later.lastSeen : earlier.lastSeen);
+        }
+
+        DeviceJdbcRepository.TelemetryUpdate toUpdate(String deviceId) {
+            DeviceJdbcRepository.TelemetryUpdate update = new DeviceJdbcRepository.TelemetryUpdate(deviceId);
+            update.setBattery(battery);
+            update.setOnline(online);
+            update.setLastSeen(lastSeen);
+            return update;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.customo.backend.service;
+
+import com.customo.backend.entity.DeviceLog;
+import com.customo.backend.repository.DeviceJdbcRepository;
+import com.customo.backend.repository.DeviceLogRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+@ConditionalOnProperty(name = "devices.logs.appender", havingValue = "inline")
+public class InlineDeviceLogAppender implements DeviceLogAppender {
+
+    @Autowired
+    private DeviceLogRepository deviceLogRepository;
+
+    @Autowired
+    private DeviceJdbcRepository deviceJdbcRepository;
+
+    @Autowired
+    private DeviceFleetSummary deviceFleetSummary;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    private final AtomicLong written = new AtomicLong();
+
+    @Override
+    public void append(DeviceLog log) {
+        deviceLogRepository.save(log);
+        written.incrementAndGet();
+        deviceFleetSummary.recordLogs(List.of(log));
+        resourceVersions.recordLogs(List.of(log));
+    }
+
+    @Override
+    public void appendAll(List<DeviceLog> logs) {
+        deviceJdbcRepository.batchInsertLogs(logs);
+        written.addAndGet(logs.size());
+        deviceFleetSummary.recordLogs(logs);
+        resourceVersions.recordLogs(logs);
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        return Map.of("appender", "inline", "written", written.get());
+    }
+}
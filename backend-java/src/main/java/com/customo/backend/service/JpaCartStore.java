@@ -0,0 +1,200 @@
+package com.customo.backend.service;
+
+import com.customo.backend.dto.CartView;
+import com.customo.backend.entity.CartItem;
+import com.customo.backend.entity.CartSummary;
+import com.customo.backend.entity.Product;
+import com.customo.backend.repository.CartItemRepository;
+import com.customo.backend.repository.CartSummaryRepository;
+import com.customo.backend.repository.ProductRepository;
+import com.customo.backend.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Cart store that works on cart_items directly. Every change
+ * adjusts the user's cart_summaries row by its own delta in the transaction
+ * that makes it, so the badge is one primary-key read and the cart page one
+ * fetch-joined query. Lines keep the unit price from when they were created.
+ *
+ * Each change locks the summary row first, which serializes changes to one
+ * cart, and runs in one transaction with its stock reservation, so a refused
+ * reservation leaves neither the line nor the totals behind.
+ */
+@Component
+@ConditionalOnProperty(name = "cart.store", havingValue = "jpa", matchIfMissing = true)
+public class JpaCartStore implements CartStore {
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private CartSummaryRepository cartSummaryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Override
+    @Transactional(readOnly = true)
+    public CartView getCart(String userId) {
+        List<CartView.Line> lines = cartItemRepository.findByUserIdWithProduct(userId).stream()
+                .map(this::convertToLine)
+                .collect(Collectors.toList());
+        long itemCount = 0;
+        BigDecimal subtotal = BigDecimal.ZERO;
+        for (CartView.Line line : lines) {
+            itemCount += line.getQuantity();
+            subtotal = subtotal.add(line.getTotalPrice());
+        }
+        CartView view = new CartView(lines.size(), itemCount, subtotal);
+        view.setCartItems(lines);
+        return view;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CartView getSummary(String userId) {
+        CartSummary summary = cartSummaryRepository.findById(userId)
+                .orElseGet(() -> cartItemRepository.summarizeByUserId(userId));
+        return new CartView(summary.getLineCount(), summary.getItemCount(), summary.getSubtotal());
+    }
+
+    @Override
+    public Optional<CartView.Line> addItem(String userId, String productId, int quantity) {
+        ensureSummary(userId);
+        return transactionTemplate.execute(status -> {
+            CartSummary summary = cartSummaryRepository.findForUpdate(userId).orElseThrow();
+            Product product = productRepository.findById(productId).orElse(null);
+            if (product == null || !product.isActive()) {
+                return Optional.<CartView.Line>empty();
+            }
+
+            CartItem cartItem = cartItemRepository.findByUserIdAndProductIdWithProduct(userId, productId).orElse(null);
+            int previousQuantity = cartItem != null ? cartItem.getQuantity() : 0;
+            stockReservationService.reserve(userId, productId, previousQuantity + quantity);
+
+            if (cartItem == null) {
+                // A reference is enough for the foreign key, once the user is known to be there
+                if (!userRepository.existsById(userId)) {
+                    throw new IllegalArgumentException("User not found");
+                }
+                cartItem = new CartItem(userRepository.getReferenceById(userId), product, quantity, product.getPrice());
+            } else {
+                cartItem.setQuantity(previousQuantity + quantity);
+            }
+            CartItem savedItem = cartItemRepository.save(cartItem);
+            adjustSummary(summary, previousQuantity == 0 ? 1 : 0, quantity, savedItem.getUnitPrice());
+            return Optional.of(convertToLine(savedItem));
+        });
+    }
+
+    @Override
+    public Optional<CartView.Line> updateItem(String userId, String cartItemId, int quantity) {
+        ensureSummary(userId);
+        return transactionTemplate.execute(status -> {
+            CartSummary summary = cartSummaryRepository.findForUpdate(userId).orElseThrow();
+            CartItem cartItem = cartItemRepository.findByIdAndUserIdWithProduct(cartItemId, userId).orElse(null);
+            if (cartItem == null) {
+                return Optional.<CartView.Line>empty();
+            }
+
+            int previousQuantity = cartItem.getQuantity();
+            stockReservationService.reserve(userId, cartItem.getProduct().getId(), quantity);
+            cartItem.setQuantity(quantity);
+            CartItem savedItem = cartItemRepository.save(cartItem);
+            adjustSummary(summary, 0, quantity - previousQuantity, savedItem.getUnitPrice());
+            return Optional.of(convertToLine(savedItem));
+        });
+    }
+
+    @Override
+    public boolean removeItem(String userId, String cartItemId) {
+        ensureSummary(userId);
+        return transactionTemplate.execute(status -> {
+            CartSummary summary = cartSummaryRepository.findForUpdate(userId).orElseThrow();
+            CartItem cartItem = cartItemRepository.findByIdAndUserIdWithProduct(cartItemId, userId).orElse(null);
+            if (cartItem == null) {
+                return false;
+            }
+
+            cartItemRepository.delete(cartItem);
+            stockReservationService.release(userId, cartItem.getProduct().getId());
+            adjustSummary(summary, -1, -cartItem.getQuantity(), cartItem.getUnitPrice());
+            return true;
+        });
+    }
+
+    @Override
+    @Transactional
+    public void clear(String userId) {
+        cartItemRepository.deleteByUserId(userId);
+        cartSummaryRepository.reset(userId, Instant.now());
+        stockReservationService.releaseAll(userId);
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("store", "jpa");
+        return metrics;
+    }
+
+    // The row is locked by the caller, so the change is applied to the entity and flushed on commit
+    private void adjustSummary(CartSummary summary, int lines, int items, BigDecimal unitPrice) {
+        summary.setLineCount(summary.getLineCount() + lines);
+        summary.setItemCount(summary.getItemCount() + items);
+        summary.setSubtotal(summary.getSubtotal().add(unitPrice.multiply(BigDecimal.valueOf(items))));
+        summary.setUpdatedAt(Instant.now());
+    }
+
+    // Created in a transaction of its own, seeded from any lines the cart
+    // already has, so two first changes to a cart cannot both insert it
+    private void ensureSummary(String userId) {
+        if (cartSummaryRepository.existsById(userId)) return;
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                CartSummary seed = cartItemRepository.summarizeByUserId(userId);
+                cartSummaryRepository.insert(userId, seed.getLineCount(), seed.getItemCount(), seed.getSubtotal(), Instant.now());
+            });
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent change created it first
+        }
+    }
+
+    private CartView.Line convertToLine(CartItem cartItem) {
+        CartView.Line line = new CartView.Line();
+        line.setId(cartItem.getId());
+        line.setProductId(cartItem.getProduct().getId());
+        line.setProduct(productService.convertToDto(cartItem.getProduct()));
+        line.setQuantity(cartItem.getQuantity());
+        line.setUnitPrice(cartItem.getUnitPrice());
+        line.setTotalPrice(cartItem.getTotalPrice());
+        line.setCreatedAt(cartItem.getCreatedAt());
+        line.setUpdatedAt(cartItem.getUpdatedAt());
+        return line;
+    }
+}
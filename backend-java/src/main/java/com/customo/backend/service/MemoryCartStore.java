@@ -0,0 +1,457 @@
+package com.customo.backend.service;
+
+import com.customo.backend.dto.CartView;
+import com.customo.backend.dto.ProductDto;
+import com.customo.backend.entity.CartSummary;
+import com.customo.backend.repository.CartJdbcRepository;
+import com.customo.backend.repository.CartJdbcRepository.CartLine;
+import com.customo.backend.repository.CartSummaryRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Caches carts in memory on the node serving them. Reads are served from
+ * the cache, and line changes are coalesced into one rewrite of the cart's
+ * cart_items rows every cart.store.flush-ms, so a burst of quantity clicks
+ * costs one cart write. Carts are loaded lazily on first use, e.g. after a
+ * restart, and dropped when idle or over cart.store.max-carts, but only
+ * once written.
+ *
+ * This is not a write-back store for stock: every change still reserves
+ * stock in its own transaction (the reservation row and the product row),
+ * because the reservation is what prevents overselling and cannot wait.
+ * What the cache saves is the cart_items and cart_summaries writes and the
+ * cart reads.
+ *
+ * Several nodes may hold the same cart. Changes are kept as operations
+ * until written; every request (one primary-key read) and every write
+ * compares the cart_summaries version with the one the node loaded, and
+ * when another node has written since, the cart is reloaded and the
+ * pending operations replayed on top, so neither node's changes are lost.
+ */
+@Component
+@ConditionalOnProperty(name = "cart.store", havingValue = "memory")
+public class MemoryCartStore implements CartStore {
+
+    @Autowired
+    private CartJdbcRepository cartJdbcRepository;
+
+    @Autowired
+    private CartSummaryRepository cartSummaryRepository;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${cart.store.max-carts:10000}")
+    private int maxCarts;
+
+    @Value("${cart.store.idle-ms:1800000}")
+    private long idleMs;
+
+    private final Map<String, CartState> carts = new ConcurrentHashMap<>();
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong replays = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    @Override
+    public CartView getCart(String userId) {
+        CartState cart = acquire(userId);
+        try {
+            CartView view = summarize(cart);
+            List<CartView.Line> lines = new ArrayList<>(cart.lines.size());
+            for (CartLine line : cart.lines.values()) {
+                lines.add(convertToLine(line, productService.getProductById(line.getProductId()).orElse(null)));
+            }
+            view.setCartItems(lines);
+            return view;
+        } finally {
+            cart.lock.unlock();
+        }
+    }
+
+    @Override
+    public CartView getSummary(String userId) {
+        CartState cart = acquire(userId);
+        try {
+            return summarize(cart);
+        } finally {
+            cart.lock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<CartView.Line> addItem(String userId, String productId, int quantity) {
+        ProductDto product = productService.getProductById(productId).orElse(null);
+        if (product == null) {
+            return Optional.empty();
+        }
+
+        CartState cart = acquire(userId);
+        try {
+            CartLine line = cart.lines.get(productId);
+            int previousQuantity = line != null ? line.getQuantity() : 0;
+            // Relative, so adds made through another node at the same time all stay held
+            stockReservationService.reserveMore(userId, productId, quantity);
+
+            Instant now = Instant.now();
+            if (line == null) {
+                line = new CartLine(UUID.randomUUID().toString(), productId, product.getPrice(), now);
+                cart.putFirst(line);
+            }
+            line.setQuantity(previousQuantity + quantity);
+            line.setUpdatedAt(now);
+            cart.pending.add(Operation.add(line, quantity));
+            dirty.add(userId);
+            return Optional.of(convertToLine(line, product));
+        } finally {
+            cart.lock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<CartView.Line> updateItem(String userId, String cartItemId, int quantity) {
+        CartState cart = acquire(userId);
+        try {
+            CartLine line = cart.find(cartItemId);
+            if (line == null) {
+                return Optional.empty();
+            }
+
+            stockReservationService.reserve(userId, line.getProductId(), quantity);
+            line.setQuantity(quantity);
+            line.setUpdatedAt(Instant.now());
+            cart.pending.add(Operation.set(line.getProductId(), quantity));
+            dirty.add(userId);
+            return Optional.of(convertToLine(line, productService.getProductById(line.getProductId()).orElse(null)));
+        } finally {
+            cart.lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean removeItem(String userId, String cartItemId) {
+        CartState cart = acquire(userId);
+        try {
+            CartLine line = cart.find(cartItemId);
+            if (line == null) {
+                return false;
+            }
+
+            stockReservationService.release(userId, line.getProductId());
+            cart.lines.remove(line.getProductId());
+            cart.pending.add(Operation.remove(line.getProductId()));
+            dirty.add(userId);
+            return true;
+        } finally {
+            cart.lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear(String userId) {
+        CartState cart = acquire(userId);
+        try {
+            stockReservationService.releaseAll(userId);
+            cart.lines.clear();
+            cart.pending.add(Operation.clear());
+            dirty.add(userId);
+        } finally {
+            cart.lock.unlock();
+        }
+    }
+
+    @Override
+    public <T> T checkout(String userId, Supplier<T> checkout) {
+        CartState cart = acquire(userId);
+        try {
+            if (!cart.pending.isEmpty()) {
+                write(userId, cart);
+            }
+            T result = checkout.get();
+            // The checkout emptied cart_items; the next request loads the cart afresh
+            cart.loaded = false;
+            return result;
+        } finally {
+            cart.lock.unlock();
+        }
+    }
+
+    private void flush(String userId) {
+        CartState cart = carts.get(userId);
+        if (cart == null) return;
+        cart.lock.lock();
+        try {
+            if (!cart.pending.isEmpty()) {
+                write(userId, cart);
+            }
+        } finally {
+            cart.lock.unlock();
+        }
+    }
+
+    // Everything changed since the last pass goes out as one write per cart
+    @Scheduled(fixedDelayString = "${cart.store.flush-ms:500}")
+    public void writeBack() {
+        for (String userId : new ArrayList<>(dirty)) {
+            dirty.remove(userId);
+            try {
+                flush(userId);
+            } catch (RuntimeException e) {
+                // Kept pending; the next pass tries again
+                failed.incrementAndGet();
+                dirty.add(userId);
+            }
+        }
+        evict();
+    }
+
+    @PreDestroy
+    public void stop() {
+        writeBack();
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("store", "memory");
+        metrics.put("carts", carts.size());
+        metrics.put("dirty", dirty.size());
+        metrics.put("loads", loads.get());
+        metrics.put("writes", writes.get());
+        metrics.put("replays", replays.get());
+        metrics.put("evictions", evictions.get());
+        metrics.put("failed", failed.get());
+        return metrics;
+    }
+
+    // Returns the cart locked and in step with the database
+    private CartState acquire(String userId) {
+        while (true) {
+            CartState cart = carts.computeIfAbsent(userId, id -> new CartState());
+            cart.lock.lock();
+            if (cart.evicted) {
+                cart.lock.unlock();
+                continue;
+            }
+            try {
+                cart.lastAccess = System.currentTimeMillis();
+                Long version = cartSummaryRepository.findVersion(userId).orElse(null);
+                if (!cart.loaded || !Objects.equals(version, cart.version)) {
+                    reload(userId, cart, version);
+                }
+                return cart;
+            } catch (RuntimeException e) {
+                cart.lock.unlock();
+                throw e;
+            }
+        }
+    }
+
+    private void reload(String userId, CartState cart, Long version) {
+        cart.lines.clear();
+        for (CartLine line : cartJdbcRepository.findLines(userId)) {
+            cart.lines.put(line.getProductId(), line);
+        }
+        if (!cart.pending.isEmpty()) {
+            cart.pending.forEach(operation -> operation.applyTo(cart));
+            replays.incrementAndGet();
+        }
+        cart.version = version;
+        if (!cart.loaded) {
+            cart.loaded = true;
+            loads.incrementAndGet();
+        }
+    }
+
+    private void write(String userId, CartState cart) {
+        CartSummary written = transactionTemplate.execute(status -> {
+            CartSummary summary = cartSummaryRepository.findForUpdate(userId).orElse(null);
+            if (summary == null) {
+                cartSummaryRepository.insert(userId, 0, 0, BigDecimal.ZERO, Instant.now());
+                summary = cartSummaryRepository.findForUpdate(userId).orElseThrow();
+            }
+            if (!summary.getVersion().equals(cart.version)) {
+                // Another node wrote since this one loaded; build on what it wrote
+                reload(userId, cart, summary.getVersion());
+            }
+
+            List<CartLine> lines = new ArrayList<>(cart.lines.values());
+            cartJdbcRepository.replaceLines(userId, lines);
+            CartView totals = summarize(cart);
+            summary.setLineCount(totals.getLineCount());
+            summary.setItemCount(totals.getItemCount());
+            summary.setSubtotal(totals.getSubtotal());
+            summary.setUpdatedAt(Instant.now());
+            return summary;
+        });
+        cart.version = written.getVersion();
+        cart.pending.clear();
+        writes.incrementAndGet();
+    }
+
+    private void evict() {
+        long idleSince = System.currentTimeMillis() - idleMs;
+        carts.forEach((userId, cart) -> {
+            if (cart.lastAccess < idleSince) tryEvict(userId, cart);
+        });
+
+        int excess = carts.size() - maxCarts;
+        if (excess > 0) {
+            carts.entrySet().stream()
+                    .sorted(Comparator.comparingLong(entry -> entry.getValue().lastAccess))
+                    .limit(excess)
+                    .toList()
+                    .forEach(entry -> tryEvict(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    // Carts with unwritten changes stay until a pass writes them
+    private void tryEvict(String userId, CartState cart) {
+        if (!cart.lock.tryLock()) return;
+        try {
+            if (!cart.pending.isEmpty()) return;
+            cart.evicted = true;
+            carts.remove(userId, cart);
+            evictions.incrementAndGet();
+        } finally {
+            cart.lock.unlock();
+        }
+    }
+
+    private static CartView summarize(CartState cart) {
+        long itemCount = 0;
+        BigDecimal subtotal = BigDecimal.ZERO;
+        for (CartLine line : cart.lines.values()) {
+            itemCount += line.getQuantity();
+            subtotal = subtotal.add(line.getTotalPrice());
+        }
+        return new CartView(cart.lines.size(), itemCount, subtotal);
+    }
+
+    private static CartView.Line convertToLine(CartLine cartLine, ProductDto product) {
+        CartView.Line line = new CartView.Line();
+        line.setId(cartLine.getId());
+        line.setProductId(cartLine.getProductId());
+        line.setProduct(product);
+        line.setQuantity(cartLine.getQuantity());
+        line.setUnitPrice(cartLine.getUnitPrice());
+        line.setTotalPrice(cartLine.getTotalPrice());
+        line.setCreatedAt(cartLine.getCreatedAt());
+        line.setUpdatedAt(cartLine.getUpdatedAt());
+        return line;
+    }
+
+    private static final class CartState {
+        private final ReentrantLock lock = new ReentrantLock();
+        // By product id, newest line first
+        private LinkedHashMap<String, CartLine> lines = new LinkedHashMap<>();
+        private final List<Operation> pending = new ArrayList<>();
+        private Long version;
+        private boolean loaded;
+        private boolean evicted;
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        private CartLine find(String cartItemId) {
+            for (CartLine line : lines.values()) {
+                if (line.getId().equals(cartItemId)) return line;
+            }
+            return null;
+        }
+
+        private void putFirst(CartLine line) {
+            LinkedHashMap<String, CartLine> reordered = new LinkedHashMap<>();
+            reordered.put(line.getProductId(), line);
+            reordered.putAll(lines);
+            lines = reordered;
+        }
+    }
+
+    /**
+     * One change as the user made it: adds are relative, so replaying them on
+     * a cart another node changed keeps both changes.
+     */
+    private static final class Operation {
+        private enum Type { ADD, SET, REMOVE, CLEAR }
+
+        private final Type type;
+        private final String productId;
+        private final int quantity;
+        // Identity of the line an ADD creates when the product is not in the cart
+        private final CartLine line;
+
+        private Operation(Type type, String productId, int quantity, CartLine line) {
+            this.type = type;
+            this.productId = productId;
+            this.quantity = quantity;
+            this.line = line;
+        }
+
+        private static Operation add(CartLine line, int quantity) {
+            return new Operation(Type.ADD, line.getProductId(), quantity, line.copy());
+        }
+
+        private static Operation set(String productId, int quantity) {
+            return new Operation(Type.SET, productId, quantity, null);
+        }
+
+        private static Operation remove(String productId) {
+            return new Operation(Type.REMOVE, productId, 0, null);
+        }
+
+        private static Operation clear() {
+            return new Operation(Type.CLEAR, null, 0, null);
+        }
+
+        private void applyTo(CartState cart) {
+            CartLine existing = productId != null ? cart.lines.get(productId) : null;
+            switch (type) {
+                case ADD -> {
+                    if (existing != null) {
+                        existing.setQuantity(existing.getQuantity() + quantity);
+                    } else {
+                        CartLine created = line.copy();
+                        created.setQuantity(quantity);
+                        cart.putFirst(created);
+                    }
+                }
+                // A line another node removed stays removed
+                case SET -> {
+                    if (existing != null) existing.setQuantity(quantity);
+                }
+                case REMOVE -> cart.lines.remove(productId);
+                case CLEAR -> cart.lines.clear();
+            }
+        }
+    }
+}
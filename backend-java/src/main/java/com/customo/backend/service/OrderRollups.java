@@ -0,0 +1,366 @@
+package com.customo.backend.service;
+
+import com.customo.backend.dto.OrderAnalyticsDto;
+import com.customo.backend.entity.Order;
+import com.customo.backend.entity.OrderRollup;
+import com.customo.backend.event.OrderStatusChangedEvent;
+import com.customo.backend.repository.OrderRollupJdbcRepository;
+import com.customo.backend.repository.OrderRollupJdbcRepository.Key;
+import com.customo.backend.repository.OrderRollupJdbcRepository.Span;
+import com.customo.backend.repository.OrderRollupJdbcRepository.Totals;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Hourly and daily order figures per status (orders, revenue, items sold and
+ * units per product), so revenue and status dashboards sum a few rollup rows
+ * instead of scanning orders. An order is counted in the buckets of its
+ * creation time under its current status; a status change moves it from one
+ * status row to the other.
+ *
+ * Changes are collected from order events as they commit and written as
+ * increments every orders.rollups.flush-ms, so figures trail the orders by
+ * that much. Deltas of a failed write are kept and retried with the next
+ * flush. A node that stops writes what it still holds; deltas are only lost
+ * when it crashes, which {@link #rebuild} repairs from the orders themselves.
+ * The rollups are built from existing orders at startup when they are empty,
+ * and with orders.rollups.repair-hours the days of recently changed orders
+ * are rebuilt at startup, for what a crash may have lost.
+ */
+@Component
+public class OrderRollups {
+
+    @Autowired
+    private OrderRollupJdbcRepository orderRollupJdbcRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${orders.rollups.backfill:true}")
+    private boolean backfill;
+
+    @Value("${orders.rollups.rebuild-days:7}")
+    private int rebuildDays;
+
+    @Value("${orders.rollups.max-product-limit:100}")
+    private int maxProductLimit;
+
+    @Value("${orders.rollups.repair-hours:0}")
+    private int repairHours;
+
+    // Guarded by itself
+    private final Map<Key, Totals> pending = new HashMap<>();
+    // Held by flush and rebuild, so deltas are never written in the middle of a rebuild
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // Read-held by an order transaction from before its commit until its deltas are queued, write-held by a
+    // rebuild reading a chunk, so each change is either in the chunk's orders or queued after the chunk
+    private final ReentrantReadWriteLock commitGate = new ReentrantReadWriteLock();
+    private final AtomicLong events = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rebuilds = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        long units = 0;
+        Map<String, Totals> products = new HashMap<>();
+        for (OrderStatusChangedEvent.Item item : event.getItems()) {
+            units += item.getQuantity();
+            products.merge(item.getProductId(), new Totals(0, item.getTotalPrice(), item.getQuantity()), Totals::plus);
+        }
+        Totals order = new Totals(1, event.getTotalAmount(), units);
+
+        Map<Key, Totals> deltas = new HashMap<>();
+        if (event.getPreviousStatus() != null) {
+            count(deltas, event.getCreatedAt(), event.getPreviousStatus(), order, products, true);
+        }
+        count(deltas, event.getCreatedAt(), event.getStatus(), order, products, false);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            queue(deltas);
+            return;
+        }
+        commitGate.readLock().lock();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    if (status == STATUS_COMMITTED) queue(deltas);
+                } finally {
+                    commitGate.readLock().unlock();
+                }
+            }
+        });
+    }
+
+    private void queue(Map<Key, Totals> deltas) {
+        synchronized (pending) {
+            deltas.forEach((key, delta) -> pending.merge(key, delta, Totals::plus));
+        }
+        events.incrementAndGet();
+    }
+
+    @Scheduled(fixedDelayString = "${orders.rollups.flush-ms:5000}", initialDelayString = "${orders.rollups.flush-ms:5000}")
+    public void flush() {
+        writeLock.lock();
+        try {
+            Map<Key, Totals> batch;
+            synchronized (pending) {
+                if (pending.isEmpty()) return;
+                batch = new HashMap<>(pending);
+                pending.clear();
+            }
+            try {
+                Integer written = transactionTemplate.execute(status -> orderRollupJdbcRepository.apply(batch));
+                rowsWritten.addAndGet(written != null ? written : 0);
+                flushes.incrementAndGet();
+            } catch (RuntimeException e) {
+                // Nothing was written; the deltas go back for the next flush
+                failed.incrementAndGet();
+                synchronized (pending) {
+                    batch.forEach((key, delta) -> pending.merge(key, delta, Totals::plus));
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        flush();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillAtStartup() {
+        if (backfill && orderRollupJdbcRepository.isEmpty() && orderRollupJdbcRepository.findFirstOrderAt() != null) {
+            rebuild(null, null);
+        } else if (repairHours > 0) {
+            Instant since = Instant.now().minus(repairHours, ChronoUnit.HOURS);
+            for (Instant day : orderRollupJdbcRepository.findDaysOfOrdersUpdatedSince(since)) {
+                rebuild(day, day.plus(1, ChronoUnit.DAYS));
+            }
+        }
+    }
+
+    /**
+     * Recomputes the rollups of the whole UTC days touching [from, to) from
+     * the orders, orders.rollups.rebuild-days days per transaction. A missing
+     * bound extends to the first or last order; without either bound rollups
+     * outside the days of any order are dropped as well. Order changes on
+     * this node wait to commit while a chunk is read, and deltas queued
+     * before are dropped as the chunk counts them already. Deltas another
+     * node queued for a change the chunk counted are not: a rebuild racing
+     * order changes on other nodes may count those twice until the days are
+     * rebuilt again.
+     */
+    public Map<String, Object> rebuild(Instant from, Instant to) {
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        writeLock.lock();
+        try {
+            flush();
+            Instant firstOrderAt = orderRollupJdbcRepository.findFirstOrderAt();
+            Instant lastOrderAt = orderRollupJdbcRepository.findLastOrderAt();
+            Instant start = from != null ? from.truncatedTo(ChronoUnit.DAYS)
+                    : firstOrderAt != null ? firstOrderAt.truncatedTo(ChronoUnit.DAYS) : null;
+            Instant end = to != null ? ceil(to, ChronoUnit.DAYS)
+                    : lastOrderAt != null ? lastOrderAt.truncatedTo(ChronoUnit.DAYS).plus(1, ChronoUnit.DAYS) : null;
+            if (from == null && to == null) {
+                transactionTemplate.executeWithoutResult(status -> {
+                    orderRollupJdbcRepository.deleteRange(null, start);
+                    if (end != null) orderRollupJdbcRepository.deleteRange(end, null);
+                });
+            }
+
+            long orders = 0;
+            if (start != null && end != null) {
+                int days = Math.max(rebuildDays, 1);
+                for (Instant chunkStart = start; chunkStart.isBefore(end); chunkStart = chunkStart.plus(days, ChronoUnit.DAYS)) {
+                    Instant chunkFrom = chunkStart;
+                    Instant chunkTo = earlier(chunkStart.plus(days, ChronoUnit.DAYS), end);
+                    Long counted = transactionTemplate.execute(status -> rebuildChunk(chunkFrom, chunkTo));
+                    orders += counted != null ? counted : 0;
+                }
+            }
+            rebuilds.incrementAndGet();
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("from", start);
+            result.put("to", end);
+            result.put("orders", orders);
+            return result;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Queued before the chunk was read, so committed before it and counted by it
+    private void discardPending(Instant from, Instant to) {
+        synchronized (pending) {
+            int before = pending.size();
+            pending.keySet().removeIf(key -> !key.getBucketStart().isBefore(from) && key.getBucketStart().isBefore(to));
+            discarded.addAndGet(before - pending.size());
+        }
+    }
+
+    private long rebuildChunk(Instant from, Instant to) {
+        // Taken in the transaction, so order commits waiting on it cannot leave the chunk without a connection
+        commitGate.writeLock().lock();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    if (status == STATUS_COMMITTED) discardPending(from, to);
+                } finally {
+                    commitGate.writeLock().unlock();
+                }
+            }
+        });
+        orderRollupJdbcRepository.deleteRange(from, to);
+        Map<String, ScannedOrder> orders = new HashMap<>();
+        orderRollupJdbcRepository.forEachOrder(from, to, rs -> {
+            orders.put(rs.getString("id"), new ScannedOrder(Order.OrderStatus.valueOf(rs.getString("status")),
+                    rs.getTimestamp("created_at").toInstant(), rs.getBigDecimal("total_amount")));
+        });
+        orderRollupJdbcRepository.forEachOrderItem(from, to, rs -> {
+            ScannedOrder order = orders.get(rs.getString("order_id"));
+            // Placed after the orders were read
+            if (order == null) return;
+            int quantity = rs.getInt("quantity");
+            order.products.merge(rs.getString("product_id"), new Totals(0, rs.getBigDecimal("total_price"), quantity), Totals::plus);
+            order.units += quantity;
+        });
+
+        Map<Key, Totals> rows = new HashMap<>();
+        for (ScannedOrder order : orders.values()) {
+            count(rows, order.createdAt, order.status, new Totals(1, order.totalAmount, order.units), order.products, false);
+        }
+        orderRollupJdbcRepository.apply(rows);
+        return orders.size();
+    }
+
+    /**
+     * Sums the rollups of [from, to), widened to whole hours: whole UTC days
+     * are read from the daily buckets and the hours at either end from the
+     * hourly ones. With a status only that status is counted.
+     */
+    public OrderAnalyticsDto query(Instant from, Instant to, Order.OrderStatus status, int productLimit) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        if (productLimit < 0 || productLimit > maxProductLimit) {
+            throw new IllegalArgumentException("productLimit must be between 0 and " + maxProductLimit);
+        }
+        Instant start = from.truncatedTo(ChronoUnit.HOURS);
+        Instant end = ceil(to, ChronoUnit.HOURS);
+        Instant firstDay = ceil(start, ChronoUnit.DAYS);
+        Instant lastDay = end.truncatedTo(ChronoUnit.DAYS);
+
+        List<Span> spans = new ArrayList<>();
+        if (firstDay.isBefore(lastDay)) {
+            spans.add(new Span(OrderRollup.Granularity.DAY, firstDay, lastDay));
+            if (start.isBefore(firstDay)) spans.add(new Span(OrderRollup.Granularity.HOUR, start, firstDay));
+            if (lastDay.isBefore(end)) spans.add(new Span(OrderRollup.Granularity.HOUR, lastDay, end));
+        } else {
+            spans.add(new Span(OrderRollup.Granularity.HOUR, start, end));
+        }
+
+        Map<Order.OrderStatus, Totals> byStatus = orderRollupJdbcRepository.sumByStatus(spans, status);
+        OrderAnalyticsDto dto = new OrderAnalyticsDto();
+        dto.setFrom(start);
+        dto.setTo(end);
+        dto.setStatus(status != null ? status.name() : null);
+        Map<String, OrderAnalyticsDto.StatusTotals> statuses = new LinkedHashMap<>();
+        Totals all = new Totals(0, BigDecimal.ZERO, 0);
+        for (Order.OrderStatus orderStatus : Order.OrderStatus.values()) {
+            if (status != null && status != orderStatus) continue;
+            Totals totals = byStatus.getOrDefault(orderStatus, new Totals(0, BigDecimal.ZERO, 0));
+            statuses.put(orderStatus.name(), toDto(totals));
+            all = all.plus(totals);
+        }
+        dto.setByStatus(statuses);
+        dto.setTotals(toDto(all));
+        dto.setTopProducts(productLimit == 0 ? List.of() : orderRollupJdbcRepository.topProducts(spans, status, productLimit).stream()
+                .map(product -> new OrderAnalyticsDto.ProductTotals(product.getProductId(), product.getName(),
+                        product.getUnits(), product.getRevenue()))
+                .toList());
+        return dto;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        synchronized (pending) {
+            metrics.put("pending", pending.size());
+        }
+        metrics.put("events", events.get());
+        metrics.put("flushes", flushes.get());
+        metrics.put("rowsWritten", rowsWritten.get());
+        metrics.put("failed", failed.get());
+        metrics.put("rebuilds", rebuilds.get());
+        metrics.put("discarded", discarded.get());
+        return metrics;
+    }
+
+    // Adds the order and its products to the hourly and daily buckets of its creation time, or takes them out
+    private static void count(Map<Key, Totals> into, Instant createdAt, Order.OrderStatus status, Totals order,
+                              Map<String, Totals> products, boolean remove) {
+        for (OrderRollup.Granularity granularity : OrderRollup.Granularity.values()) {
+            Instant bucketStart = createdAt.truncatedTo(granularity == OrderRollup.Granularity.HOUR ? ChronoUnit.HOURS : ChronoUnit.DAYS);
+            into.merge(new Key(granularity, bucketStart, status, null), remove ? order.negate() : order, Totals::plus);
+            products.forEach((productId, product) ->
+                    into.merge(new Key(granularity, bucketStart, status, productId), remove ? product.negate() : product, Totals::plus));
+        }
+    }
+
+    private static OrderAnalyticsDto.StatusTotals toDto(Totals totals) {
+        return new OrderAnalyticsDto.StatusTotals(totals.getOrders(), totals.getRevenue(), totals.getUnits());
+    }
+
+    private static Instant ceil(Instant instant, ChronoUnit unit) {
+        Instant floor = instant.truncatedTo(unit);
+        return floor.equals(instant) ? floor : floor.plus(1, unit);
+    }
+
+    private static Instant earlier(Instant a, Instant b) {
+        return b.isBefore(a) ? b : a;
+    }
+
+    private static final class ScannedOrder {
+        private final Order.OrderStatus status;
+        private final Instant createdAt;
+        private final BigDecimal totalAmount;
+        private final Map<String, Totals> products = new HashMap<>();
+        private long units;
+
+        private ScannedOrder(Order.OrderStatus status, Instant createdAt, BigDecimal totalAmount) {
+            this.status = status;
+            this.createdAt = createdAt;
+            this.totalAmount = totalAmount;
+        }
+    }
+}
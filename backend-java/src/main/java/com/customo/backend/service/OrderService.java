@@ -0,0 +1,224 @@
+package com.customo.backend.service;
+
+import com.customo.backend.dto.CheckoutRequest;
+import com.customo.backend.dto.OrderDto;
+import com.customo.backend.entity.CartItem;
+import com.customo.backend.entity.Order;
+import com.customo.backend.entity.OrderItem;
+import com.customo.backend.entity.Product;
+import com.customo.backend.entity.StockReservation;
+import com.customo.backend.event.OrderStatusChangedEvent;
+import com.customo.backend.repository.CartItemRepository;
+import com.customo.backend.repository.CartSummaryRepository;
+import com.customo.backend.repository.OrderRepository;
+import com.customo.backend.repository.ProductJdbcRepository;
+import com.customo.backend.repository.ProductRepository;
+import com.customo.backend.repository.StockReservationRepository;
+import com.customo.backend.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Service
+@Transactional
+public class OrderService {
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductJdbcRepository productJdbcRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CartSummaryRepository cartSummaryRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Transactional(readOnly = true)
+    public Optional<OrderDto> findByIdempotencyKey(String userId, String idempotencyKey) {
+        return orderRepository.findByUserIdAndIdempotencyKey(userId, idempotencyKey)
+                .map(this::convertToDto);
+    }
+
+    /**
+     * Turns the user's cart into an order in one transaction. Stock already
+     * held by the cart's reservations is kept; only what is not held (e.g.
+     * after a reservation expired) is taken, in one batched conditional
+     * update, and what is held beyond the order goes back on sale. Callers go
+     * through CartStore.checkout, so cart_items is current. Throws
+     * IllegalArgumentException for an empty cart or an unavailable product
+     * and IllegalStateException when stock has run out; either way nothing
+     * is written. Two checkouts with the same idempotency key cannot both
+     * commit: the second waits for the first on the cart lock and returns its
+     * order, or violates the unique key.
+     */
+    public OrderDto checkout(String userId, String idempotencyKey, CheckoutRequest request) {
+        // Serializes with cart changes, so none slips in between reading the cart and emptying it
+        cartSummaryRepository.findForUpdate(userId);
+        // A retry that waited here for the first attempt finds the cart emptied by it
+        if (idempotencyKey != null) {
+            Optional<Order> placed = orderRepository.findByUserIdAndIdempotencyKey(userId, idempotencyKey);
+            if (placed.isPresent()) {
+                return convertToDto(placed.get());
+            }
+        }
+        List<CartItem> cartItems = cartItemRepository.findByUserIdWithProduct(userId);
+        if (cartItems.isEmpty()) {
+            throw new IllegalArgumentException("Cart is empty");
+        }
+
+        // Locked, so the expiry job cannot hand this stock back while the order is placed
+        List<StockReservation> reservations = stockReservationRepository.findByUserIdForUpdate(userId);
+        Map<String, Integer> held = new HashMap<>();
+        reservations.forEach(reservation -> held.merge(reservation.getProductId(), reservation.getQuantity(), Integer::sum));
+
+        Map<String, Integer> toTake = new LinkedHashMap<>();
+        Set<String> stockMoved = new HashSet<>();
+        for (CartItem cartItem : cartItems) {
+            Product product = cartItem.getProduct();
+            if (!product.isActive()) {
+                throw new IllegalArgumentException("Product no longer available: " + product.getName());
+            }
+            Integer holding = held.remove(product.getId());
+            int missing = cartItem.getQuantity() - (holding != null ? holding : 0);
+            if (missing > 0) {
+                toTake.put(product.getId(), missing);
+                stockMoved.add(product.getId());
+            } else if (missing < 0) {
+                productRepository.returnStock(product.getId(), -missing);
+                stockMoved.add(product.getId());
+            }
+        }
+        // Held for products that are no longer in the cart; their reservations go below
+        held.forEach((productId, quantity) -> {
+            productRepository.returnStock(productId, quantity);
+            stockMoved.add(productId);
+        });
+
+        List<String> insufficient = productJdbcRepository.takeStock(toTake);
+        if (!insufficient.isEmpty()) {
+            String names = cartItems.stream()
+                    .map(CartItem::getProduct)
+                    .filter(product -> insufficient.contains(product.getId()))
+                    .map(Product::getName)
+                    .collect(Collectors.joining(", "));
+            throw new IllegalStateException("Insufficient stock for " + names);
+        }
+        stockReservationRepository.deleteAll(reservations);
+
+        // The caller is an authenticated user; a reference is enough for the foreign key
+        Order order = new Order(userRepository.getReferenceById(userId), BigDecimal.ZERO);
+        order.setShippingAddress(request.getShippingAddress());
+        order.setCity(request.getCity());
+        order.setState(request.getState());
+        order.setPostalCode(request.getPostalCode());
+        order.setCountry(request.getCountry());
+        order.setNotes(request.getNotes());
+        order.setIdempotencyKey(idempotencyKey);
+        BigDecimal total = BigDecimal.ZERO;
+        for (CartItem cartItem : cartItems) {
+            // Charged at the line's price, which the cart and its subtotal showed; older lines may have none
+            BigDecimal unitPrice = cartItem.getUnitPrice() != null ? cartItem.getUnitPrice() : cartItem.getProduct().getPrice();
+            OrderItem orderItem = new OrderItem(order, cartItem.getProduct(), cartItem.getQuantity(), unitPrice);
+            order.getOrderItems().add(orderItem);
+            total = total.add(orderItem.getTotalPrice());
+        }
+        order.setTotalAmount(total);
+        // Order items are cascaded and written in JDBC batches (hibernate.jdbc.batch_size);
+        // flushing here surfaces a duplicate idempotency key as DataIntegrityViolationException
+        Order savedOrder = orderRepository.saveAndFlush(order);
+
+        cartItemRepository.deleteByUserId(userId);
+        cartSummaryRepository.reset(userId, Instant.now());
+        stockMoved.forEach(productService::stockChanged);
+        eventPublisher.publishEvent(statusChanged(savedOrder, null));
+        return convertToDto(savedOrder);
+    }
+
+    /**
+     * Moves an order to the given status. Throws IllegalStateException when
+     * the order's current status does not lead there.
+     */
+    public Optional<OrderDto> updateStatus(String orderId, Order.OrderStatus status) {
+        // Locked, so two changes to the same order cannot both start from its old status
+        if (orderRepository.findByIdForUpdate(orderId).isEmpty()) {
+            return Optional.empty();
+        }
+        Order order = orderRepository.findByIdWithItems(orderId).orElseThrow();
+        Order.OrderStatus previous = order.getStatus();
+        if (!previous.canMoveTo(status)) {
+            throw new IllegalStateException("Cannot change order status from " + previous + " to " + status);
+        }
+        order.setStatus(status);
+        Order savedOrder = orderRepository.save(order);
+        eventPublisher.publishEvent(statusChanged(savedOrder, previous));
+        return Optional.of(convertToDto(savedOrder));
+    }
+
+    private OrderStatusChangedEvent statusChanged(Order order, Order.OrderStatus previous) {
+        List<OrderStatusChangedEvent.Item> items = order.getOrderItems().stream()
+                .map(item -> new OrderStatusChangedEvent.Item(item.getProduct().getId(), item.getQuantity(), item.getTotalPrice()))
+                .collect(Collectors.toList());
+        return new OrderStatusChangedEvent(order.getId(), previous, order.getStatus(), order.getCreatedAt(),
+                order.getTotalAmount(), items);
+    }
+
+    private OrderDto convertToDto(Order order) {
+        OrderDto dto = new OrderDto();
+        dto.setId(order.getId());
+        dto.setUserId(order.getUser().getId());
+        dto.setStatus(order.getStatus().name());
+        dto.setTotalAmount(order.getTotalAmount());
+        dto.setShippingAddress(order.getShippingAddress());
+        dto.setCity(order.getCity());
+        dto.setState(order.getState());
+        dto.setPostalCode(order.getPostalCode());
+        dto.setCountry(order.getCountry());
+        dto.setNotes(order.getNotes());
+        dto.setCreatedAt(order.getCreatedAt());
+        dto.setUpdatedAt(order.getUpdatedAt());
+        dto.setOrderItems(order.getOrderItems().stream()
+                .map(this::convertItemToDto)
+                .collect(Collectors.toList()));
+        return dto;
+    }
+
+    private OrderDto.OrderItemDto convertItemToDto(OrderItem orderItem) {
+        OrderDto.OrderItemDto dto = new OrderDto.OrderItemDto();
+        dto.setId(orderItem.getId());
+        dto.setProductId(orderItem.getProduct().getId());
+        dto.setProductName(orderItem.getProduct().getName());
+        dto.setQuantity(orderItem.getQuantity());
+        dto.setUnitPrice(orderItem.getUnitPrice());
+        dto.setTotalPrice(orderItem.getTotalPrice());
+        return dto;
+    }
+}
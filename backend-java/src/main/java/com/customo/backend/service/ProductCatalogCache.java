@@ -0,0 +1,98 @@
+package com.customo.backend.service;
+
+import com.customo.backend.dto.ProductDto;
+import com.customo.backend.event.ProductChangedEvent;
+import com.customo.backend.event.ProductStockChangedEvent;
+import com.customo.backend.event.ProductsChangedElsewhereEvent;
+import com.customo.backend.util.BoundedCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Read-through caches for ProductService: products by id (weight 1 each)
+ * and list pages (weighted by the products they hold). A change evicts the
+ * product and only the pages it can affect: an update evicts the pages
+ * showing the product, while a create or delete shifts every later page,
+ * so all pages go.
+ */
+@Component
+public class ProductCatalogCache {
+
+    private final BoundedCache<String, Optional<ProductDto>> products;
+    private final BoundedCache<String, Page<ProductDto>> pages;
+    private final long productTtlMs;
+    private final long pageTtlMs;
+
+    public ProductCatalogCache(@Value("${catalog.cache.products.max-weight:10000}") long productMaxWeight,
+                               @Value("${catalog.cache.products.ttl-ms:600000}") long productTtlMs,
+                               @Value("${catalog.cache.pages.max-weight:5000}") long pageMaxWeight,
+                               @Value("${catalog.cache.pages.ttl-ms:60000}") long pageTtlMs) {
+        this.products = new BoundedCache<>(productMaxWeight, product -> 1);
+        this.pages = new BoundedCache<>(pageMaxWeight, page -> Math.max(page.getNumberOfElements(), 1));
+        this.productTtlMs = productTtlMs;
+        this.pageTtlMs = pageTtlMs;
+    }
+
+    public Optional<ProductDto> getProduct(String id, Function<String, Optional<ProductDto>> loader) {
+        return products.get(id, loader, productTtlMs);
+    }
+
+    public Page<ProductDto> getPage(Pageable pageable, Supplier<Page<ProductDto>> loader) {
+        return pages.get(pageKey(pageable), key -> loader.get(), pageTtlMs);
+    }
+
+    public void warm(List<ProductDto> catalog) {
+        for (ProductDto product : catalog) {
+            products.put(product.getId(), Optional.of(product), productTtlMs);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("products", products.getStats());
+        stats.put("pages", pages.getStats());
+        return stats;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        String productId = event.getProductId();
+        products.invalidate(productId);
+        if (event.getType() == ProductChangedEvent.Type.UPDATED && event.getProduct() != null) {
+            pages.invalidateIf((key, page) -> page.getContent().stream()
+                    .anyMatch(product -> productId.equals(product.getId())));
+        } else {
+            pages.invalidateAll();
+        }
+    }
+
+    // Pages show the quantity they were loaded with until their TTL runs out
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(ProductStockChangedEvent event) {
+        products.invalidate(event.getProductId());
+    }
+
+    // What changed is not known here, so a catalog change drops every page
+    @EventListener
+    public void onChangedElsewhere(ProductsChangedElsewhereEvent event) {
+        event.getProductIds().forEach(products::invalidate);
+        if (event.isCatalogChanged()) {
+            pages.invalidateAll();
+        }
+    }
+
+    private static String pageKey(Pageable pageable) {
+        return pageable.getPageNumber() + ":" + pageable.getPageSize() + ":" + pageable.getSort();
+    }
+}
@@ -0,0 +1,346 @@
+package com.customo.backend.service;
+
+import com.customo.backend.dto.ProductDto;
+import com.customo.backend.dto.ProductFilter;
+import com.customo.backend.event.ProductChangedEvent;
+import com.customo.backend.event.ProductStockChangedEvent;
+import com.customo.backend.event.ProductsChangedElsewhereEvent;
+import com.customo.backend.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * One bitmap per facet value over product ordinals, so any combination of
+ * catalog filters is an AND of ORs and facet counts are cardinalities of
+ * the same bitmaps. Counts for a facet are taken with every other filter
+ * applied, so the client can offer the alternatives to what is selected.
+ * Built from the catalog on first use and kept current from ProductChangedEvent;
+ * stock changes only mark the product, and the in-stock bits of all marked
+ * products are re-read in one query every catalog.facets.stock-refresh-ms.
+ * A refresh that flips any in-stock bit moves the stock version, which the
+ * ETag of in-stock and faceted listings includes.
+ */
+@Component
+public class ProductFacetIndex {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    // Lower bounds of the price ranges; the last one is open-ended
+    private static final int[] PRICE_BOUNDS = {0, 25, 50, 100, 250, 500};
+    private static final String[] PRICE_RANGES = {"0-25", "25-50", "50-100", "100-250", "250-500", "500-up"};
+    private static final int MAX_RATING = 5;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private final List<ProductDto> products = new ArrayList<>();
+    private final BitSet active = new BitSet();
+    private final NavigableMap<String, BitSet> categories = new TreeMap<>();
+    private final NavigableMap<String, BitSet> brands = new TreeMap<>();
+    private final BitSet[] priceRanges = newBitSets(PRICE_RANGES.length);
+    // Indexed by whole stars, rounded down
+    private final BitSet[] ratings = newBitSets(MAX_RATING + 1);
+    private final BitSet inStock = new BitSet();
+    private final Set<String> stockChanged = ConcurrentHashMap.newKeySet();
+    private volatile boolean built;
+
+    /**
+     * Loads the catalog from {@code catalog} unless the index is already built.
+     */
+    public void ensureBuilt(Supplier<List<ProductDto>> catalog) {
+        if (built) return;
+        lock.writeLock().lock();
+        try {
+            if (built) return;
+            for (ProductDto product : catalog.get()) {
+                put(product);
+            }
+            built = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Active products matching {@code filter}, in catalog order, or in the
+     * order of {@code rankedIds} when the filter narrows a search result.
+     */
+    public FacetResult query(ProductFilter filter, List<String> rankedIds, long offset, int limit) {
+        BitSet[] selected = new BitSet[5];
+        lock.readLock().lock();
+        try {
+            BitSet base = (BitSet) active.clone();
+            if (rankedIds != null) {
+                BitSet candidates = new BitSet();
+                for (String id : rankedIds) {
+                    Integer ordinal = ordinals.get(id);
+                    if (ordinal != null) candidates.set(ordinal);
+                }
+                base.and(candidates);
+            }
+            selected[0] = union(categories, filter.getCategories());
+            selected[1] = union(brands, filter.getBrands());
+            selected[2] = priceUnion(filter.getPriceRanges());
+            selected[3] = ratingAtLeast(filter.getMinRating());
+            selected[4] = Boolean.TRUE.equals(filter.getInStock()) ? inStock : null;
+
+            BitSet matches = allExcept(base, selected, -1);
+            Map<String, Object> facets = new LinkedHashMap<>();
+            facets.put("categories", counts(allExcept(base, selected, 0), categories));
+            facets.put("brands", counts(allExcept(base, selected, 1), brands));
+
+            BitSet withoutPrice = allExcept(base, selected, 2);
+            Map<String, Long> prices = new LinkedHashMap<>();
+            for (int i = 0; i < PRICE_RANGES.length; i++) {
+                prices.put(PRICE_RANGES[i], intersectionSize(withoutPrice, priceRanges[i]));
+            }
+            facets.put("priceRanges", prices);
+
+            BitSet withoutRating = allExcept(base, selected, 3);
+            Map<String, Long> minRatings = new LinkedHashMap<>();
+            for (int stars = MAX_RATING - 1; stars >= 1; stars--) {
+                minRatings.put(Integer.toString(stars), intersectionSize(withoutRating, ratingAtLeast(stars)));
+            }
+            facets.put("ratings", minRatings);
+            facets.put("inStock", intersectionSize(allExcept(base, selected, 4), inStock));
+
+            List<ProductDto> page = new ArrayList<>();
+            long skipped = 0;
+            if (rankedIds != null) {
+                for (String id : rankedIds) {
+                    if (page.size() >= limit) break;
+                    Integer ordinal = ordinals.get(id);
+                    if (ordinal == null || !matches.get(ordinal)) continue;
+                    if (skipped++ >= offset) page.add(products.get(ordinal));
+                }
+            } else {
+                for (int i = matches.nextSetBit(0); i >= 0 && page.size() < limit; i = matches.nextSetBit(i + 1)) {
+                    if (skipped++ >= offset) page.add(products.get(i));
+                }
+            }
+            return new FacetResult(page, matches.cardinality(), facets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<String> getCategories() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(categories.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<String> getBrands() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(brands.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            // Until the first build the catalog load picks the change up
+            if (!built) return;
+            remove(event.getProductId());
+            if (event.getProduct() != null && event.getProduct().isActive()) {
+                put(event.getProduct());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(ProductStockChangedEvent event) {
+        if (built) stockChanged.add(event.getProductId());
+    }
+
+    // Stock moved on another node never reaches onStockChanged here
+    @EventListener
+    public void onChangedElsewhere(ProductsChangedElsewhereEvent event) {
+        if (built) stockChanged.addAll(event.getProductIds());
+    }
+
+    @Scheduled(fixedDelayString = "${catalog.facets.stock-refresh-ms:5000}")
+    public void refreshStock() {
+        if (stockChanged.isEmpty()) return;
+        List<String> productIds = new ArrayList<>(stockChanged);
+        stockChanged.removeAll(productIds);
+        List<Object[]> stock = productRepository.findStockByIdIn(productIds);
+        boolean flipped = false;
+        lock.writeLock().lock();
+        try {
+            for (Object[] row : stock) {
+                Integer ordinal = ordinals.get((String) row[0]);
+                if (ordinal == null || !active.get(ordinal)) continue;
+                Integer quantity = (Integer) row[1];
+                boolean available = quantity != null && quantity > 0;
+                if (inStock.get(ordinal) != available) {
+                    inStock.set(ordinal, available);
+                    flipped = true;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (flipped) resourceVersions.inStockChanged();
+    }
+
+    // An updated product keeps its ordinal, and with it its place in catalog order
+    private void put(ProductDto product) {
+        Integer ordinal = ordinals.get(product.getId());
+        if (ordinal == null) {
+            ordinal = products.size();
+            ordinals.put(product.getId(), ordinal);
+            products.add(product);
+        } else {
+            products.set(ordinal, product);
+        }
+        active.set(ordinal);
+        if (product.getCategory() != null) categories.computeIfAbsent(product.getCategory(), key -> new BitSet()).set(ordinal);
+        if (product.getBrand() != null) brands.computeIfAbsent(product.getBrand(), key -> new BitSet()).set(ordinal);
+        if (product.getPrice() != null) priceRanges[priceRange(product.getPrice())].set(ordinal);
+        if (product.getRating() != null) ratings[Math.min(Math.max(product.getRating().intValue(), 0), MAX_RATING)].set(ordinal);
+        if (product.getStockQuantity() != null && product.getStockQuantity() > 0) inStock.set(ordinal);
+    }
+
+    private void remove(String productId) {
+        Integer ordinal = ordinals.get(productId);
+        if (ordinal == null || !active.get(ordinal)) return;
+        ProductDto previous = products.get(ordinal);
+        active.clear(ordinal);
+        clear(categories, previous.getCategory(), ordinal);
+        clear(brands, previous.getBrand(), ordinal);
+        for (BitSet bits : priceRanges) bits.clear(ordinal);
+        for (BitSet bits : ratings) bits.clear(ordinal);
+        inStock.clear(ordinal);
+    }
+
+    private static void clear(Map<String, BitSet> facet, String value, int ordinal) {
+        if (value == null) return;
+        BitSet bits = facet.get(value);
+        if (bits == null) return;
+        bits.clear(ordinal);
+        // Values with no active product drop out of the category and brand lists
+        if (bits.isEmpty()) facet.remove(value);
+    }
+
+    private static int priceRange(BigDecimal price) {
+        for (int i = PRICE_BOUNDS.length - 1; i > 0; i--) {
+            if (price.compareTo(BigDecimal.valueOf(PRICE_BOUNDS[i])) >= 0) return i;
+        }
+        return 0;
+    }
+
+    // Null when the facet is not filtered
+    private static BitSet union(Map<String, BitSet> facet, Collection<String> values) {
+        if (values == null || values.isEmpty()) return null;
+        BitSet result = new BitSet();
+        for (String value : values) {
+            BitSet bits = facet.get(value);
+            if (bits != null) result.or(bits);
+        }
+        return result;
+    }
+
+    private BitSet priceUnion(Collection<String> ranges) {
+        if (ranges == null || ranges.isEmpty()) return null;
+        BitSet result = new BitSet();
+        for (String range : ranges) {
+            result.or(priceRanges[priceRangeIndex(range)]);
+        }
+        return result;
+    }
+
+    private static int priceRangeIndex(String range) {
+        for (int i = 0; i < PRICE_RANGES.length; i++) {
+            if (PRICE_RANGES[i].equals(range)) return i;
+        }
+        throw new IllegalArgumentException("Unknown price range: " + range);
+    }
+
+    private BitSet ratingAtLeast(Integer stars) {
+        if (stars == null) return null;
+        if (stars < 0 || stars > MAX_RATING) {
+            throw new IllegalArgumentException("Minimum rating must be between 0 and " + MAX_RATING);
+        }
+        BitSet result = new BitSet();
+        for (int i = stars; i <= MAX_RATING; i++) {
+            result.or(ratings[i]);
+        }
+        return result;
+    }
+
+    private static BitSet allExcept(BitSet base, BitSet[] selected, int skip) {
+        BitSet result = (BitSet) base.clone();
+        for (int i = 0; i < selected.length; i++) {
+            if (i != skip && selected[i] != null) result.and(selected[i]);
+        }
+        return result;
+    }
+
+    private static Map<String, Long> counts(BitSet within, Map<String, BitSet> facet) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        facet.forEach((value, bits) -> counts.put(value, intersectionSize(within, bits)));
+        return counts;
+    }
+
+    private static long intersectionSize(BitSet left, BitSet right) {
+        BitSet intersection = (BitSet) left.clone();
+        intersection.and(right);
+        return intersection.cardinality();
+    }
+
+    private static BitSet[] newBitSets(int count) {
+        BitSet[] bitSets = new BitSet[count];
+        for (int i = 0; i < count; i++) {
+            bitSets[i] = new BitSet();
+        }
+        return bitSets;
+    }
+
+    public static final class FacetResult {
+        private final List<ProductDto> products;
+        private final long total;
+        private final Map<String, Object> facets;
+
+        private FacetResult(List<ProductDto> products, long total, Map<String, Object> facets) {
+            this.products = products;
+            this.total = total;
+            this.facets = facets;
+        }
+
+        public List<ProductDto> getProducts() { return products; }
+        public long getTotal() { return total; }
+        public Map<String, Object> getFacets() { return facets; }
+    }
+}
@@ -0,0 +1,221 @@
+package com.customo.backend.service;
+
+import com.customo.backend.dto.ProductDto;
+import com.customo.backend.event.ProductChangedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Inverted index over the active catalog, ranking matches with BM25 over a
+ * field-weighted term frequency (name counts more than brand and category,
+ * which count more than description). Every query token must match, either
+ * as a whole term or as the prefix of one, so results narrow as the user types.
+ * Built from the catalog on first use and kept current from ProductChangedEvent.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final float NAME_BOOST = 3.0f;
+    private static final float BRAND_BOOST = 2.0f;
+    private static final float CATEGORY_BOOST = 1.5f;
+    private static final float DESCRIPTION_BOOST = 1.0f;
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    // A prefix expansion is weaker evidence than the whole term
+    private static final float PREFIX_WEIGHT = 0.7f;
+    private static final int MIN_PREFIX_LENGTH = 2;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Document> documents = new HashMap<>();
+    // term -> product id -> weighted term frequency
+    private final NavigableMap<String, Map<String, Float>> postings = new TreeMap<>();
+    private double totalLength;
+    private volatile boolean built;
+
+    /**
+     * Loads the catalog from {@code catalog} unless the index is already built.
+     */
+    public void ensureBuilt(Supplier<List<ProductDto>> catalog) {
+        if (built) return;
+        lock.writeLock().lock();
+        try {
+            if (built) return;
+            for (ProductDto product : catalog.get()) {
+                put(product);
+            }
+            built = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public SearchResult search(String query, long offset, int limit) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) return new SearchResult(List.of(), 0);
+
+        List<Scored> scored = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Map<String, Float> scores = null;
+            for (String token : tokens) {
+                Map<String, Float> tokenScores = scoreToken(token);
+                if (scores == null) {
+                    scores = tokenScores;
+                } else {
+                    Map<String, Float> matchedSoFar = scores;
+                    scores = new HashMap<>();
+                    for (Map.Entry<String, Float> entry : tokenScores.entrySet()) {
+                        Float previous = matchedSoFar.get(entry.getKey());
+                        if (previous != null) scores.put(entry.getKey(), previous + entry.getValue());
+                    }
+                }
+                if (scores.isEmpty()) break;
+            }
+            for (Map.Entry<String, Float> entry : scores.entrySet()) {
+                scored.add(new Scored(documents.get(entry.getKey()).product, entry.getValue()));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        scored.sort(Comparator.comparingDouble((Scored s) -> s.score).reversed()
+                .thenComparing(s -> s.product.getName(), Comparator.nullsLast(Comparator.naturalOrder())));
+        List<ProductDto> page = scored.stream()
+                .skip(offset)
+                .limit(limit)
+                .map(s -> s.product)
+                .toList();
+        return new SearchResult(page, scored.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            // Until the first build the catalog load picks the change up
+            if (!built) return;
+            remove(event.getProductId());
+            if (event.getProduct() != null && event.getProduct().isActive()) {
+                put(event.getProduct());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // BM25 of the token, counting the terms it prefixes at a reduced weight
+    private Map<String, Float> scoreToken(String token) {
+        NavigableMap<String, Map<String, Float>> terms = token.length() >= MIN_PREFIX_LENGTH
+                ? postings.subMap(token, true, token + Character.MAX_VALUE, false)
+                : postings.subMap(token, true, token, true);
+        Map<String, Float> frequencies = new HashMap<>();
+        for (Map.Entry<String, Map<String, Float>> term : terms.entrySet()) {
+            float weight = term.getKey().equals(token) ? 1.0f : PREFIX_WEIGHT;
+            term.getValue().forEach((productId, tf) -> frequencies.merge(productId, weight * tf, Float::sum));
+        }
+
+        Map<String, Float> scores = new HashMap<>();
+        double averageLength = documents.isEmpty() ? 1 : totalLength / documents.size();
+        double idf = Math.log(1 + (documents.size() - frequencies.size() + 0.5) / (frequencies.size() + 0.5));
+        for (Map.Entry<String, Float> entry : frequencies.entrySet()) {
+            float tf = entry.getValue();
+            double norm = K1 * (1 - B + B * documents.get(entry.getKey()).length / averageLength);
+            scores.put(entry.getKey(), (float) (idf * tf * (K1 + 1) / (tf + norm)));
+        }
+        return scores;
+    }
+
+    private void put(ProductDto product) {
+        Map<String, Float> frequencies = new HashMap<>();
+        float length = addField(frequencies, product.getName(), NAME_BOOST)
+                + addField(frequencies, product.getBrand(), BRAND_BOOST)
+                + addField(frequencies, product.getCategory(), CATEGORY_BOOST)
+                + addField(frequencies, product.getDescription(), DESCRIPTION_BOOST);
+        documents.put(product.getId(), new Document(product, length, frequencies.keySet()));
+        totalLength += length;
+        frequencies.forEach((term, frequency) ->
+                postings.computeIfAbsent(term, key -> new HashMap<>()).put(product.getId(), frequency));
+    }
+
+    private void remove(String productId) {
+        Document previous = documents.remove(productId);
+        if (previous == null) return;
+        totalLength -= previous.length;
+        for (String term : previous.terms) {
+            Map<String, Float> postingList = postings.get(term);
+            if (postingList != null && postingList.remove(productId) != null && postingList.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    private static float addField(Map<String, Float> frequencies, String text, float boost) {
+        List<String> tokens = tokenize(text);
+        for (String token : tokens) {
+            frequencies.merge(token, boost, Float::sum);
+        }
+        return tokens.size() * boost;
+    }
+
+    private static List<String> tokenize(String text) {
+        if (text == null) return List.of();
+        List<String> tokens = new ArrayList<>();
+        for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) tokens.add(token);
+        }
+        return tokens;
+    }
+
+    public static final class SearchResult {
+        private final List<ProductDto> products;
+        private final long total;
+
+        private SearchResult(List<ProductDto> products, long total) {
+            this.products = products;
+            this.total = total;
+        }
+
+        public List<ProductDto> getProducts() { return products; }
+        public long getTotal() { return total; }
+    }
+
+    private static final class Document {
+        private final ProductDto product;
+        private final float length;
+        private final Set<String> terms;
+
+        private Document(ProductDto product, float length, Set<String> terms) {
+            this.product = product;
+            this.length = length;
+            this.terms = new HashSet<>(terms);
+        }
+    }
+
+    private static final class Scored {
+        private final ProductDto product;
+        private final float score;
+
+        private Scored(ProductDto product, float score) {
+            this.product = product;
+            this.score = score;
+        }
+    }
+}
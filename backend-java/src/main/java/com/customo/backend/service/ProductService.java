@@ -1,10 +1,19 @@
 package com.customo.backend.service;
 
 import com.customo.backend.dto.ProductDto;
+import com.customo.backend.dto.ProductFilter;
 import com.customo.backend.entity.Product;
+import com.customo.backend.event.ProductChangedEvent;
+import com.customo.backend.event.ProductStockChangedEvent;
 import com.customo.backend.repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -20,6 +29,35 @@ public class ProductService {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${catalog.cache.warm-up:true}")
+    private boolean warmUp;
+
+    /**
+     * Loads the catalog once at startup into the product cache, the first
+     * list page and the search and facet indexes.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmCatalog() {
+        if (!warmUp) return;
+        List<ProductDto> catalog = getAllProducts();
+        productSearchIndex.ensureBuilt(() -> catalog);
+        productFacetIndex.ensureBuilt(() -> catalog);
+        productCatalogCache.warm(catalog);
+        getAllProducts(PageRequest.of(0, 20));
+    }
+
     public List<ProductDto> getAllProducts() {
         return productRepository.findByIsActiveTrue()
                 .stream()
@@ -28,55 +66,62 @@ public class ProductService {
     }
 
     public Page<ProductDto> getAllProducts(Pageable pageable) {
-        return productRepository.findByIsActiveTrue(pageable)
-                .map(this::convertToDto);
+        return productCatalogCache.getPage(pageable, () -> productRepository.findByIsActiveTrue(pageable)
+                .map(this::convertToDto));
     }
 
     public Optional<ProductDto> getProductById(String id) {
-        return productRepository.findById(id)
+        return productCatalogCache.getProduct(id, key -> productRepository.findById(key)
                 .filter(Product::isActive)
-                .map(this::convertToDto);
-    }
-
-    public List<ProductDto> getProductsByCategory(String category) {
-        return productRepository.findByCategoryAndIsActiveTrue(category)
-                .stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
-    }
-
-    public List<ProductDto> getProductsByBrand(String brand) {
-        return productRepository.findByBrandAndIsActiveTrue(brand)
-                .stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+                .map(this::convertToDto));
     }
 
     public List<ProductDto> searchProducts(String searchTerm) {
-        return productRepository.searchProducts(searchTerm)
-                .stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        productSearchIndex.ensureBuilt(this::getAllProducts);
+        return productSearchIndex.search(searchTerm, 0, Integer.MAX_VALUE).getProducts();
     }
 
+    /**
+     * Ranked full-text search served from the in-memory index.
+     */
     public Page<ProductDto> searchProducts(String searchTerm, Pageable pageable) {
-        return productRepository.searchProducts(searchTerm, pageable)
-                .map(this::convertToDto);
+        productSearchIndex.ensureBuilt(this::getAllProducts);
+        ProductSearchIndex.SearchResult result = productSearchIndex.search(searchTerm, pageable.getOffset(), pageable.getPageSize());
+        return new PageImpl<>(result.getProducts(), pageable, result.getTotal());
+    }
+
+    /**
+     * Products matching every facet filter, with facet counts; when a search
+     * term is given the filters narrow its ranked matches.
+     */
+    public ProductFacetIndex.FacetResult filterProducts(ProductFilter filter, String searchTerm, Pageable pageable) {
+        productFacetIndex.ensureBuilt(this::getAllProducts);
+        List<String> rankedIds = null;
+        if (searchTerm != null && !searchTerm.trim().isEmpty()) {
+            rankedIds = searchProducts(searchTerm).stream()
+                    .map(ProductDto::getId)
+                    .collect(Collectors.toList());
+        }
+        return productFacetIndex.query(filter, rankedIds, pageable.getOffset(), pageable.getPageSize());
     }
 
     public List<String> getCategories() {
-        return productRepository.findDistinctCategories();
+        productFacetIndex.ensureBuilt(this::getAllProducts);
+        return productFacetIndex.getCategories();
     }
 
     public List<String> getBrands() {
-        return productRepository.findDistinctBrands();
+        productFacetIndex.ensureBuilt(this::getAllProducts);
+        return productFacetIndex.getBrands();
     }
 
     public ProductDto createProduct(ProductDto productDto) {
         Product product = convertToEntity(productDto);
         product.setActive(true);
         Product savedProduct = productRepository.save(product);
-        return convertToDto(savedProduct);
+        ProductDto dto = convertToDto(savedProduct);
+        eventPublisher.publishEvent(new ProductChangedEvent(ProductChangedEvent.Type.CREATED, dto.getId(), dto));
+        return dto;
     }
 
     public Optional<ProductDto> updateProduct(String id, ProductDto productDto) {
@@ -84,7 +129,9 @@ public class ProductService {
                 .map(existingProduct -> {
                     updateProductFields(existingProduct, productDto);
                     Product savedProduct = productRepository.save(existingProduct);
-                    return convertToDto(savedProduct);
+                    ProductDto dto = convertToDto(savedProduct);
+                    eventPublisher.publishEvent(new ProductChangedEvent(ProductChangedEvent.Type.UPDATED, dto.getId(), dto.isActive() ? dto : null));
+                    return dto;
                 });
     }
 
@@ -93,11 +140,23 @@ public class ProductService {
                 .map(product -> {
                     product.setActive(false);
                     productRepository.save(product);
+                    eventPublisher.publishEvent(new ProductChangedEvent(ProductChangedEvent.Type.DELETED, id, null));
                     return true;
                 })
                 .orElse(false);
     }
 
+    /**
+     * Announces that a product's stock moved outside updateProduct. The
+     * product's own cache entry and ETag follow the quantity; list pages, the
+     * search index and the catalog snapshot keep the quantity they were
+     * built with, and the in-stock facet catches up in one batch, so stock
+     * churn on a hot product never rebuilds the catalog.
+     */
+    public void stockChanged(String productId) {
+        eventPublisher.publishEvent(new ProductStockChangedEvent(productId));
+    }
+
     public List<ProductDto> getLowStockProducts(Integer threshold) {
         return productRepository.findByStockQuantityLessThanAndIsActiveTrue(threshold)
                 .stream()
@@ -105,7 +164,7 @@ public class ProductService {
                 .collect(Collectors.toList());
     }
 
-    private ProductDto convertToDto(Product product) {
+    ProductDto convertToDto(Product product) {
         ProductDto dto = new ProductDto();
         dto.setId(product.getId());
         dto.setName(product.getName());
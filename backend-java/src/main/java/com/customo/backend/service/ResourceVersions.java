@@ -0,0 +1,314 @@
+package com.customo.backend.service;
+
+import com.customo.backend.entity.DeviceLog;
+import com.customo.backend.event.DeviceStateChangedEvent;
+import com.customo.backend.event.ProductChangedEvent;
+import com.customo.backend.event.ProductStockChangedEvent;
+import com.customo.backend.event.ProductsChangedElsewhereEvent;
+import com.customo.backend.util.AfterCommit;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Version counters behind the ETags of catalog and device reads, so a
+ * conditional GET is answered from memory without loading anything. Counters
+ * move after commit: a client may get new data under the old tag, never old
+ * data under a new one.
+ *
+ * Versions are shared through resource_versions so every node hands out the
+ * same tag for the same state. A change moves the tag on its own node at once,
+ * to one carrying this node's boot epoch; every etags.sync-ms the changed
+ * resources are incremented in the table, and the changes of other nodes read
+ * back. Until then another node may still answer 304 for the previous state.
+ * Products changed elsewhere are announced with ProductsChangedElsewhereEvent,
+ * so the catalog cache does not serve old entries under the new tags.
+ */
+@Component
+public class ResourceVersions {
+
+    private static final String CATALOG = "catalog";
+    private static final String IN_STOCK = "in-stock";
+    private static final int KEYS_PER_QUERY = 500;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // Rows changed this long before the last sync are read again, for clock differences between nodes
+    @Value("${etags.sync-overlap-ms:60000}")
+    private long syncOverlapMs;
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    // Orders changes as this node saw them, local ones and synced ones alike
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<String, Version> versions = new ConcurrentHashMap<>();
+    // Changed here and not written to resource_versions yet
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private volatile Instant syncedAt = Instant.EPOCH;
+    private volatile boolean loaded;
+    private volatile boolean stopping;
+
+    public String catalogTag() {
+        return tag("c", CATALOG);
+    }
+
+    // Listings filtered or counted by availability also follow ProductFacetIndex's in-stock bits
+    public String catalogStockTag() {
+        return catalogTag() + "-" + tag("s", IN_STOCK);
+    }
+
+    public String productTag(String productId) {
+        return tag("p", productKey(productId));
+    }
+
+    // Device data is per user, so the tag is too
+    public String deviceTag(String userId) {
+        return tag("d" + Integer.toHexString(userId.hashCode()) + "-", deviceKey(userId));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        bump(productKey(event.getProductId()));
+        bump(CATALOG);
+    }
+
+    // The catalog tag stays: catalog-wide views do not follow stock, see ProductService.stockChanged
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(ProductStockChangedEvent event) {
+        bump(productKey(event.getProductId()));
+    }
+
+    public void inStockChanged() {
+        bump(IN_STOCK);
+    }
+
+    /**
+     * The position in this node's order of changes every product version so
+     * far is at or below.
+     */
+    public long currentVersion() {
+        return sequence.get();
+    }
+
+    // When this node last saw the product change, comparable with currentVersion
+    public long productVersion(String productId) {
+        Version version = versions.get(productKey(productId));
+        return version != null ? version.seen : 0L;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeviceStateChanged(DeviceStateChangedEvent event) {
+        bump(deviceKey(event.getUserId()));
+    }
+
+    /**
+     * Device views embed and list logs, so written logs move the owner's version.
+     */
+    public void recordLogs(List<DeviceLog> logs) {
+        Set<String> userIds = logs.stream()
+                .map(DeviceLog::getUserId)
+                .filter(userId -> userId != null)
+                .collect(Collectors.toSet());
+        if (userIds.isEmpty()) return;
+        AfterCommit.run(() -> userIds.forEach(userId -> bump(deviceKey(userId))));
+    }
+
+    public Map<String, Object> getMetrics() {
+        return Map.of("tracked", versions.size(), "unsynced", dirty.size(), "syncedAt", syncedAt);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadAtStartup() {
+        sync();
+    }
+
+    /**
+     * Writes the resources changed here since the last sync, one increment
+     * each, then reads what other nodes changed.
+     */
+    @Scheduled(fixedDelayString = "${etags.sync-ms:1000}", initialDelayString = "${etags.sync-ms:1000}")
+    public void sync() {
+        syncLock.lock();
+        try {
+            Instant now = Instant.now();
+            Map<String, Long> written = new HashMap<>();
+            for (String key : dirty) {
+                dirty.remove(key);
+                written.put(key, versions.get(key).pending);
+            }
+            if (!written.isEmpty()) {
+                try {
+                    write(written, now);
+                } catch (RuntimeException e) {
+                    dirty.addAll(written.keySet());
+                    throw e;
+                }
+            }
+
+            Set<String> changedElsewhere = new HashSet<>();
+            jdbcTemplate.query("SELECT resource_key, version FROM resource_versions WHERE changed_at >= ?",
+                    rs -> {
+                        String key = rs.getString("resource_key");
+                        if (apply(key, rs.getLong("version"), 0L)) changedElsewhere.add(key);
+                    }, toTimestamp(syncedAt.minusMillis(syncOverlapMs)));
+            boolean firstSync = !loaded;
+            syncedAt = now;
+            loaded = true;
+            // At startup everything is known from the database already
+            if (!firstSync) announce(changedElsewhere);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    // Writes what is left; the listeners of changes from elsewhere may be gone already
+    @PreDestroy
+    public void stop() {
+        stopping = true;
+        sync();
+    }
+
+    private void write(Map<String, Long> written, Instant now) {
+        List<String> keys = new ArrayList<>(written.keySet());
+        Collections.sort(keys);
+        // Inserted outside the increment, so a row created concurrently by another node is no error there
+        for (String key : keys) {
+            if (versions.get(key).stored > 0) continue;
+            try {
+                jdbcTemplate.update("INSERT INTO resource_versions (resource_key, version, changed_at) " +
+                        "SELECT ?, 0, ? WHERE NOT EXISTS (SELECT 1 FROM resource_versions WHERE resource_key = ?)",
+                        key, toTimestamp(now), key);
+            } catch (DataIntegrityViolationException e) {
+                // Inserted by another node meanwhile
+            }
+        }
+
+        // Read back under the row locks of the increment, so each value is this node's own
+        Map<String, Long> stored = new HashMap<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate("UPDATE resource_versions SET version = version + 1, changed_at = ? WHERE resource_key = ?",
+                    keys, KEYS_PER_QUERY, (ps, key) -> {
+                        ps.setObject(1, toTimestamp(now));
+                        ps.setString(2, key);
+                    });
+            for (int from = 0; from < keys.size(); from += KEYS_PER_QUERY) {
+                List<String> chunk = keys.subList(from, Math.min(from + KEYS_PER_QUERY, keys.size()));
+                String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+                jdbcTemplate.query("SELECT resource_key, version FROM resource_versions WHERE resource_key IN (" + placeholders + ")",
+                        rs -> {
+                            stored.put(rs.getString("resource_key"), rs.getLong("version"));
+                        }, chunk.toArray());
+            }
+        });
+        Set<String> changedElsewhere = new HashSet<>();
+        stored.forEach((key, version) -> {
+            if (apply(key, version, written.get(key))) changedElsewhere.add(key);
+        });
+        announce(changedElsewhere);
+    }
+
+    private void announce(Set<String> changedKeys) {
+        Set<String> productIds = changedKeys.stream()
+                .filter(key -> key.startsWith("p:"))
+                .map(key -> key.substring(2))
+                .collect(Collectors.toSet());
+        boolean catalogChanged = changedKeys.contains(CATALOG);
+        if (!stopping && (!productIds.isEmpty() || catalogChanged)) {
+            eventPublisher.publishEvent(new ProductsChangedElsewhereEvent(productIds, catalogChanged));
+        }
+    }
+
+    /**
+     * Takes a stored version at or above the known one. A local change still
+     * pending past {@code written} keeps the tag on this node's epoch.
+     * Returns true if another node changed the resource since it was known.
+     */
+    private boolean apply(String key, long stored, long written) {
+        boolean[] changedElsewhere = new boolean[1];
+        versions.compute(key, (k, current) -> {
+            if (current == null) {
+                changedElsewhere[0] = true;
+                return new Version(stored, 0L, sequence.incrementAndGet());
+            }
+            if (stored < current.stored || (stored == current.stored && written == 0L)) return current;
+            long pending = current.pending == written ? 0L : current.pending;
+            // Beyond this node's own increment another node changed it too
+            changedElsewhere[0] = stored > current.stored + (written != 0L ? 1 : 0);
+            return new Version(stored, pending, changedElsewhere[0] ? sequence.incrementAndGet() : current.seen);
+        });
+        return changedElsewhere[0];
+    }
+
+    private void bump(String key) {
+        versions.compute(key, (k, current) -> {
+            long version = sequence.incrementAndGet();
+            return new Version(current != null ? current.stored : 0L, version, version);
+        });
+        dirty.add(key);
+    }
+
+    private String tag(String prefix, String key) {
+        Version version = versions.get(key);
+        long stored = version != null ? version.stored : 0L;
+        long pending = version != null ? version.pending : 0L;
+        // Before the first sync the stored version is not known, so the tag is only this run's
+        return pending > 0 || !loaded ? prefix + stored + "-" + epoch + "." + pending : prefix + stored;
+    }
+
+    private static String productKey(String productId) {
+        return "p:" + productId;
+    }
+
+    private static String deviceKey(String userId) {
+        return "d:" + userId;
+    }
+
+    private static OffsetDateTime toTimestamp(Instant instant) {
+        return instant.atOffset(ZoneOffset.UTC);
+    }
+
+    private static final class Version {
+        // Last version read from or written to resource_versions
+        private final long stored;
+        // Local change not in resource_versions yet, or 0
+        private final long pending;
+        private final long seen;
+
+        private Version(long stored, long pending, long seen) {
+            this.stored = stored;
+            this.pending = pending;
+            this.seen = seen;
+        }
+    }
+}
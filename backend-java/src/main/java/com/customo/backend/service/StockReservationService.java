@@ -0,0 +1,139 @@
+package com.customo.backend.service;
+
+import com.customo.backend.entity.StockReservation;
+import com.customo.backend.repository.ProductRepository;
+import com.customo.backend.repository.StockReservationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds stock for cart lines. Stock is taken with one conditional UPDATE on
+ * the product row, so concurrent shoppers on the same product queue on the
+ * row lock and the loser of the last unit is refused instead of oversold.
+ * Reservations expire after cart.reservation.ttl-ms without a change to the
+ * cart line and their stock goes back on sale.
+ */
+@Service
+@Transactional
+public class StockReservationService {
+
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${cart.reservation.ttl-ms:900000}")
+    private long ttlMs;
+
+    @Value("${cart.reservation.expiry-batch-size:500}")
+    private int expiryBatchSize;
+
+    private final AtomicLong refused = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+
+    /**
+     * Makes the user's reservation for the product exactly {@code quantity},
+     * taking or returning only the difference, and restarts its TTL.
+     * Throws IllegalStateException when not enough stock is left.
+     */
+    public void reserve(String userId, String productId, int quantity) {
+        if (quantity <= 0) {
+            release(userId, productId);
+            return;
+        }
+        StockReservation reservation = stockReservationRepository.findForUpdate(userId, productId).orElse(null);
+        hold(reservation, userId, productId, quantity);
+    }
+
+    /**
+     * Like reserve, but relative to what the reservation holds now; for
+     * callers whose view of the cart line may be behind the reservation.
+     */
+    public void reserveMore(String userId, String productId, int additional) {
+        StockReservation reservation = stockReservationRepository.findForUpdate(userId, productId).orElse(null);
+        hold(reservation, userId, productId, (reservation != null ? reservation.getQuantity() : 0) + additional);
+    }
+
+    private void hold(StockReservation reservation, String userId, String productId, int quantity) {
+        int delta = quantity - (reservation != null ? reservation.getQuantity() : 0);
+        if (delta > 0 && productRepository.takeStock(productId, delta) == 0) {
+            refused.incrementAndGet();
+            throw new IllegalStateException("Insufficient stock");
+        }
+        if (delta < 0) {
+            productRepository.returnStock(productId, -delta);
+        }
+
+        Instant expiresAt = Instant.now().plusMillis(ttlMs);
+        if (reservation == null) {
+            reservation = new StockReservation(userId, productId, quantity, expiresAt);
+        } else {
+            reservation.setQuantity(quantity);
+            reservation.setExpiresAt(expiresAt);
+        }
+        stockReservationRepository.save(reservation);
+        if (delta != 0) {
+            productService.stockChanged(productId);
+        }
+    }
+
+    public void release(String userId, String productId) {
+        stockReservationRepository.findForUpdate(userId, productId).ifPresent(reservation -> {
+            productRepository.returnStock(productId, reservation.getQuantity());
+            stockReservationRepository.delete(reservation);
+            productService.stockChanged(productId);
+        });
+    }
+
+    public void releaseAll(String userId) {
+        List<StockReservation> reservations = stockReservationRepository.findByUserIdForUpdate(userId);
+        for (StockReservation reservation : reservations) {
+            productRepository.returnStock(reservation.getProductId(), reservation.getQuantity());
+        }
+        stockReservationRepository.deleteAll(reservations);
+        reservations.forEach(reservation -> productService.stockChanged(reservation.getProductId()));
+    }
+
+    // One transaction per reservation, so a busy product row does not hold up the rest
+    @Scheduled(fixedDelayString = "${cart.reservation.expiry-check-ms:30000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void expireReservations() {
+        Instant now = Instant.now();
+        List<StockReservation> due = stockReservationRepository.findExpired(now, PageRequest.of(0, expiryBatchSize));
+        for (StockReservation reservation : due) {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (stockReservationRepository.deleteIfExpired(reservation.getId(), now) == 1) {
+                    productRepository.returnStock(reservation.getProductId(), reservation.getQuantity());
+                    productService.stockChanged(reservation.getProductId());
+                    expired.incrementAndGet();
+                }
+            });
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("refused", refused.get());
+        metrics.put("expired", expired.get());
+        return metrics;
+    }
+}
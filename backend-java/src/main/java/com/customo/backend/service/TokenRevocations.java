@@ -0,0 +1,76 @@
+package com.customo.backend.service;
+
+import com.customo.backend.entity.RevokedToken;
+import com.customo.backend.repository.RevokedTokenRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Revoked tokens by hash, checked on every request from memory. A revocation
+ * is stored in revoked_tokens and applies on this node at once; other nodes
+ * pick it up within jwt.revocations.sync-ms. Entries are dropped once the
+ * token has expired, since the expiry check rejects it from then on.
+ */
+@Component
+public class TokenRevocations {
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    // Rows revoked this long before the last sync are read again, for clock differences between nodes
+    @Value("${jwt.revocations.sync-overlap-ms:60000}")
+    private long syncOverlapMs;
+
+    // Token hash to expiry in epoch millis
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private volatile Instant syncedAt = Instant.EPOCH;
+
+    public boolean isRevoked(String tokenHash) {
+        return revoked.containsKey(tokenHash);
+    }
+
+    public void revoke(String tokenHash, Instant expiresAt) {
+        if (revoked.containsKey(tokenHash)) return;
+        try {
+            revokedTokenRepository.save(new RevokedToken(tokenHash, expiresAt));
+        } catch (DataIntegrityViolationException e) {
+            // Revoked concurrently on another node
+        }
+        // Only once stored, so a failed save cannot leave a revocation the other nodes never see
+        revoked.putIfAbsent(tokenHash, expiresAt.toEpochMilli());
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("revoked", revoked.size());
+        metrics.put("syncedAt", syncedAt);
+        return metrics;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadAtStartup() {
+        sync();
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocations.sync-ms:5000}", initialDelayString = "${jwt.revocations.sync-ms:5000}")
+    public void sync() {
+        Instant now = Instant.now();
+        for (RevokedToken token : revokedTokenRepository.findRevokedSince(syncedAt.minusMillis(syncOverlapMs), now)) {
+            revoked.putIfAbsent(token.getTokenHash(), token.getExpiresAt().toEpochMilli());
+        }
+        syncedAt = now;
+        long nowMs = now.toEpochMilli();
+        revoked.values().removeIf(expiresAt -> expiresAt <= nowMs);
+        revokedTokenRepository.deleteExpired(now);
+    }
+}
@@ -0,0 +1,151 @@
+package com.customo.backend.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Read-through LRU cache bounded by the total weight of its values, with a
+ * time-to-live per entry. Loads run outside the lock; a load that overlaps
+ * an invalidation is returned to its caller but not cached, so an
+ * invalidated value cannot come back.
+ */
+public class BoundedCache<K, V> {
+
+    private final long maxWeight;
+    private final ToIntFunction<V> weigher;
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+    private long generation;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    public BoundedCache(long maxWeight, ToIntFunction<V> weigher) {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    public V get(K key, Function<K, V> loader, long ttlMs) {
+        long loadGeneration;
+        synchronized (this) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAt > System.currentTimeMillis()) {
+                    hits++;
+                    return entry.value;
+                }
+                expirations++;
+                removeEntry(key);
+            }
+            misses++;
+            loadGeneration = generation;
+        }
+
+        V value = loader.apply(key);
+        int valueWeight = weigher.applyAsInt(value);
+        synchronized (this) {
+            if (loadGeneration == generation && valueWeight <= maxWeight) {
+                Entry<V> previous = entries.put(key, new Entry<>(value, valueWeight, System.currentTimeMillis() + ttlMs));
+                if (previous != null) weight -= previous.weight;
+                weight += valueWeight;
+                evictToFit();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * The cached value, or null; for callers that only learn the ttl by loading.
+     */
+    public synchronized V getIfPresent(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null) {
+            if (entry.expiresAt > System.currentTimeMillis()) {
+                hits++;
+                return entry.value;
+            }
+            expirations++;
+            removeEntry(key);
+        }
+        misses++;
+        return null;
+    }
+
+    public synchronized void put(K key, V value, long ttlMs) {
+        int valueWeight = weigher.applyAsInt(value);
+        if (valueWeight > maxWeight) return;
+        Entry<V> previous = entries.put(key, new Entry<>(value, valueWeight, System.currentTimeMillis() + ttlMs));
+        if (previous != null) weight -= previous.weight;
+        weight += valueWeight;
+        evictToFit();
+    }
+
+    public synchronized void invalidate(K key) {
+        generation++;
+        removeEntry(key);
+    }
+
+    public synchronized void invalidateIf(BiPredicate<K, V> predicate) {
+        generation++;
+        Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<K, Entry<V>> entry = iterator.next();
+            if (predicate.test(entry.getKey(), entry.getValue().value)) {
+                weight -= entry.getValue().weight;
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+        weight = 0;
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", entries.size());
+        stats.put("weight", weight);
+        stats.put("maxWeight", maxWeight);
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("hitRate", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        stats.put("evictions", evictions);
+        stats.put("expirations", expirations);
+        return stats;
+    }
+
+    // Least recently used first
+    private void evictToFit() {
+        Iterator<Entry<V>> iterator = entries.values().iterator();
+        while (weight > maxWeight && iterator.hasNext()) {
+            weight -= iterator.next().weight;
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    private void removeEntry(K key) {
+        Entry<V> removed = entries.remove(key);
+        if (removed != null) weight -= removed.weight;
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final int weight;
+        private final long expiresAt;
+
+        private Entry(V value, int weight, long expiresAt) {
+            this.value = value;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
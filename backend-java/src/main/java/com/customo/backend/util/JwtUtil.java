@@ -1,8 +1,13 @@
 package com.customo.backend.util;
 
+import com.customo.backend.service.TokenRevocations;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
@@ -10,14 +15,41 @@ import jakarta.annotation.PostConstruct;
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
 import java.util.Date;
+import java.util.HexFormat;
+import java.util.Map;
 
+/**
+ * Issues and verifies tokens. Verification runs once per token: the result
+ * is cached under the token's SHA-256 until the token expires, so later
+ * requests with the same token skip the signature check and claims parsing.
+ * Revocation is checked on every call, cached or not.
+ */
 @Component
 public class JwtUtil {
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
     @Value("${jwt.secret:change-this-secret-to-a-long-random-value-please}")
     private String jwtSecret;
 
+    @Value("${jwt.cache.max-size:10000}")
+    private long cacheMaxSize;
+
+    @Autowired
+    private TokenRevocations tokenRevocations;
+
     private SecretKey key;
+    // Immutable once built, so one instance serves all threads
+    private JwtParser parser;
+    private BoundedCache<String, VerifiedToken> verified;
     private final long expirationMs = 1000L * 60 * 60 * 24 * 7; // 7 days
 
     @PostConstruct
@@ -36,6 +68,8 @@ public class JwtUtil {
             }
         }
         this.key = Keys.hmacShaKeyFor(keyBytes);
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
+        this.verified = new BoundedCache<>(cacheMaxSize, token -> 1);
     }
 
     public String generateToken(String userId, String email) {
@@ -50,6 +84,70 @@ public class JwtUtil {
     }
 
     public String getUserIdFromToken(String token) {
-        return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody().getSubject();
+        return verify(token).getUserId();
+    }
+
+    /**
+     * Checks the token and returns what it carries. Throws JwtException
+     * (ExpiredJwtException, SignatureException, ...) for a token that is not
+     * valid, including one that has been revoked.
+     */
+    public VerifiedToken verify(String token) {
+        String hash = hash(token);
+        if (tokenRevocations.isRevoked(hash)) {
+            throw new JwtException("Token has been revoked");
+        }
+        VerifiedToken cached = verified.getIfPresent(hash);
+        if (cached != null) return cached;
+
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        // Tokens are always issued with an expiry; one without it is never cached
+        Date expiration = claims.getExpiration();
+        VerifiedToken result = new VerifiedToken(claims.getSubject(), claims.get("email", String.class),
+                expiration != null ? expiration.toInstant() : null);
+        if (expiration != null) {
+            verified.put(hash, result, expiration.getTime() - System.currentTimeMillis());
+        }
+        return result;
+    }
+
+    /**
+     * Makes a valid token unusable until it expires.
+     */
+    public void revoke(String token) {
+        VerifiedToken valid = verify(token);
+        String hash = hash(token);
+        tokenRevocations.revoke(hash, valid.getExpiresAt() != null ? valid.getExpiresAt() : Instant.now().plusMillis(expirationMs));
+        verified.invalidate(hash);
+    }
+
+    public Map<String, Object> getCacheStats() {
+        return verified.getStats();
+    }
+
+    private static String hash(String token) {
+        MessageDigest digest = SHA_256.get();
+        return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * The claims of a token whose signature and expiry have been checked.
+     */
+    public static final class VerifiedToken {
+        private final String userId;
+        private final String email;
+        private final Instant expiresAt;
+
+        public VerifiedToken(String userId, String email, Instant expiresAt) {
+            this.userId = userId;
+            this.email = email;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getUserId() { return userId; }
+
+        public String getEmail() { return email; }
+
+        public Instant getExpiresAt() { return expiresAt; }
     }
 }
@@ -0,0 +1,44 @@
+package com.customo.backend.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a listing ordered by (instant DESC, id DESC), handed to clients
+ * as an opaque token. The next page is everything strictly after the position,
+ * which the database answers with an index seek instead of an OFFSET scan.
+ */
+public final class KeysetCursor {
+    // Sorts before every real row, so the first page uses the same query as the rest
+    public static final KeysetCursor FIRST = new KeysetCursor(Instant.parse("9999-12-31T23:59:59Z"), "");
+
+    private final Instant position;
+    private final String id;
+
+    private KeysetCursor(Instant position, String id) {
+        this.position = position;
+        this.id = id;
+    }
+
+    public Instant getPosition() { return position; }
+    public String getId() { return id; }
+
+    public static String encode(Instant position, String id) {
+        byte[] raw = (position.toString() + "|" + id).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    public static KeysetCursor decode(String token) {
+        if (token == null || token.isBlank()) return FIRST;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            if (separator < 0) throw new IllegalArgumentException("Invalid cursor");
+            return new KeysetCursor(Instant.parse(raw.substring(0, separator)), raw.substring(separator + 1));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
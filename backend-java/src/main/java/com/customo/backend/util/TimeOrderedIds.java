@@ -0,0 +1,26 @@
+package com.customo.backend.util;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * UUIDv7-style identifiers: a millisecond timestamp in the high bits followed by
+ * a per-millisecond sequence and random bits. Ids sort in creation order, so
+ * inserts land at the right edge of the primary key index and can be assigned
+ * in the application before a batched insert.
+ */
+public final class TimeOrderedIds {
+    // Unix millis shifted left by 12, plus a 12 bit sequence within the millisecond
+    private static final AtomicLong STATE = new AtomicLong();
+
+    private TimeOrderedIds() {}
+
+    public static String next() {
+        long now = System.currentTimeMillis() << 12;
+        long state = STATE.updateAndGet(prev -> Math.max(prev + 1, now));
+        long msb = ((state >>> 12) << 16) | 0x7000L | (state & 0xFFFL);
+        long lsb = (ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(msb, lsb).toString();
+    }
+}
@@ -0,0 +1,113 @@
+package com.customo.backend.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building and writing one response envelope: a HashMap per request
+ * (as before ApiResponse) against the ApiResponse and PageResponse records,
+ * for a 20-device page and an error. Run with the GC profiler, so
+ * gc.alloc.rate.norm gives the bytes allocated per response.
+ *
+ * mvn -B test-compile, then run main with the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApiResponseBenchmark {
+
+    private ObjectMapper objectMapper;
+    private Page<DeviceDto> devices;
+
+    @Setup
+    public void setUp() {
+        // As Spring Boot configures it: java.time support, ISO dates
+        objectMapper = JsonMapper.builder()
+                .findAndAddModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        List<DeviceDto> content = new ArrayList<>();
+        Instant now = Instant.now();
+        for (int i = 0; i < 20; i++) {
+            DeviceDto device = new DeviceDto();
+            device.setId("device-" + i);
+            device.setName("Rover " + i);
+            device.setType("rover");
+            device.setStatus("ACTIVE");
+            device.setBattery(80);
+            device.setLocation("Lab");
+            device.setOnline(true);
+            device.setLastSeen(now);
+            device.setCreatedAt(now);
+            device.setUpdatedAt(now);
+            content.add(device);
+        }
+        devices = new PageImpl<>(content, PageRequest.of(0, 20), 200);
+    }
+
+    @Benchmark
+    public byte[] devicePageMap() throws Exception {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", Map.of(
+                "devices", devices.getContent(),
+                "totalElements", devices.getTotalElements(),
+                "totalPages", devices.getTotalPages(),
+                "currentPage", devices.getNumber(),
+                "size", devices.getSize()));
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] devicePageRecord() throws Exception {
+        return objectMapper.writeValueAsBytes(ApiResponse.ok(PageResponse.of("devices", devices)));
+    }
+
+    @Benchmark
+    public byte[] errorMap() throws Exception {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", "Device not found");
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] errorRecord() throws Exception {
+        return objectMapper.writeValueAsBytes(ApiResponse.error("Device not found"));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ApiResponseBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
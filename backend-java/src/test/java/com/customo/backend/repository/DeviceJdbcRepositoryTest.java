@@ -0,0 +1,101 @@
+package com.customo.backend.repository;
+
+import com.customo.backend.entity.Device;
+import com.customo.backend.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class DeviceJdbcRepositoryTest {
+
+    @Autowired
+    private DeviceJdbcRepository deviceJdbcRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private String deviceId;
+
+    @BeforeEach
+    void createDevice() {
+        User user = new User();
+        user.setId(UUID.randomUUID().toString());
+        user.setEmail(user.getId() + "@test");
+        user.setPassword("x");
+        userRepository.save(user);
+        deviceId = deviceRepository.save(new Device(user, "Rover", "rover")).getId();
+    }
+
+    @Test
+    void telemetryDoesNotMoveLastSeenBackwards() {
+        Instant newer = Instant.now().truncatedTo(ChronoUnit.MILLIS).plusSeconds(60);
+        deviceJdbcRepository.batchUpdateTelemetry(List.of(update(newer, 50)));
+        deviceJdbcRepository.batchUpdateTelemetry(List.of(update(newer.minusSeconds(30), 40)));
+
+        assertThat(lastSeen()).isEqualTo(newer);
+    }
+
+    @Test
+    void heartbeatsDoNotMoveLastSeenBackwards() {
+        Instant newer = Instant.now().truncatedTo(ChronoUnit.MILLIS).plusSeconds(60);
+        deviceJdbcRepository.batchUpdateHeartbeats(List.of(update(newer, 50)));
+        deviceJdbcRepository.batchUpdateHeartbeats(List.of(update(newer.minusSeconds(30), 40)));
+        deviceJdbcRepository.batchUpdateHeartbeats(List.of(update(null, 30)));
+
+        assertThat(lastSeen()).isEqualTo(newer);
+        assertThat(jdbcTemplate.queryForObject("SELECT battery FROM devices WHERE id = ?", Integer.class, deviceId)).isEqualTo(30);
+    }
+
+    @Test
+    void lateReadingsDoNotOverwriteNewerValues() {
+        Instant newer = Instant.now().truncatedTo(ChronoUnit.MILLIS).plusSeconds(60);
+        DeviceJdbcRepository.TelemetryUpdate online = update(newer, 50);
+        online.setOnline(true);
+        online.setStatus(Device.DeviceStatus.ACTIVE);
+        deviceJdbcRepository.batchUpdateTelemetry(List.of(online));
+
+        DeviceJdbcRepository.TelemetryUpdate lateTelemetry = update(newer.minusSeconds(30), 40);
+        lateTelemetry.setOnline(false);
+        lateTelemetry.setStatus(Device.DeviceStatus.ERROR);
+        deviceJdbcRepository.batchUpdateTelemetry(List.of(lateTelemetry));
+        DeviceJdbcRepository.TelemetryUpdate lateHeartbeat = update(newer.minusSeconds(20), 30);
+        lateHeartbeat.setOnline(false);
+        deviceJdbcRepository.batchUpdateHeartbeats(List.of(lateHeartbeat));
+
+        assertThat(jdbcTemplate.queryForMap("SELECT battery, is_online, status FROM devices WHERE id = ?", deviceId))
+                .containsEntry("BATTERY", 50)
+                .containsEntry("IS_ONLINE", true)
+                .containsEntry("STATUS", "ACTIVE");
+        assertThat(lastSeen()).isEqualTo(newer);
+    }
+
+    private DeviceJdbcRepository.TelemetryUpdate update(Instant lastSeen, int battery) {
+        DeviceJdbcRepository.TelemetryUpdate update = new DeviceJdbcRepository.TelemetryUpdate(deviceId);
+        update.setLastSeen(lastSeen);
+        update.setBattery(battery);
+        return update;
+    }
+
+    private Instant lastSeen() {
+        return jdbcTemplate.queryForObject("SELECT last_seen FROM devices WHERE id = ?", Timestamp.class, deviceId).toInstant();
+    }
+}
@@ -0,0 +1,99 @@
+package com.customo.backend.service;
+
+import com.customo.backend.entity.Device;
+import com.customo.backend.entity.DeviceLog;
+import com.customo.backend.entity.User;
+import com.customo.backend.repository.DeviceJdbcRepository;
+import com.customo.backend.repository.DeviceRepository;
+import com.customo.backend.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+
+@SpringBootTest(properties = {"devices.logs.linger-ms=10", "devices.logs.retry-backoff-ms=10"})
+@ActiveProfiles("test")
+class AsyncDeviceLogAppenderTest {
+
+    @Autowired
+    private AsyncDeviceLogAppender appender;
+
+    @SpyBean
+    private DeviceJdbcRepository deviceJdbcRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void transientErrorRetriesTheWholeBatch() throws InterruptedException {
+        Device device = createDevice();
+        long failedBefore = (long) appender.getMetrics().get("failed");
+        doThrow(new TransientDataAccessResourceException("connection reset"))
+                .doThrow(new TransientDataAccessResourceException("connection reset"))
+                .doCallRealMethod()
+                .when(deviceJdbcRepository).batchInsertLogs(anyList());
+
+        List<DeviceLog> logs = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            logs.add(new DeviceLog(device, DeviceLog.LogLevel.INFO, "reading " + i));
+        }
+        appender.appendAll(logs);
+
+        awaitLogCount(device, 20);
+        assertThat(appender.getMetrics().get("failed")).isEqualTo(failedBefore);
+        assertThat((long) appender.getMetrics().get("retries")).isGreaterThanOrEqualTo(2);
+    }
+
+    @Test
+    void rowsThatViolateConstraintsAreIsolated() throws InterruptedException {
+        Device device = createDevice();
+        Device deleted = new Device();
+        deleted.setId(UUID.randomUUID().toString());
+        long failedBefore = (long) appender.getMetrics().get("failed");
+
+        appender.appendAll(List.of(
+                new DeviceLog(device, DeviceLog.LogLevel.INFO, "kept"),
+                new DeviceLog(deleted, DeviceLog.LogLevel.INFO, "orphan"),
+                new DeviceLog(device, DeviceLog.LogLevel.INFO, "kept too")));
+
+        awaitLogCount(device, 2);
+        assertThat(appender.getMetrics().get("failed")).isEqualTo(failedBefore + 1);
+    }
+
+    private Device createDevice() {
+        User user = new User();
+        user.setId(UUID.randomUUID().toString());
+        user.setEmail(user.getId() + "@test");
+        user.setPassword("x");
+        userRepository.save(user);
+        return deviceRepository.save(new Device(user, "Rover", "rover"));
+    }
+
+    private void awaitLogCount(Device device, int expected) throws InterruptedException {
+        for (int i = 0; i < 200 && logCount(device) < expected; i++) {
+            Thread.sleep(25);
+        }
+        assertThat(logCount(device)).isEqualTo(expected);
+    }
+
+    private int logCount(Device device) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM device_logs WHERE device_id = ?", Integer.class, device.getId());
+    }
+}
@@ -0,0 +1,51 @@
+package com.customo.backend.service;
+
+import com.customo.backend.dto.AuthResponse;
+import com.customo.backend.dto.ChangePasswordRequest;
+import com.customo.backend.dto.RegisterRequest;
+import com.customo.backend.security.AuthenticatedUserCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class AuthServiceTest {
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private AuthenticatedUserCache authenticatedUserCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void changingThePasswordReloadsTheCachedPrincipal() {
+        RegisterRequest register = new RegisterRequest();
+        register.email = UUID.randomUUID() + "@test";
+        register.password = "first-password";
+        AuthResponse registered = authService.register(register);
+        String userId = registered.user.id;
+        assertThat(authenticatedUserCache.get(userId)).hasValueSatisfying(user -> assertThat(user.getRole()).isEqualTo("CUSTOMER"));
+
+        // Changed behind the cache, as an admin tool would
+        jdbcTemplate.update("UPDATE users SET role = 'ADMIN', is_active = false WHERE id = ?", userId);
+        ChangePasswordRequest change = new ChangePasswordRequest();
+        change.currentPassword = "first-password";
+        change.newPassword = "second-password";
+        authService.changePassword(userId, change);
+
+        assertThat(authenticatedUserCache.get(userId)).hasValueSatisfying(user -> {
+            assertThat(user.getRole()).isEqualTo("ADMIN");
+            assertThat(user.isActive()).isFalse();
+        });
+    }
+}
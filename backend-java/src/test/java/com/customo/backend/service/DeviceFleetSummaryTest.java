@@ -0,0 +1,118 @@
+package com.customo.backend.service;
+
+import com.customo.backend.dto.DeviceDto;
+import com.customo.backend.dto.FleetSummaryDto;
+import com.customo.backend.entity.Device;
+import com.customo.backend.entity.DeviceLog;
+import com.customo.backend.entity.User;
+import com.customo.backend.repository.DeviceRepository;
+import com.customo.backend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "devices.logs.appender=inline")
+@ActiveProfiles("test")
+class DeviceFleetSummaryTest {
+
+    @Autowired
+    private DeviceFleetSummary deviceFleetSummary;
+
+    @Autowired
+    private DeviceService deviceService;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private DeviceStateBuffer deviceStateBuffer;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+
+    @BeforeEach
+    void createUser() {
+        user = new User();
+        user.setId(UUID.randomUUID().toString());
+        user.setEmail(user.getId() + "@test");
+        user.setPassword("x");
+        userRepository.save(user);
+    }
+
+    @Test
+    void countersMatchTheRepositoryAfterEachChange() {
+        String rover = deviceService.createDevice(user.getId(), device("Rover")).getId();
+        String arm = deviceService.createDevice(user.getId(), device("Arm")).getId();
+        // Loaded here; later changes arrive as events
+        assertMatchesRepository();
+
+        String drone = deviceService.createDevice(user.getId(), device("Drone")).getId();
+        assertMatchesRepository();
+
+        deviceService.updateDeviceStatus(user.getId(), rover, Device.DeviceStatus.MAINTENANCE);
+        deviceService.updateDeviceBattery(user.getId(), arm, 15);
+        deviceService.updateDeviceBattery(user.getId(), drone, 5);
+        assertMatchesRepository();
+        assertThat(deviceFleetSummary.getSummary(user.getId()).getBatteryLevels())
+                .containsEntry("critical", 1L).containsEntry("low", 1L).containsEntry("high", 1L);
+
+        deviceService.deleteDevice(user.getId(), arm);
+        assertMatchesRepository();
+        assertThat(deviceFleetSummary.getSummary(user.getId()).getTotalDevices()).isEqualTo(2);
+    }
+
+    @Test
+    void reconcileGivesTheSameFigures() {
+        String rover = deviceService.createDevice(user.getId(), device("Rover")).getId();
+        deviceFleetSummary.getSummary(user.getId());
+        deviceService.createDevice(user.getId(), device("Arm"));
+        deviceService.updateDeviceStatus(user.getId(), rover, Device.DeviceStatus.ERROR);
+        FleetSummaryDto incremental = deviceFleetSummary.getSummary(user.getId());
+
+        deviceFleetSummary.reconcile();
+
+        assertThat(deviceFleetSummary.getSummary(user.getId())).usingRecursiveComparison()
+                .ignoringFields("reconciledAt")
+                .isEqualTo(incremental);
+    }
+
+    private void assertMatchesRepository() {
+        FleetSummaryDto summary = deviceFleetSummary.getSummary(user.getId());
+        deviceStateBuffer.flush();
+
+        assertThat(summary.getTotalDevices()).isEqualTo(deviceRepository.countByUser(user));
+        assertThat(summary.getOnline()).isEqualTo(deviceRepository.countOnlineByUser(user));
+        for (Device.DeviceStatus status : Device.DeviceStatus.values()) {
+            assertThat(summary.getByStatus().get(status.name())).as(status.name())
+                    .isEqualTo(deviceRepository.countByUserAndStatus(user, status));
+        }
+        for (DeviceLog.LogLevel level : DeviceLog.LogLevel.values()) {
+            assertThat(summary.getLogsByLevel().get(level.name())).as(level.name()).isEqualTo(jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM device_logs WHERE user_id = ? AND level = ?", Long.class, user.getId(), level.name()));
+        }
+        assertThat(summary.getBatteryLevels().values().stream().mapToLong(Long::longValue).sum())
+                .isEqualTo(jdbcTemplate.queryForObject(
+                        "SELECT COUNT(*) FROM devices WHERE user_id = ? AND battery IS NOT NULL", Long.class, user.getId()));
+        assertThat(summary.getBatteryLevels().get("critical")).isEqualTo(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM devices WHERE user_id = ? AND battery < 10", Long.class, user.getId()));
+    }
+
+    private static DeviceDto device(String name) {
+        DeviceDto device = new DeviceDto();
+        device.setName(name);
+        device.setType("rover");
+        return device;
+    }
+}
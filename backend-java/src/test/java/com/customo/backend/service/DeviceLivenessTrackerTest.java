@@ -0,0 +1,129 @@
+package com.customo.backend.service;
+
+import com.customo.backend.dto.TelemetryBatchRequest;
+import com.customo.backend.entity.Device;
+import com.customo.backend.entity.User;
+import com.customo.backend.repository.DeviceJdbcRepository;
+import com.customo.backend.repository.DeviceRepository;
+import com.customo.backend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {"devices.liveness.timeout-ms=300", "devices.liveness.tick-ms=20"})
+@ActiveProfiles("test")
+class DeviceLivenessTrackerTest {
+
+    @Autowired
+    private DeviceLivenessTracker deviceLivenessTracker;
+
+    @Autowired
+    private DeviceJdbcRepository deviceJdbcRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DeviceService deviceService;
+
+    private String userId;
+    private String deviceId;
+
+    @BeforeEach
+    void createDevice() {
+        User user = new User();
+        user.setId(UUID.randomUUID().toString());
+        user.setEmail(user.getId() + "@test");
+        user.setPassword("x");
+        userRepository.save(user);
+        userId = user.getId();
+        deviceId = deviceRepository.save(new Device(user, "Rover", "rover")).getId();
+    }
+
+    @Test
+    void heartbeatsPersistedByAnotherNodeKeepTheDeviceOnline() throws InterruptedException {
+        deviceLivenessTracker.heartbeat(deviceId, userId, Instant.now());
+
+        // This node hears nothing more; another node keeps writing heartbeats
+        for (int i = 0; i < 40; i++) {
+            persistHeartbeat(Instant.now());
+            Thread.sleep(25);
+        }
+        assertThat(isOnline()).isTrue();
+
+        Thread.sleep(800);
+        assertThat(isOnline()).isFalse();
+    }
+
+    @Test
+    void deviceMarkedOfflineElsewhereComesBackOnItsNextHeartbeat() throws InterruptedException {
+        Instant seen = Instant.now();
+        deviceLivenessTracker.heartbeat(deviceId, userId, seen);
+        jdbcTemplate.update("UPDATE devices SET is_online = FALSE WHERE id = ?", deviceId);
+
+        Thread.sleep(600);
+
+        assertThat(deviceLivenessTracker.heartbeat(deviceId, userId, Instant.now())).isTrue();
+    }
+
+    @Test
+    void manualStatusChangesArmAndStopTheTimer() throws InterruptedException {
+        deviceService.updateDeviceStatus(userId, deviceId, Device.DeviceStatus.OFFLINE);
+        deviceService.updateDeviceStatus(userId, deviceId, Device.DeviceStatus.ACTIVE);
+        assertThat(isOnline()).isTrue();
+
+        // Nothing heard after being set active: the device still times out
+        Thread.sleep(800);
+        assertThat(isOnline()).isFalse();
+
+        deviceService.updateDeviceStatus(userId, deviceId, Device.DeviceStatus.ACTIVE);
+        deviceService.updateDeviceStatus(userId, deviceId, Device.DeviceStatus.MAINTENANCE);
+        Thread.sleep(800);
+        assertThat(isOnline()).isFalse();
+        // Only the timeout before it; the device set to maintenance is not timed out again
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM device_logs WHERE device_id = ? AND message LIKE 'Device went offline%'",
+                Integer.class, deviceId)).isEqualTo(1);
+    }
+
+    private void persistHeartbeat(Instant lastSeen) {
+        DeviceJdbcRepository.TelemetryUpdate update = new DeviceJdbcRepository.TelemetryUpdate(deviceId);
+        update.setLastSeen(lastSeen);
+        deviceJdbcRepository.batchUpdateHeartbeats(List.of(update));
+    }
+
+    @Test
+    void telemetryReportingAnOutOfServiceStatusStopsTheTimer() throws InterruptedException {
+        deviceService.updateDeviceStatus(userId, deviceId, Device.DeviceStatus.ACTIVE);
+
+        TelemetryBatchRequest.TelemetryReading reading = new TelemetryBatchRequest.TelemetryReading();
+        reading.setDeviceId(deviceId);
+        reading.setStatus("MAINTENANCE");
+        deviceService.ingestTelemetry(userId, List.of(reading));
+        assertThat(isOnline()).isFalse();
+
+        Thread.sleep(800);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM device_logs WHERE device_id = ? AND message LIKE 'Device went offline%'",
+                Integer.class, deviceId)).isZero();
+    }
+
+    private boolean isOnline() {
+        return jdbcTemplate.queryForObject("SELECT is_online FROM devices WHERE id = ?", Boolean.class, deviceId);
+    }
+}
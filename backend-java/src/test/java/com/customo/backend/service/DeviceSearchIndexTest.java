@@ -0,0 +1,94 @@
+package com.customo.backend.service;
+
+import com.customo.backend.dto.DeviceDto;
+import com.customo.backend.entity.Device;
+import com.customo.backend.entity.User;
+import com.customo.backend.repository.DeviceRepository;
+import com.customo.backend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class DeviceSearchIndexTest {
+
+    private static final List<String> TERMS = List.of("ro", "rover", "arm", "lab", "north", "DOCK", "zz");
+
+    @Autowired
+    private DeviceSearchIndex deviceSearchIndex;
+
+    @Autowired
+    private DeviceService deviceService;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+
+    @BeforeEach
+    void createUser() {
+        user = new User();
+        user.setId(UUID.randomUUID().toString());
+        user.setEmail(user.getId() + "@test");
+        user.setPassword("x");
+        userRepository.save(user);
+    }
+
+    @Test
+    void searchMatchesTheRepositoryAfterEachChange() {
+        String rover = deviceService.createDevice(user.getId(), device("Rover One", "rover", "North lab")).getId();
+        deviceService.createDevice(user.getId(), device("Arm", "robotic arm", "Dock"));
+        // Built on the first search; later changes go through put and remove
+        assertMatchesRepository();
+
+        String crawler = deviceService.createDevice(user.getId(), device("Crawler", "tracked", "South lab")).getId();
+        assertMatchesRepository();
+
+        deviceService.updateDevice(user.getId(), rover, device("Scout", "drone", "Dock"));
+        assertMatchesRepository();
+        assertThat(ids("rover")).isEmpty();
+
+        deviceService.deleteDevice(user.getId(), crawler);
+        assertMatchesRepository();
+        assertThat(ids("lab")).isEmpty();
+    }
+
+    @Test
+    void namesRankAboveTypesAndLocations() {
+        String inLocation = deviceService.createDevice(user.getId(), device("Scout", "drone", "Rover bay")).getId();
+        String inName = deviceService.createDevice(user.getId(), device("Rover", "wheeled", "Dock")).getId();
+        String inType = deviceService.createDevice(user.getId(), device("Explorer", "rover", "Dock")).getId();
+
+        assertThat(ids("rover")).containsExactly(inName, inType, inLocation);
+    }
+
+    private void assertMatchesRepository() {
+        for (String term : TERMS) {
+            List<String> expected = deviceRepository.searchDevicesByUser(user, term).stream().map(Device::getId).toList();
+            assertThat(ids(term)).as(term).containsExactlyInAnyOrderElementsOf(expected);
+        }
+    }
+
+    private List<String> ids(String term) {
+        return deviceSearchIndex.search(user.getId(), term).stream().map(DeviceSearchIndex.Match::getDeviceId).toList();
+    }
+
+    private static DeviceDto device(String name, String type, String location) {
+        DeviceDto device = new DeviceDto();
+        device.setName(name);
+        device.setType(type);
+        device.setLocation(location);
+        return device;
+    }
+}
@@ -0,0 +1,99 @@
+package com.customo.backend.service;
+
+import com.customo.backend.dto.DeviceDto;
+import com.customo.backend.entity.Device;
+import com.customo.backend.entity.DeviceLog;
+import com.customo.backend.entity.User;
+import com.customo.backend.repository.DeviceJdbcRepository;
+import com.customo.backend.repository.DeviceRepository;
+import com.customo.backend.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class DeviceServiceTest {
+
+    @Autowired
+    private DeviceService deviceService;
+
+    @Autowired
+    private DeviceJdbcRepository deviceJdbcRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DeviceStateBuffer deviceStateBuffer;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void deleteDeviceRemovesItsLogs() {
+        User user = new User();
+        user.setId(UUID.randomUUID().toString());
+        user.setEmail(user.getId() + "@test");
+        user.setPassword("x");
+        userRepository.save(user);
+        Device device = deviceRepository.save(new Device(user, "Rover", "rover"));
+        List<DeviceLog> logs = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            logs.add(new DeviceLog(device, user.getId(), DeviceLog.LogLevel.INFO, "reading " + i));
+        }
+        deviceJdbcRepository.batchInsertLogs(logs);
+
+        assertThat(deviceService.deleteDevice(user.getId(), device.getId())).isTrue();
+
+        assertThat(deviceRepository.existsById(device.getId())).isFalse();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM device_logs WHERE device_id = ?", Integer.class, device.getId()))
+                .isZero();
+    }
+
+    @Test
+    void rolledBackBatteryUpdateBuffersNothing() {
+        User user = new User();
+        user.setId(UUID.randomUUID().toString());
+        user.setEmail(user.getId() + "@test");
+        user.setPassword("x");
+        userRepository.save(user);
+        Device device = deviceRepository.save(new Device(user, "Rover", "rover"));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            assertThat(deviceService.updateDeviceBattery(user.getId(), device.getId(), 42).getBattery()).isEqualTo(42);
+            status.setRollbackOnly();
+        });
+        assertThat(deviceStateBuffer.peek(device.getId())).isEmpty();
+
+        deviceService.updateDeviceBattery(user.getId(), device.getId(), 42);
+        assertThat(deviceStateBuffer.peek(device.getId())).hasValueSatisfying(state -> assertThat(state.getBattery()).isEqualTo(42));
+    }
+
+    @Test
+    void createDeviceForARemovedUserIsRejected() {
+        DeviceDto device = new DeviceDto();
+        device.setName("Rover");
+        device.setType("rover");
+
+        assertThatThrownBy(() -> deviceService.createDevice(UUID.randomUUID().toString(), device))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("User not found");
+    }
+}
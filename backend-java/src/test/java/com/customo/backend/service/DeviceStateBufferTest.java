@@ -0,0 +1,115 @@
+package com.customo.backend.service;
+
+import com.customo.backend.entity.Device;
+import com.customo.backend.entity.User;
+import com.customo.backend.repository.DeviceJdbcRepository;
+import com.customo.backend.repository.DeviceRepository;
+import com.customo.backend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "devices.state-buffer.flush-interval-ms=3600000")
+@ActiveProfiles("test")
+class DeviceStateBufferTest {
+
+    @Autowired
+    private DeviceStateBuffer deviceStateBuffer;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    private String deviceId;
+
+    @BeforeEach
+    void createDevice() {
+        User user = new User();
+        user.setId(UUID.randomUUID().toString());
+        user.setEmail(user.getId() + "@test");
+        user.setPassword("x");
+        userRepository.save(user);
+        deviceId = deviceRepository.save(new Device(user, "Rover", "rover")).getId();
+    }
+
+    @Test
+    void rolledBackSaveKeepsBufferedValues() {
+        deviceStateBuffer.record(deviceId, 50, true, Instant.now());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Device device = deviceRepository.findById(deviceId).orElseThrow();
+            deviceStateBuffer.drainInto(device);
+            assertThat(device.getBattery()).isEqualTo(50);
+            status.setRollbackOnly();
+        });
+
+        assertThat(deviceStateBuffer.peek(deviceId)).hasValueSatisfying(state -> assertThat(state.getBattery()).isEqualTo(50));
+    }
+
+    @Test
+    void committedSaveKeepsOnlyLaterReadings() {
+        deviceStateBuffer.record(deviceId, 50, true, Instant.now());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Device device = deviceRepository.findById(deviceId).orElseThrow();
+            deviceStateBuffer.drainInto(device);
+            deviceRepository.save(device);
+            deviceStateBuffer.record(deviceId, 40, null, null);
+        });
+
+        assertThat(deviceStateBuffer.peek(deviceId)).hasValueSatisfying(state -> assertThat(state.getBattery()).isEqualTo(40));
+        assertThat(deviceRepository.findById(deviceId).orElseThrow().getBattery()).isEqualTo(50);
+    }
+
+    @Test
+    void flushLeavesDeviceAloneWhileSaveIsOpen() {
+        deviceStateBuffer.record(deviceId, 50, true, Instant.now());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Device device = deviceRepository.findById(deviceId).orElseThrow();
+            deviceStateBuffer.drainInto(device);
+            CompletableFuture.runAsync(deviceStateBuffer::flush).join();
+            assertThat(deviceStateBuffer.peek(deviceId)).isPresent();
+            deviceRepository.save(device);
+        });
+
+        assertThat(deviceStateBuffer.peek(deviceId)).isEmpty();
+    }
+
+    @Test
+    void lateReadingsDoNotOverrideNewerOnes() {
+        Instant newer = Instant.now();
+        deviceStateBuffer.record(deviceId, 50, true, newer);
+        deviceStateBuffer.record(deviceId, 40, false, newer.minusSeconds(30));
+
+        assertThat(deviceStateBuffer.peek(deviceId)).hasValueSatisfying(state -> {
+            assertThat(state.getBattery()).isEqualTo(50);
+            assertThat(state.getOnline()).isTrue();
+            assertThat(state.getLastSeen()).isEqualTo(newer);
+        });
+
+        DeviceJdbcRepository.TelemetryUpdate late = new DeviceJdbcRepository.TelemetryUpdate(deviceId);
+        late.setBattery(30);
+        late.setOnline(false);
+        late.setLastSeen(newer.minusSeconds(20));
+        deviceStateBuffer.drainInto(late);
+
+        assertThat(late.getBattery()).isEqualTo(50);
+        assertThat(late.getOnline()).isTrue();
+        assertThat(late.getLastSeen()).isEqualTo(newer);
+    }
+}
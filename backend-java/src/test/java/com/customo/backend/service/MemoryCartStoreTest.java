@@ -0,0 +1,150 @@
+package com.customo.backend.service;
+
+import com.customo.backend.dto.CheckoutRequest;
+import com.customo.backend.entity.Product;
+import com.customo.backend.entity.User;
+import com.customo.backend.repository.ProductRepository;
+import com.customo.backend.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {"cart.store=memory", "cart.store.flush-ms=3600000"})
+@ActiveProfiles("test")
+class MemoryCartStoreTest {
+
+    @Autowired
+    private MemoryCartStore cartStore;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Test
+    void checkoutWritesPendingChangesAndLeavesNothingToReplay() {
+        String userId = createUser();
+        String productId = createProduct(10);
+        cartStore.addItem(userId, productId, 2);
+
+        cartStore.checkout(userId, () -> orderService.checkout(userId, null, new CheckoutRequest()));
+
+        assertThat(cartStore.getCart(userId).getCartItems()).isEmpty();
+        assertThat(cartStore.getSummary(userId).getItemCount()).isZero();
+    }
+
+    @Test
+    void changesWaitForACheckoutInProgress() throws Exception {
+        String userId = createUser();
+        String productId = createProduct(10);
+        cartStore.addItem(userId, productId, 2);
+
+        CompletableFuture<?> addDuringCheckout = new CompletableFuture<>();
+        cartStore.checkout(userId, () -> {
+            CompletableFuture.runAsync(() -> cartStore.addItem(userId, productId, 1))
+                    .whenComplete((result, error) -> addDuringCheckout.complete(null));
+            sleep(300);
+            assertThat(addDuringCheckout).isNotDone();
+            return orderService.checkout(userId, null, new CheckoutRequest());
+        });
+        addDuringCheckout.get(5, TimeUnit.SECONDS);
+
+        // The add lands on the emptied cart and keeps its own reservation
+        assertThat(cartStore.getCart(userId).getCartItems())
+                .singleElement()
+                .satisfies(line -> assertThat(line.getQuantity()).isEqualTo(1));
+        assertThat(jdbcTemplate.queryForObject("SELECT quantity FROM stock_reservations WHERE user_id = ?", Integer.class, userId))
+                .isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE id = ?", Integer.class, productId))
+                .isEqualTo(7);
+    }
+
+    @Test
+    void twoNodesHoldingTheSameCartLoseNoUpdates() throws Exception {
+        // A second store instance over the same database plays the other node
+        MemoryCartStore otherNode = applicationContext.getAutowireCapableBeanFactory().createBean(MemoryCartStore.class);
+        String userId = createUser();
+        String shared = createProduct(100);
+        String onlyOnOther = createProduct(100);
+        cartStore.addItem(userId, shared, 1);
+        otherNode.addItem(userId, onlyOnOther, 1);
+
+        ExecutorService clicks = Executors.newFixedThreadPool(4);
+        List<Future<?>> done = new ArrayList<>();
+        for (MemoryCartStore node : List.of(cartStore, otherNode, cartStore, otherNode)) {
+            done.add(clicks.submit(() -> {
+                for (int i = 0; i < 10; i++) {
+                    node.addItem(userId, shared, 1);
+                    if (i % 3 == 0) node.writeBack();
+                }
+            }));
+        }
+        for (Future<?> clicker : done) {
+            clicker.get(30, TimeUnit.SECONDS);
+        }
+        clicks.shutdown();
+        cartStore.writeBack();
+        otherNode.writeBack();
+
+        for (MemoryCartStore node : List.of(cartStore, otherNode)) {
+            Map<String, Integer> quantities = new HashMap<>();
+            node.getCart(userId).getCartItems().forEach(line -> quantities.put(line.getProductId(), line.getQuantity()));
+            assertThat(quantities).containsOnly(Map.entry(shared, 41), Map.entry(onlyOnOther, 1));
+        }
+        assertThat(jdbcTemplate.queryForObject("SELECT quantity FROM cart_items WHERE user_id = ? AND product_id = ?",
+                Integer.class, userId, shared)).isEqualTo(41);
+        assertThat(jdbcTemplate.queryForObject("SELECT quantity FROM stock_reservations WHERE user_id = ? AND product_id = ?",
+                Integer.class, userId, shared)).isEqualTo(41);
+        assertThat(jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE id = ?", Integer.class, shared))
+                .isEqualTo(59);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String createUser() {
+        User user = new User();
+        user.setId(UUID.randomUUID().toString());
+        user.setEmail(user.getId() + "@test");
+        user.setPassword("x");
+        return userRepository.save(user).getId();
+    }
+
+    private String createProduct(int stock) {
+        Product product = new Product("Gripper", "Two-finger gripper", new BigDecimal("19.99"), "Parts", "Customo");
+        product.setStockQuantity(stock);
+        return productRepository.save(product).getId();
+    }
+}
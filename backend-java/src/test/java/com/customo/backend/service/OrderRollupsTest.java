@@ -0,0 +1,196 @@
+package com.customo.backend.service;
+
+import com.customo.backend.dto.CheckoutRequest;
+import com.customo.backend.dto.OrderAnalyticsDto;
+import com.customo.backend.dto.OrderDto;
+import com.customo.backend.entity.Order;
+import com.customo.backend.entity.Product;
+import com.customo.backend.entity.User;
+import com.customo.backend.event.OrderStatusChangedEvent;
+import com.customo.backend.repository.ProductRepository;
+import com.customo.backend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {"orders.rollups.backfill=false", "orders.rollups.flush-ms=3600000"})
+@ActiveProfiles("test")
+class OrderRollupsTest {
+
+    @Autowired
+    private OrderRollups orderRollups;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private String userId;
+    private String productId;
+
+    @BeforeEach
+    void createUserAndProduct() {
+        User user = new User();
+        user.setId(UUID.randomUUID().toString());
+        user.setEmail(user.getId() + "@test");
+        user.setPassword("x");
+        userId = userRepository.save(user).getId();
+        Product product = new Product("Gripper", "Two-finger gripper", new BigDecimal("19.99"), "Parts", "Customo");
+        product.setStockQuantity(10);
+        productId = productRepository.save(product).getId();
+    }
+
+    @Test
+    void placedOrdersAndStatusMovesAreCounted() {
+        cartStore.addItem(userId, productId, 2);
+        OrderDto order = cartStore.checkout(userId, () -> orderService.checkout(userId, null, new CheckoutRequest()));
+        orderRollups.flush();
+
+        Instant from = order.getCreatedAt().minus(1, ChronoUnit.HOURS);
+        Instant to = order.getCreatedAt().plus(1, ChronoUnit.HOURS);
+        assertThat(units(from, to, Order.OrderStatus.PENDING)).isEqualTo(2);
+
+        orderService.updateStatus(order.getId(), Order.OrderStatus.CONFIRMED);
+        orderRollups.flush();
+
+        assertThat(units(from, to, Order.OrderStatus.PENDING)).isZero();
+        assertThat(units(from, to, Order.OrderStatus.CONFIRMED)).isEqualTo(2);
+    }
+
+    @Test
+    void queryReadsWholeDaysAndTheHoursAtEitherEnd() {
+        Instant day = Instant.parse("2003-03-10T00:00:00Z");
+        place(day.minus(30, ChronoUnit.MINUTES), 1);
+        place(day.plus(10, ChronoUnit.MINUTES), 2);
+        place(day.plus(12, ChronoUnit.HOURS), 3);
+        place(day.plus(1, ChronoUnit.DAYS).plus(59, ChronoUnit.MINUTES), 4);
+        place(day.plus(1, ChronoUnit.DAYS).plus(1, ChronoUnit.HOURS), 5);
+        place(day.minus(2, ChronoUnit.HOURS), 6);
+        orderRollups.flush();
+
+        // The last hour of the day before, the day itself and the first hour of the day after
+        OrderAnalyticsDto spanning = orderRollups.query(day.minus(45, ChronoUnit.MINUTES),
+                day.plus(1, ChronoUnit.DAYS).plus(1, ChronoUnit.HOURS), null, 10);
+        assertThat(spanning.getFrom()).isEqualTo(day.minus(1, ChronoUnit.HOURS));
+        assertThat(spanning.getTotals().getOrders()).isEqualTo(4);
+        assertThat(spanning.getTotals().getItemsSold()).isEqualTo(1 + 2 + 3 + 4);
+
+        OrderAnalyticsDto oneHour = orderRollups.query(day, day.plus(1, ChronoUnit.HOURS), Order.OrderStatus.PENDING, 10);
+        assertThat(oneHour.getTotals().getItemsSold()).isEqualTo(2);
+        assertThat(oneHour.getTopProducts()).singleElement()
+                .satisfies(product -> assertThat(product.getProductId()).isEqualTo(productId));
+    }
+
+    @Test
+    void rebuildMatchesTheIncrementalFigures() {
+        Instant day = Instant.parse("2004-06-21T00:00:00Z");
+        place(day.plus(1, ChronoUnit.HOURS), 1);
+        String moved = place(day.plus(5, ChronoUnit.HOURS), 2);
+        place(day.plus(2, ChronoUnit.DAYS).plus(23, ChronoUnit.HOURS), 3);
+        move(moved, day.plus(5, ChronoUnit.HOURS), 2, Order.OrderStatus.PENDING, Order.OrderStatus.CONFIRMED);
+        orderRollups.flush();
+        Instant from = day.minus(1, ChronoUnit.HOURS);
+        Instant to = day.plus(3, ChronoUnit.DAYS).plus(1, ChronoUnit.HOURS);
+        OrderAnalyticsDto incremental = orderRollups.query(from, to, null, 10);
+
+        orderRollups.rebuild(day, day.plus(3, ChronoUnit.DAYS));
+
+        assertThat(orderRollups.query(from, to, null, 10)).usingRecursiveComparison()
+                .withComparatorForType(BigDecimal::compareTo, BigDecimal.class)
+                .isEqualTo(incremental);
+        assertThat(incremental.getByStatus().get("CONFIRMED").getItemsSold()).isEqualTo(2);
+    }
+
+    @Test
+    void ordersPlacedDuringRebuildsAreCountedOnce() throws Exception {
+        Instant day = Instant.parse("2005-09-02T00:00:00Z");
+        ExecutorService shoppers = Executors.newFixedThreadPool(4);
+        List<Future<?>> placed = new ArrayList<>();
+        for (int shopper = 0; shopper < 4; shopper++) {
+            placed.add(shoppers.submit(() -> {
+                for (int i = 0; i < 25; i++) {
+                    place(day.plus(i % 24, ChronoUnit.HOURS), 1);
+                }
+            }));
+        }
+        // Each order is read by some rebuild or queued after it, never both
+        while (placed.stream().anyMatch(shopper -> !shopper.isDone())) {
+            orderRollups.rebuild(day, day.plus(1, ChronoUnit.DAYS));
+        }
+        for (Future<?> shopper : placed) {
+            shopper.get(30, TimeUnit.SECONDS);
+        }
+        shoppers.shutdown();
+        orderRollups.flush();
+
+        OrderAnalyticsDto figures = orderRollups.query(day, day.plus(1, ChronoUnit.DAYS), null, 10);
+        assertThat(figures.getTotals().getOrders()).isEqualTo(100);
+        assertThat(figures.getTotals().getItemsSold()).isEqualTo(100);
+    }
+
+    // Writes the order and publishes its event in one transaction, as OrderService does
+    private String place(Instant createdAt, int quantity) {
+        String orderId = UUID.randomUUID().toString();
+        BigDecimal total = new BigDecimal("19.99").multiply(BigDecimal.valueOf(quantity));
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("INSERT INTO orders (id, user_id, status, total_amount, created_at, updated_at) " +
+                    "VALUES (?, ?, 'PENDING', ?, ?, ?)", orderId, userId, total, createdAt, createdAt);
+            jdbcTemplate.update("INSERT INTO order_items (id, order_id, product_id, quantity, unit_price, total_price, created_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?)", UUID.randomUUID().toString(), orderId, productId, quantity,
+                    new BigDecimal("19.99"), total, createdAt);
+            eventPublisher.publishEvent(new OrderStatusChangedEvent(orderId, null, Order.OrderStatus.PENDING, createdAt, total,
+                    List.of(new OrderStatusChangedEvent.Item(productId, quantity, total))));
+        });
+        return orderId;
+    }
+
+    private void move(String orderId, Instant createdAt, int quantity, Order.OrderStatus previous, Order.OrderStatus status) {
+        BigDecimal total = new BigDecimal("19.99").multiply(BigDecimal.valueOf(quantity));
+        transactionTemplate.executeWithoutResult(tx -> {
+            jdbcTemplate.update("UPDATE orders SET status = ? WHERE id = ?", status.name(), orderId);
+            eventPublisher.publishEvent(new OrderStatusChangedEvent(orderId, previous, status, createdAt, total,
+                    List.of(new OrderStatusChangedEvent.Item(productId, quantity, total))));
+        });
+    }
+
+    private long units(Instant from, Instant to, Order.OrderStatus status) {
+        return orderRollups.query(from, to, status, 100).getTopProducts().stream()
+                .filter(product -> product.getProductId().equals(productId))
+                .mapToLong(OrderAnalyticsDto.ProductTotals::getUnits)
+                .sum();
+    }
+}
@@ -0,0 +1,125 @@
+package com.customo.backend.service;
+
+import com.customo.backend.dto.CheckoutRequest;
+import com.customo.backend.dto.OrderDto;
+import com.customo.backend.entity.Product;
+import com.customo.backend.entity.User;
+import com.customo.backend.repository.ProductRepository;
+import com.customo.backend.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class OrderServiceTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void checkoutReturnsStockHeldForProductsNotOrdered() {
+        String userId = createUser();
+        String ordered = createProduct(10);
+        String dropped = createProduct(10);
+        cartStore.addItem(userId, ordered, 2);
+        // Held without a cart line, e.g. left behind by a line removed on another node
+        stockReservationService.reserve(userId, dropped, 3);
+        assertThat(stock(dropped)).isEqualTo(7);
+
+        OrderDto order = cartStore.checkout(userId, () -> orderService.checkout(userId, null, new CheckoutRequest()));
+
+        assertThat(order.getOrderItems()).hasSize(1);
+        assertThat(stock(ordered)).isEqualTo(8);
+        assertThat(stock(dropped)).isEqualTo(10);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stock_reservations WHERE user_id = ?", Integer.class, userId))
+                .isZero();
+    }
+
+    @Test
+    void checkoutChargesThePriceTheCartShowed() {
+        String userId = createUser();
+        String productId = createProduct(10);
+        cartStore.addItem(userId, productId, 2);
+        jdbcTemplate.update("UPDATE products SET price = 24.99 WHERE id = ?", productId);
+
+        OrderDto order = cartStore.checkout(userId, () -> orderService.checkout(userId, null, new CheckoutRequest()));
+
+        assertThat(order.getTotalAmount()).isEqualByComparingTo("39.98");
+        assertThat(order.getOrderItems()).singleElement()
+                .satisfies(item -> assertThat(item.getUnitPrice()).isEqualByComparingTo("19.99"));
+    }
+
+    @Test
+    void concurrentRetriesWithTheSameKeyGetTheSameOrder() throws Exception {
+        String userId = createUser();
+        String productId = createProduct(10);
+        cartStore.addItem(userId, productId, 2);
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService attempts = Executors.newFixedThreadPool(2);
+        List<Future<OrderDto>> orders = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            orders.add(attempts.submit(() -> {
+                start.await();
+                return cartStore.checkout(userId, () -> orderService.checkout(userId, "retry-key", new CheckoutRequest()));
+            }));
+        }
+        start.countDown();
+        OrderDto first = orders.get(0).get(30, TimeUnit.SECONDS);
+        OrderDto second = orders.get(1).get(30, TimeUnit.SECONDS);
+        attempts.shutdown();
+
+        assertThat(second.getId()).isEqualTo(first.getId());
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders WHERE user_id = ?", Integer.class, userId))
+                .isEqualTo(1);
+        assertThat(stock(productId)).isEqualTo(8);
+    }
+
+    private String createUser() {
+        User user = new User();
+        user.setId(UUID.randomUUID().toString());
+        user.setEmail(user.getId() + "@test");
+        user.setPassword("x");
+        return userRepository.save(user).getId();
+    }
+
+    private String createProduct(int stock) {
+        Product product = new Product("Gripper", "Two-finger gripper", new BigDecimal("19.99"), "Parts", "Customo");
+        product.setStockQuantity(stock);
+        return productRepository.save(product).getId();
+    }
+
+    private int stock(String productId) {
+        return jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE id = ?", Integer.class, productId);
+    }
+}
@@ -0,0 +1,142 @@
+package com.customo.backend.service;
+
+import com.customo.backend.dto.ProductDto;
+import com.customo.backend.dto.ProductFilter;
+import com.customo.backend.entity.Product;
+import com.customo.backend.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ProductFacetIndexTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Categories no other product in the shared test database uses
+    private String tools;
+    private String parts;
+
+    @BeforeEach
+    void pickCategories() {
+        String suffix = UUID.randomUUID().toString();
+        tools = "Tools " + suffix;
+        parts = "Parts " + suffix;
+    }
+
+    @Test
+    void filtersMatchTheRepositoryAfterEachChange() {
+        String drill = productService.createProduct(product("Drill", tools, "Acme", "120.00", 3)).getId();
+        productService.createProduct(product("Saw", tools, "Bolt", "35.00", 0));
+        String gear = productService.createProduct(product("Gear", parts, "Acme", "8.50", 12)).getId();
+        assertMatchesRepository();
+
+        productService.updateProduct(gear, product(null, tools, null, "60.00", null));
+        assertMatchesRepository();
+
+        productService.deleteProduct(drill);
+        assertMatchesRepository();
+        assertThat(query(filter(List.of(tools, parts), null), null).getTotal()).isEqualTo(2);
+    }
+
+    @Test
+    void facetCountsApplyEveryOtherFilter() {
+        productService.createProduct(product("Drill", tools, "Acme", "120.00", 3));
+        productService.createProduct(product("Saw", tools, "Bolt", "35.00", 0));
+        productService.createProduct(product("Gear", parts, "Acme", "8.50", 12));
+
+        ProductFilter acmeInStock = filter(List.of(tools, parts), true);
+        acmeInStock.setBrands(List.of("Acme"));
+        ProductFacetIndex.FacetResult result = query(acmeInStock, null);
+
+        assertThat(result.getTotal()).isEqualTo(2);
+        // Brand counts ignore the brand filter but keep the category and stock ones
+        assertThat(counts(result, "brands")).containsEntry("Acme", 2L).containsEntry("Bolt", 0L);
+        assertThat(counts(result, "priceRanges")).containsEntry("0-25", 1L).containsEntry("100-250", 1L);
+        assertThat(result.getFacets().get("inStock")).isEqualTo(2L);
+    }
+
+    @Test
+    void stockFlipsMoveTheInStockBit() {
+        String drill = productService.createProduct(product("Drill", tools, "Acme", "120.00", 3)).getId();
+        String saw = productService.createProduct(product("Saw", tools, "Bolt", "35.00", 0)).getId();
+        assertThat(inStock()).containsExactly(drill);
+
+        // Stock moved outside updateProduct, as reservations and orders do
+        jdbcTemplate.update("UPDATE products SET stock_quantity = 0 WHERE id = ?", drill);
+        productService.stockChanged(drill);
+        jdbcTemplate.update("UPDATE products SET stock_quantity = 4 WHERE id = ?", saw);
+        productService.stockChanged(saw);
+        productFacetIndex.refreshStock();
+        assertThat(inStock()).containsExactly(saw);
+        assertMatchesRepository();
+
+        productService.updateProduct(drill, product(null, null, null, null, 7));
+        assertThat(inStock()).containsExactlyInAnyOrder(drill, saw);
+        assertMatchesRepository();
+    }
+
+    private void assertMatchesRepository() {
+        for (String category : List.of(tools, parts)) {
+            List<Product> expected = productRepository.findByCategoryAndIsActiveTrue(category);
+            assertThat(ids(query(filter(List.of(category), null), null))).as(category)
+                    .containsExactlyInAnyOrderElementsOf(expected.stream().map(Product::getId).toList());
+            assertThat(ids(query(filter(List.of(category), true), null))).as(category + " in stock")
+                    .containsExactlyInAnyOrderElementsOf(expected.stream()
+                            .filter(product -> product.getStockQuantity() != null && product.getStockQuantity() > 0)
+                            .map(Product::getId).toList());
+        }
+    }
+
+    private List<String> inStock() {
+        return ids(query(filter(List.of(tools), true), null));
+    }
+
+    private ProductFacetIndex.FacetResult query(ProductFilter filter, String searchTerm) {
+        return productService.filterProducts(filter, searchTerm, PageRequest.of(0, 100));
+    }
+
+    private static List<String> ids(ProductFacetIndex.FacetResult result) {
+        return result.getProducts().stream().map(ProductDto::getId).toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Long> counts(ProductFacetIndex.FacetResult result, String facet) {
+        return (Map<String, Long>) result.getFacets().get(facet);
+    }
+
+    private static ProductFilter filter(List<String> categories, Boolean inStock) {
+        ProductFilter filter = new ProductFilter();
+        filter.setCategories(categories);
+        filter.setInStock(inStock);
+        return filter;
+    }
+
+    private static ProductDto product(String name, String category, String brand, String price, Integer stock) {
+        ProductDto product = new ProductDto(name, null, price != null ? new BigDecimal(price) : null, category, brand);
+        product.setStockQuantity(stock);
+        return product;
+    }
+}
@@ -0,0 +1,82 @@
+package com.customo.backend.service;
+
+import com.customo.backend.dto.ProductDto;
+import com.customo.backend.entity.Product;
+import com.customo.backend.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ProductSearchIndexTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    // A word no other product in the shared test database contains
+    private String word;
+
+    @BeforeEach
+    void pickWord() {
+        word = "w" + UUID.randomUUID().toString().replace("-", "");
+    }
+
+    @Test
+    void searchMatchesTheRepositoryAfterEachChange() {
+        String gripper = productService.createProduct(product("Gripper " + word, "Two-finger gripper", "Parts")).getId();
+        String arm = productService.createProduct(product("Arm", "Fits the " + word + " kit", "Parts")).getId();
+        String wheel = productService.createProduct(product("Wheel", "Rubber wheel", "Parts")).getId();
+        assertMatchesRepository();
+
+        productService.updateProduct(wheel, product("Wheel " + word, null, null));
+        productService.updateProduct(gripper, product("Gripper", "Two-finger gripper", null));
+        assertMatchesRepository();
+        assertThat(ids(word)).containsExactlyInAnyOrder(arm, wheel);
+
+        productService.deleteProduct(arm);
+        assertMatchesRepository();
+        assertThat(ids(word)).containsExactly(wheel);
+    }
+
+    @Test
+    void everyTokenMustMatchAsATermOrItsPrefix() {
+        String inName = productService.createProduct(product("Servo " + word, "Metal gears", "Parts")).getId();
+        String inDescription = productService.createProduct(product("Bracket", "Holds a servo " + word, "Parts")).getId();
+        productService.createProduct(product("Servo", "Plastic gears", "Parts"));
+
+        // A name match ranks above the same word in a description
+        assertThat(ids("servo " + word)).containsExactly(inName, inDescription);
+        assertThat(ids("ser " + word.substring(0, 12))).containsExactly(inName, inDescription);
+        assertThat(ids(word + " gears")).containsExactly(inName);
+        assertThat(productService.searchProducts(word, PageRequest.of(1, 1)).getContent())
+                .extracting(ProductDto::getId).containsExactly(inDescription);
+    }
+
+    private void assertMatchesRepository() {
+        List<String> expected = productRepository.searchProducts(word).stream().map(Product::getId).toList();
+        assertThat(ids(word)).containsExactlyInAnyOrderElementsOf(expected);
+    }
+
+    private List<String> ids(String query) {
+        return productService.searchProducts(query).stream().map(ProductDto::getId).toList();
+    }
+
+    private static ProductDto product(String name, String description, String category) {
+        ProductDto product = new ProductDto(name, description, new BigDecimal("19.99"), category, "Customo");
+        product.setStockQuantity(5);
+        return product;
+    }
+}
@@ -0,0 +1,68 @@
+package com.customo.backend.service;
+
+import com.customo.backend.event.DeviceStateChangedEvent;
+import com.customo.backend.event.ProductStockChangedEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ResourceVersionsTest {
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Test
+    void nodesAgreeOnTagsOnceChangesAreSynced() {
+        // A second instance over the same database plays the other node
+        ResourceVersions otherNode = applicationContext.getAutowireCapableBeanFactory().createBean(ResourceVersions.class);
+        otherNode.sync();
+        String userId = UUID.randomUUID().toString();
+        String before = resourceVersions.deviceTag(userId);
+        assertThat(otherNode.deviceTag(userId)).isEqualTo(before);
+
+        resourceVersions.onDeviceStateChanged(new DeviceStateChangedEvent(userId, DeviceStateChangedEvent.Type.UPDATED, "device"));
+        String changed = resourceVersions.deviceTag(userId);
+        assertThat(changed).isNotEqualTo(before);
+        assertThat(otherNode.deviceTag(userId)).isEqualTo(before);
+
+        resourceVersions.sync();
+        otherNode.sync();
+        String synced = resourceVersions.deviceTag(userId);
+        assertThat(synced).isNotEqualTo(before).isNotEqualTo(changed);
+        assertThat(otherNode.deviceTag(userId)).isEqualTo(synced);
+
+        // A change on one node never gets a tag the other handed out for an older state
+        otherNode.onDeviceStateChanged(new DeviceStateChangedEvent(userId, DeviceStateChangedEvent.Type.UPDATED, "device"));
+        resourceVersions.onDeviceStateChanged(new DeviceStateChangedEvent(userId, DeviceStateChangedEvent.Type.UPDATED, "device"));
+        otherNode.sync();
+        resourceVersions.sync();
+        otherNode.sync();
+        assertThat(resourceVersions.deviceTag(userId)).isEqualTo(otherNode.deviceTag(userId)).isNotEqualTo(synced);
+    }
+
+    @Test
+    void stockMovedElsewhereIsNewerThanWhatThisNodeHasSeen() {
+        ResourceVersions otherNode = applicationContext.getAutowireCapableBeanFactory().createBean(ResourceVersions.class);
+        otherNode.sync();
+        String productId = UUID.randomUUID().toString();
+        long snapshotVersion = resourceVersions.currentVersion();
+
+        otherNode.onStockChanged(new ProductStockChangedEvent(productId));
+        otherNode.sync();
+        resourceVersions.sync();
+
+        assertThat(resourceVersions.productVersion(productId)).isGreaterThan(snapshotVersion);
+        assertThat(resourceVersions.productTag(productId)).isEqualTo(otherNode.productTag(productId));
+    }
+}
@@ -0,0 +1,131 @@
+package com.customo.backend.service;
+
+import com.customo.backend.dto.ProductDto;
+import com.customo.backend.dto.ProductFilter;
+import com.customo.backend.entity.Product;
+import com.customo.backend.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class StockReservationServiceTest {
+
+    private static final int STOCK = 40;
+    private static final int SHOPPERS = 16;
+    private static final int ROUNDS = 25;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void hotProductIsNeverOversoldAndStockIsConserved() throws Exception {
+        Product product = new Product("Hot item", "Everyone wants one", new BigDecimal("9.99"), "Robots", "Customo");
+        product.setStockQuantity(STOCK);
+        String productId = productRepository.save(product).getId();
+        String catalogTag = resourceVersions.catalogTag();
+        String productTag = resourceVersions.productTag(productId);
+
+        AtomicInteger held = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+        ExecutorService shoppers = Executors.newFixedThreadPool(SHOPPERS);
+        List<Future<?>> done = new ArrayList<>();
+        for (int s = 0; s < SHOPPERS; s++) {
+            String userId = UUID.randomUUID().toString();
+            done.add(shoppers.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int round = 0; round < ROUNDS; round++) {
+                    try {
+                        int action = random.nextInt(10);
+                        if (action < 6) {
+                            stockReservationService.reserveMore(userId, productId, 1 + random.nextInt(3));
+                            held.incrementAndGet();
+                        } else if (action < 9) {
+                            stockReservationService.reserve(userId, productId, random.nextInt(3));
+                        } else {
+                            stockReservationService.release(userId, productId);
+                        }
+                    } catch (IllegalStateException e) {
+                        refused.incrementAndGet();
+                    } catch (DataAccessException e) {
+                        // A lock wait that timed out rolls back as a whole; conservation still has to hold
+                    }
+                }
+            }));
+        }
+        for (Future<?> shopper : done) {
+            shopper.get();
+        }
+        shoppers.shutdown();
+
+        int stock = jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE id = ?", Integer.class, productId);
+        int reserved = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(quantity), 0) FROM stock_reservations WHERE product_id = ?", Integer.class, productId);
+        assertThat(held.get()).isPositive();
+        assertThat(refused.get()).isPositive();
+        assertThat(stock).isGreaterThanOrEqualTo(0);
+        assertThat(reserved).isLessThanOrEqualTo(STOCK);
+        assertThat(stock + reserved).isEqualTo(STOCK);
+
+        // Stock churn moves the product's own tag only
+        assertThat(resourceVersions.catalogTag()).isEqualTo(catalogTag);
+        assertThat(resourceVersions.productTag(productId)).isNotEqualTo(productTag);
+    }
+
+    @Test
+    void sellingOutMovesTheInStockTagOnly() {
+        productService.filterProducts(new ProductFilter(), null, PageRequest.of(0, 20));
+        ProductDto product = new ProductDto();
+        product.setName("Last one");
+        product.setPrice(new BigDecimal("4.99"));
+        product.setCategory("Robots");
+        product.setBrand("Customo");
+        product.setStockQuantity(2);
+        String productId = productService.createProduct(product).getId();
+        String catalogTag = resourceVersions.catalogTag();
+        String stockTag = resourceVersions.catalogStockTag();
+
+        // Still in stock afterwards, so no bit flips
+        stockReservationService.reserve(UUID.randomUUID().toString(), productId, 1);
+        productFacetIndex.refreshStock();
+        assertThat(resourceVersions.catalogStockTag()).isEqualTo(stockTag);
+
+        stockReservationService.reserve(UUID.randomUUID().toString(), productId, 1);
+        productFacetIndex.refreshStock();
+
+        assertThat(resourceVersions.catalogTag()).isEqualTo(catalogTag);
+        assertThat(resourceVersions.catalogStockTag()).isNotEqualTo(stockTag);
+    }
+}
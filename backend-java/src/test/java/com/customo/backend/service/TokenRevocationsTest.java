@@ -0,0 +1,47 @@
+package com.customo.backend.service;
+
+import com.customo.backend.entity.RevokedToken;
+import com.customo.backend.repository.RevokedTokenRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.reset;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class TokenRevocationsTest {
+
+    @Autowired
+    private TokenRevocations tokenRevocations;
+
+    @SpyBean
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Test
+    void failedSaveLeavesTheTokenUsableEverywhere() {
+        String hash = UUID.randomUUID().toString();
+        doThrow(new TransientDataAccessResourceException("connection reset"))
+                .when(revokedTokenRepository).save(any(RevokedToken.class));
+
+        assertThatThrownBy(() -> tokenRevocations.revoke(hash, Instant.now().plusSeconds(3600)))
+                .isInstanceOf(TransientDataAccessResourceException.class);
+        assertThat(tokenRevocations.isRevoked(hash)).isFalse();
+
+        // A retry is not short-circuited by a leftover entry
+        reset(revokedTokenRepository);
+        tokenRevocations.revoke(hash, Instant.now().plusSeconds(3600));
+        assertThat(tokenRevocations.isRevoked(hash)).isTrue();
+        assertThat(revokedTokenRepository.existsById(hash)).isTrue();
+    }
+}
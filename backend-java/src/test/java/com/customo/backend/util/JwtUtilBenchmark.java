@@ -0,0 +1,74 @@
+package com.customo.backend.util;
+
+import com.customo.backend.service.TokenRevocations;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of authenticating a token: a parser built for every call
+ * (as before the verified-token cache), one shared parser, and JwtUtil.verify
+ * answering from the cache.
+ *
+ * mvn -B test-compile, then run main with the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtUtilBenchmark {
+
+    private JwtUtil jwtUtil;
+    private SecretKey key;
+    private JwtParser parser;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "jwtSecret", "change-this-secret-to-a-long-random-value-please");
+        ReflectionTestUtils.setField(jwtUtil, "cacheMaxSize", 10000L);
+        ReflectionTestUtils.setField(jwtUtil, "tokenRevocations", new TokenRevocations());
+        jwtUtil.init();
+        key = (SecretKey) ReflectionTestUtils.getField(jwtUtil, "key");
+        parser = (JwtParser) ReflectionTestUtils.getField(jwtUtil, "parser");
+        token = jwtUtil.generateToken("user-1", "user-1@test");
+    }
+
+    @Benchmark
+    public String newParserPerCall() {
+        return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody().getSubject();
+    }
+
+    @Benchmark
+    public String sharedParser() {
+        return parser.parseClaimsJws(token).getBody().getSubject();
+    }
+
+    @Benchmark
+    public String cachedVerify() {
+        return jwtUtil.verify(token).getUserId();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtUtilBenchmark.class.getSimpleName()).build()).run();
+    }
+}